@@ -1,10 +1,26 @@
 package com.amazonas.backend;
 
 import java.io.FileInputStream;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigurationValues {
+
+    private static final Map<String, String> overrides = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the value of the property from the configuration file for the rest of the run
+     */
+    public static void override(String property, String value) {
+        overrides.put(property, value);
+    }
+
     public static String getProperty(String property) {
+        String overridden = overrides.get(property);
+        if (overridden != null) {
+            return overridden;
+        }
         Properties properties = new Properties();
 
         try (FileInputStream input = new FileInputStream(BackendApplication.getFolderPath()+"config.properties")) {
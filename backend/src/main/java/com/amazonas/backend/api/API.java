@@ -1,16 +1,39 @@
 package com.amazonas.backend.api;
 
 import com.amazonas.backend.service.*;
+import com.amazonas.common.requests.Request;
+import com.amazonas.common.requests.batch.BatchOperation;
+import com.amazonas.common.requests.batch.BatchRequest;
 import com.amazonas.common.utils.Response;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
 @SuppressWarnings("SpellCheckingInspection")
 @RestController
 public class API {
 
     private static final Logger log = LoggerFactory.getLogger(API.class);
+    private static final int MAX_BATCH_OPERATIONS = 32;
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    // the frontend server, the only caller whose word about the address of its client is taken
+    private static final Set<String> TRUSTED_PROXIES = Set.of(System.getProperty("API_TRUSTED_PROXIES", "127.0.0.1,0:0:0:0:0:0:0:1").split(","));
 
     private final AuthenticationService authenticationService;
     private final ExternalServicesService externalServicesService;
@@ -19,13 +42,18 @@ public class API {
     private final StoresService storesService;
     private final UserProfilesService userProfilesService;
     private final PermissionsService permissionsService;
+    private final TypedRoutes typedRoutes;
+    private final Map<String, Handler> routes;
+    private final Set<String> services;
+    private final ExecutorService batchExecutor;
 
     public API(AuthenticationService authenticationService,
                ExternalServicesService externalServicesService,
                MarketService marketService,
                NotificationsService notificationsService,
                StoresService storesService,
-               UserProfilesService userProfilesService, PermissionsService permissionsService){
+               UserProfilesService userProfilesService, PermissionsService permissionsService,
+               TypedRoutes typedRoutes){
         this.authenticationService = authenticationService;
         this.externalServicesService = externalServicesService;
         this.marketService = marketService;
@@ -33,141 +61,239 @@ public class API {
         this.storesService = storesService;
         this.userProfilesService = userProfilesService;
         this.permissionsService = permissionsService;
+        this.typedRoutes = typedRoutes;
+        routes = new HashMap<>();
+        services = new HashSet<>();
+        batchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        registerRoutes();
     }
 
     @GetMapping("userprofiles/enterasguest")
     public String forwardGet() {
-        return forwardUserProfiles("enterasguest", "");
+        return userProfilesService.enterAsGuest();
     }
 
     @PostMapping("{service}/{endpoint}")
     public String forwardPost(@PathVariable String service,
                               @PathVariable String endpoint,
-                              @RequestBody String body) {
+                              @RequestBody String body,
+                              HttpServletRequest servletRequest) {
         service=service.toLowerCase();
         endpoint=endpoint.toLowerCase();
 
+        Handler handler = routes.get(service + "/" + endpoint);
+        if(handler == null){
+            return services.contains(service) ? "Invalid endpoint" : "Invalid service";
+        }
         try{
-            return switch(service){
-                case "auth" -> forwardAuth(endpoint, body);
-                case "external" -> forwardExternal(endpoint,body);
-                case "market" -> forwardMarket(endpoint,body);
-                case "notifications" -> forwardNotifications(endpoint,body);
-                case "stores" -> forwardStores(endpoint,body);
-                case "userprofiles" -> forwardUserProfiles(endpoint,body);
-                case "permissions" -> forwardPermissions(endpoint,body);
-                default -> "Invalid service";
-            };
+            return handler.handle(body, servletRequest);
         } catch (Exception e) {
             log.error(e.getMessage(),e);
             return Response.getError(e.getMessage());
         }
     }
 
-    private String forwardPermissions(String endpoint, String body) {
-        return switch (endpoint) {
-            case "getuserpermissions" -> permissionsService.getUserPermissions(body);
-            case "getguestpermissions" -> permissionsService.getGuestPermissions(body);
-            case "isadmin" -> permissionsService.isAdmin(body);
-            default -> "Invalid endpoint";
-        };
+    /**
+     * The typed API, the body is a {@link com.amazonas.common.requests.TypedRequest} that is read in one pass
+     * and the response is streamed as a single JSON document, see {@link com.amazonas.common.utils.TypedResponse}
+     */
+    @PostMapping("typed/{service}/{endpoint}")
+    public void forwardTypedPost(@PathVariable String service,
+                                 @PathVariable String endpoint,
+                                 HttpServletRequest servletRequest,
+                                 HttpServletResponse servletResponse) throws IOException {
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // the json writer writes token by token, the servlet writer is flushed once per response instead
+        Writer out = new BufferedWriter(servletResponse.getWriter());
+
+        TypedRoutes.Route<?> route = typedRoutes.get(service.toLowerCase(), endpoint.toLowerCase());
+        if(route == null){
+            Response.writeError("Invalid endpoint", out);
+            return;
+        }
+        Object result;
+        try{
+            result = route.handle(servletRequest.getReader());
+        } catch (Exception e) {
+            log.error(e.getMessage(),e);
+            Response.writeError(e.getMessage(), out);
+            return;
+        }
+        Response.writeOk(result, out);
     }
 
-    private String forwardUserProfiles(String endpoint, String body) {
-        return switch (endpoint) {
-            case "enterasguest" -> userProfilesService.enterAsGuest();
-            case "register" -> userProfilesService.register(body);
-            case "logintoregistered" -> userProfilesService.loginToRegistered(body);
-            case "logout" -> userProfilesService.logout(body);
-            case "logoutasguest" -> userProfilesService.logoutAsGuest(body);
-            case "addproducttocart" -> userProfilesService.addProductToCart(body);
-            case "removeproductfromcart" -> userProfilesService.removeProductFromCart(body);
-            case "changeproductquantity" -> userProfilesService.changeProductQuantity(body);
-            case "viewcart" -> userProfilesService.viewCart(body);
-            case "startpurchase" -> userProfilesService.startPurchase(body);
-            case "payforpurchase" -> userProfilesService.payForPurchase(body);
-            case "cancelpurchase" -> userProfilesService.cancelPurchase(body);
-            case "getusertransactionhistory" -> userProfilesService.getUserTransactionHistory(body);
-            case "getuserinformation" -> userProfilesService.getUserInformation(body);
-            default -> "Invalid endpoint";
-        };
+    /**
+     * Runs the operations of a {@link BatchRequest} with the user and token of the batch, which are checked once.
+     * An operation starts when the operations it comes after succeeded, the others run in parallel.
+     * The payload holds the response of every operation by its index, an operation that comes after a failed one is not run.
+     */
+    @PostMapping("batch")
+    public String forwardBatch(@RequestBody String body, HttpServletRequest servletRequest) {
+        Request request;
+        List<BatchOperation> operations;
+        try{
+            request = Request.from(body);
+            operations = BatchRequest.from(request.payload()).operations();
+        } catch (Exception e) {
+            return Response.getError("Invalid batch");
+        }
+        if(operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS){
+            return Response.getError("A batch holds 1 to %d operations".formatted(MAX_BATCH_OPERATIONS));
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            final int current = i;
+            List<Integer> after = operations.get(i).after();
+            if(after != null && after.stream().anyMatch(index -> index == null || index < 0 || index >= current)){
+                return Response.getError("Operation %d can only come after earlier operations".formatted(i));
+            }
+        }
+        if(! authenticationService.validateToken(request.userId(), request.token())){
+            return Response.getError("Failed to validate authenticity of the user");
+        }
+
+        // the workers see the authentication of this request, so the proxies do not verify the token again
+        Executor executor = new DelegatingSecurityContextExecutor(batchExecutor, SecurityContextHolder.getContext());
+        List<CompletableFuture<String>> results = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            List<CompletableFuture<String>> before = operation.after() == null ? List.of()
+                    : operation.after().stream().map(results::get).toList();
+            results.add(CompletableFuture.allOf(before.toArray(CompletableFuture[]::new))
+                    .thenApplyAsync(_ -> before.stream().allMatch(result -> succeeded(result.join()))
+                            ? runOperation(request, operation, servletRequest)
+                            : Response.getError("Not run, an operation it comes after failed"), executor));
+        }
+        return Response.getOk(results.stream().map(CompletableFuture::join).toList());
     }
 
-    private String forwardStores(String endpoint, String body) {
-        return switch(endpoint) {
-            case "searchproductsglobally" -> storesService.searchProductsGlobally(body);
-            case "searchstoresglobally" -> storesService.searchStoresGlobally(body);
-            case "searchproductsinstore" -> storesService.searchProductsInStore(body);
-            case "addstore" -> storesService.addStore(body);
-            case "openstore" -> storesService.openStore(body);
-            case "closestore" -> storesService.closeStore(body);
-            case "addproduct" -> storesService.addProduct(body);
-            case "updateproduct" -> storesService.updateProduct(body);
-            case "removeproduct" -> storesService.removeProduct(body);
-            case "disableproduct" -> storesService.disableProduct(body);
-            case "enableproduct" -> storesService.enableProduct(body);
-            case "getstoreproducts" -> storesService.getStoreProducts(body);
-            case "getproduct" -> storesService.getProduct(body);
-            case "addowner" -> storesService.addOwner(body);
-            case "addmanager" -> storesService.addManager(body);
-            case "removeowner" -> storesService.removeOwner(body);
-            case "removemanager" -> storesService.removeManager(body);
-            case "addpermissiontomanager" -> storesService.addPermissionToManager(body);
-            case "removepermissionfrommanager" -> storesService.removePermissionFromManager(body);
-            case "getstorerolesinformation" -> storesService.getStoreRolesInformation(body);
-            case "getstoretransactionhistory" -> storesService.getStoreTransactionHistory(body);
-            case "setproductquantity" -> storesService.setProductQuantity(body);
-            case "getproductquantity" -> storesService.getProductQuantity(body);
-            case "getstoredetails" -> storesService.getStoreDetails(body);
-            case "adddiscountrulebycfg" -> storesService.addDiscountRuleByCFG(body);
-            case "getcfgdiscountrule" -> storesService.getDiscountRuleCFG(body);
-            case "adddiscountrulebydto" -> storesService.addDiscountRuleByDTO(body);
-            case "getdtodiscountrule" -> storesService.getDiscountRuleDTO(body);
-            case "removediscountrule" -> storesService.deleteAllDiscounts(body);
-            case "addpuchasepolicy" -> storesService.changePurchasePolicy(body);
-            case "removepuchasepolicy" -> storesService.removePurchasePolicy(body);
-            case "getpurchasepolicy" -> storesService.getPurchasePolicyDTO(body);
-            default -> "Invalid endpoint";
-        };
+    private String runOperation(Request batch, BatchOperation operation, HttpServletRequest servletRequest) {
+        String service = String.valueOf(operation.service()).toLowerCase();
+        String endpoint = String.valueOf(operation.endpoint()).toLowerCase();
+        // authentication takes credentials of its own, it is never part of a batch
+        Handler handler = service.equals("auth") ? null : routes.get(service + "/" + endpoint);
+        if(handler == null){
+            return Response.getError("Invalid endpoint");
+        }
+        try{
+            return handler.handle(new Request(batch.userId(), batch.token(), operation.payload()).toJson(), servletRequest);
+        } catch (Exception e) {
+            log.error(e.getMessage(),e);
+            return Response.getError(e.getMessage());
+        }
+    }
+
+    private static boolean succeeded(String result) {
+        Response response = Response.fromJson(result);
+        return response != null && response.success();
     }
 
-    private String forwardNotifications(String endpoint, String body) {
-        return switch(endpoint) {
-            case "sendnotification" -> notificationsService.sendNotification(body);
-            case "setreadvalue" -> notificationsService.setReadValue(body);
-            case "getunreadnotifications" -> notificationsService.getUnreadNotifications(body);
-            case "getnotifications" -> notificationsService.getNotifications(body);
-            case "deletenotification" -> notificationsService.deleteNotification(body);
-            default -> "Invalid endpoint";
-        };
+    /**
+     * @return the address the frontend forwarded for its client, or the address of the caller if it is not the frontend
+     */
+    static String clientAddress(HttpServletRequest servletRequest) {
+        String remote = servletRequest.getRemoteAddr();
+        String forwarded = servletRequest.getHeader(FORWARDED_FOR);
+        if (forwarded == null || !TRUSTED_PROXIES.contains(remote)) {
+            return remote;
+        }
+        // the frontend appends the address it saw last, anything before it came from the client
+        String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).strip();
+        return last.isEmpty() ? remote : last;
     }
 
-    private String forwardMarket(String endpoint, String body) {
-        return switch(endpoint) {
-            case "start" -> marketService.startMarket(body);
-            case "shutdown" -> marketService.shutdown(body);
-            default -> "Invalid endpoint";
-        };
+    // =============================================================================== |
+    // ================================ ROUTES ======================================= |
+    // =============================================================================== |
+
+    @FunctionalInterface
+    private interface Handler {
+        String handle(String body, HttpServletRequest servletRequest);
     }
 
-    private String forwardExternal(String endpoint, String body) {
-        return switch (endpoint) {
-            case "sendshipment" -> externalServicesService.sendShipment(body);
-            case "addshippingservice" -> externalServicesService.addShippingService(body);
-            case "removeshippingservice" -> externalServicesService.removeShippingService(body);
-            case "updateshippingservice" -> externalServicesService.updateShippingService(body);
-            case "addpaymentservice" -> externalServicesService.addPaymentService(body);
-            case "removepaymentservice" -> externalServicesService.removePaymentService(body);
-            case "updatepaymentservice" -> externalServicesService.updatePaymentService(body);
-            default -> "Invalid endpoint";
-        };
+    private void route(String service, String endpoint, Function<String, String> handler) {
+        routes.put(service + "/" + endpoint, (body, _) -> handler.apply(body));
     }
 
-    private String forwardAuth(String endpoint, String body) {
-        return switch (endpoint) {
-            case "user" -> authenticationService.authenticateUser(body);
-            case "guest" -> authenticationService.authenticateGuest(body);
-            default -> "Invalid endpoint";
-        };
+    // the endpoints are looked up by "service/endpoint" in one map, built once
+    private void registerRoutes() {
+        routes.put("auth/user", (body, servletRequest) -> authenticationService.authenticateUser(body, clientAddress(servletRequest)));
+        route("auth", "guest", authenticationService::authenticateGuest);
+
+        route("external", "sendshipment", externalServicesService::sendShipment);
+        route("external", "dispatchpendingshipments", externalServicesService::dispatchPendingShipments);
+        route("external", "addshippingservice", externalServicesService::addShippingService);
+        route("external", "removeshippingservice", externalServicesService::removeShippingService);
+        route("external", "updateshippingservice", externalServicesService::updateShippingService);
+        route("external", "addpaymentservice", externalServicesService::addPaymentService);
+        route("external", "removepaymentservice", externalServicesService::removePaymentService);
+        route("external", "updatepaymentservice", externalServicesService::updatePaymentService);
+        route("external", "getgatewaymetrics", externalServicesService::getGatewayMetrics);
+
+        route("market", "start", marketService::startMarket);
+        route("market", "shutdown", marketService::shutdown);
+        route("market", "gethashingmetrics", marketService::getHashingMetrics);
+
+        route("notifications", "sendnotification", notificationsService::sendNotification);
+        route("notifications", "setreadvalue", notificationsService::setReadValue);
+        route("notifications", "getunreadnotifications", notificationsService::getUnreadNotifications);
+        route("notifications", "getnotifications", notificationsService::getNotifications);
+        route("notifications", "deletenotification", notificationsService::deleteNotification);
+
+        route("stores", "searchproductsglobally", storesService::searchProductsGlobally);
+        route("stores", "searchstoresglobally", storesService::searchStoresGlobally);
+        route("stores", "searchproductsinstore", storesService::searchProductsInStore);
+        route("stores", "addstore", storesService::addStore);
+        route("stores", "openstore", storesService::openStore);
+        route("stores", "closestore", storesService::closeStore);
+        route("stores", "addproduct", storesService::addProduct);
+        route("stores", "updateproduct", storesService::updateProduct);
+        route("stores", "removeproduct", storesService::removeProduct);
+        route("stores", "disableproduct", storesService::disableProduct);
+        route("stores", "enableproduct", storesService::enableProduct);
+        route("stores", "getstoreproducts", storesService::getStoreProducts);
+        route("stores", "getproduct", storesService::getProduct);
+        route("stores", "addowner", storesService::addOwner);
+        route("stores", "addmanager", storesService::addManager);
+        route("stores", "removeowner", storesService::removeOwner);
+        route("stores", "removemanager", storesService::removeManager);
+        route("stores", "addpermissiontomanager", storesService::addPermissionToManager);
+        route("stores", "removepermissionfrommanager", storesService::removePermissionFromManager);
+        route("stores", "getstorerolesinformation", storesService::getStoreRolesInformation);
+        route("stores", "getuserstores", storesService::getUserStores);
+        route("stores", "getstoretransactionhistory", storesService::getStoreTransactionHistory);
+        route("stores", "setproductquantity", storesService::setProductQuantity);
+        route("stores", "getproductquantity", storesService::getProductQuantity);
+        route("stores", "getstoredetails", storesService::getStoreDetails);
+        route("stores", "adddiscountrulebycfg", storesService::addDiscountRuleByCFG);
+        route("stores", "getcfgdiscountrule", storesService::getDiscountRuleCFG);
+        route("stores", "adddiscountrulebydto", storesService::addDiscountRuleByDTO);
+        route("stores", "getdtodiscountrule", storesService::getDiscountRuleDTO);
+        route("stores", "simulatediscountrule", storesService::simulateDiscountRule);
+        route("stores", "removediscountrule", storesService::deleteAllDiscounts);
+        route("stores", "addpuchasepolicy", storesService::changePurchasePolicy);
+        route("stores", "removepuchasepolicy", storesService::removePurchasePolicy);
+        route("stores", "getpurchasepolicy", storesService::getPurchasePolicyDTO);
+
+        route("userprofiles", "enterasguest", _ -> userProfilesService.enterAsGuest());
+        route("userprofiles", "register", userProfilesService::register);
+        route("userprofiles", "logintoregistered", userProfilesService::loginToRegistered);
+        route("userprofiles", "logout", userProfilesService::logout);
+        route("userprofiles", "logoutasguest", userProfilesService::logoutAsGuest);
+        route("userprofiles", "addproducttocart", userProfilesService::addProductToCart);
+        route("userprofiles", "removeproductfromcart", userProfilesService::removeProductFromCart);
+        route("userprofiles", "changeproductquantity", userProfilesService::changeProductQuantity);
+        route("userprofiles", "viewcart", userProfilesService::viewCart);
+        route("userprofiles", "startpurchase", userProfilesService::startPurchase);
+        route("userprofiles", "payforpurchase", userProfilesService::payForPurchase);
+        route("userprofiles", "cancelpurchase", userProfilesService::cancelPurchase);
+        route("userprofiles", "getusertransactionhistory", userProfilesService::getUserTransactionHistory);
+        route("userprofiles", "getuserinformation", userProfilesService::getUserInformation);
+
+        route("permissions", "getuserpermissions", permissionsService::getUserPermissions);
+        route("permissions", "getguestpermissions", permissionsService::getGuestPermissions);
+        route("permissions", "isadmin", permissionsService::isAdmin);
+        route("permissions", "getpermissionsmatrix", permissionsService::getPermissionsMatrix);
+
+        routes.keySet().forEach(key -> services.add(key.substring(0, key.indexOf('/'))));
     }
 }
@@ -0,0 +1,82 @@
+package com.amazonas.backend.api;
+
+import com.amazonas.backend.business.permissions.proxies.NotificationProxy;
+import com.amazonas.backend.business.permissions.proxies.PermissionsProxy;
+import com.amazonas.backend.business.permissions.proxies.StoreProxy;
+import com.amazonas.backend.business.permissions.proxies.UserProxy;
+import com.amazonas.common.requests.TypedRequest;
+import com.amazonas.common.requests.notifications.NotificationRequest;
+import com.amazonas.common.requests.stores.GlobalSearchRequest;
+import com.amazonas.common.requests.stores.SearchInStoreRequest;
+import com.amazonas.common.utils.JsonUtils;
+import com.google.gson.reflect.TypeToken;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The endpoints of the typed API. Each one reads its {@link TypedRequest} in one pass, with the payload
+ * deserialized straight into its type, and hands the result object to the API to stream.
+ * <br/>
+ * These are the read endpoints the pages call the most, every other endpoint is served by the string API only.
+ */
+@Component("typedRoutes")
+public class TypedRoutes {
+
+    @FunctionalInterface
+    public interface Handler<P> {
+        Object handle(String userId, String token, P payload) throws Exception;
+    }
+
+    public record Route<P>(Type requestType, Handler<P> handler) {
+        public Object handle(Reader body) throws Exception {
+            TypedRequest<P> request = JsonUtils.deserialize(body, requestType);
+            if (request == null) {
+                throw new IllegalArgumentException("Empty request");
+            }
+            return handler.handle(request.userId(), request.token(), request.payload());
+        }
+    }
+
+    private final Map<String, Route<?>> routes;
+
+    public TypedRoutes(StoreProxy storeProxy,
+                       UserProxy userProxy,
+                       NotificationProxy notificationProxy,
+                       PermissionsProxy permissionsProxy) {
+        routes = new HashMap<>();
+
+        route("stores", "getstoredetails", String.class, (userId, token, storeId) -> storeProxy.getStoreDetails(storeId, userId, token));
+        route("stores", "getstoreproducts", String.class, (userId, token, storeId) -> storeProxy.getStoreProducts(storeId, userId, token));
+        route("stores", "getproduct", String.class, (userId, token, productId) -> storeProxy.getProduct(productId, userId, token));
+        route("stores", "searchproductsglobally", GlobalSearchRequest.class, (userId, token, request) -> storeProxy.searchProductsGlobally(request, userId, token));
+        route("stores", "searchproductsinstore", SearchInStoreRequest.class,
+                (userId, token, request) -> storeProxy.searchProductsInStore(request.storeId(), request.productSearchRequest(), userId, token));
+        route("stores", "getuserstores", Void.class, (userId, token, _) -> storeProxy.getUserStores(userId, token));
+
+        route("userprofiles", "viewcart", Void.class, (userId, token, _) -> userProxy.viewCart(userId, token).getSerializableInstance());
+
+        route("notifications", "getunreadnotifications", NotificationRequest.class,
+                (userId, token, request) -> notificationProxy.getUnreadNotifications(request.receiverId(), userId, token));
+        route("notifications", "getnotifications", NotificationRequest.class,
+                (userId, token, request) -> notificationProxy.getNotifications(request.receiverId(), request.limit(), request.offset(), userId, token));
+
+        route("permissions", "getuserpermissions", String.class, (userId, token, subject) -> permissionsProxy.getUserPermissions(userId, token, subject));
+        route("permissions", "getpermissionsmatrix", Long.class, (userId, token, knownVersion) -> permissionsProxy.getPermissionsMatrix(userId, token).revalidate(knownVersion));
+    }
+
+    /**
+     * @return the route of the endpoint, or null if the typed API does not serve it
+     */
+    public Route<?> get(String service, String endpoint) {
+        return routes.get(service + "/" + endpoint);
+    }
+
+    private <P> void route(String service, String endpoint, Class<P> payloadType, Handler<P> handler) {
+        Type requestType = TypeToken.getParameterized(TypedRequest.class, payloadType).getType();
+        routes.put(service + "/" + endpoint, new Route<>(requestType, handler));
+    }
+}
@@ -1,14 +1,15 @@
 package com.amazonas.backend.business.authentication;
 
+import com.amazonas.backend.exceptions.ThrottledException;
 import com.amazonas.backend.repository.UserCredentialsRepository;
 import com.amazonas.common.utils.Pair;
-import com.amazonas.common.utils.ReadWriteLock;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.MacAlgorithm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -16,12 +17,17 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class AuthenticationController implements UserDetailsManager, AuthenticationManager {
@@ -31,17 +37,36 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
     private final UserCredentialsRepository repository;
 
     private static final MacAlgorithm alg = Jwts.SIG.HS512;
-    private final Map<String, String> userIdToUUID;
-    private final PasswordEncoder encoder;
-    private final ReadWriteLock lock;
-    private SecretKey key;
+    // guests authenticate by id only, they are given credentials that no password matches instead of a hashed random password
+    private static final String GUEST_CREDENTIALS = "{guest}";
+    private static final int VERIFIED_TOKENS_CAPACITY = 100_000;
+    private static final int EVICTION_SCAN_LIMIT = 16;
+    private static final int HASHING_QUEUE_CAPACITY = 256;
+    private static final Duration HASHING_TIMEOUT = Duration.ofSeconds(5);
+    private static final int FREE_FAILED_LOGINS = 5;
+    private static final Duration FIRST_LOGIN_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_LOGIN_DELAY = Duration.ofMinutes(1);
+    private static final Duration FAILED_LOGINS_MEMORY = Duration.ofMinutes(15);
+    // the session of every logged-in user, a session of an older key generation is as good as revoked
+    private final Map<String, Session> sessions;
+    private final PasswordHasher hasher;
+    private final LoginThrottle loginThrottle;
+    // tokens whose signature was already verified, keyed by the SHA-256 digest of the token
+    private final Map<String, VerifiedToken> verifiedTokens;
+    private final AtomicLong keyGeneration;
+    private volatile SecretKey key;
 
     public AuthenticationController(UserCredentialsRepository userCredentialsRepository) {
         this.repository = userCredentialsRepository;
         key = Jwts.SIG.HS512.key().build();
-        userIdToUUID = new HashMap<>();
-        lock = new ReadWriteLock();
-        encoder = new BCryptPasswordEncoder();
+        sessions = new ConcurrentHashMap<>();
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(),
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                HASHING_QUEUE_CAPACITY,
+                HASHING_TIMEOUT);
+        loginThrottle = new LoginThrottle(FREE_FAILED_LOGINS, FIRST_LOGIN_DELAY, MAX_LOGIN_DELAY, FAILED_LOGINS_MEMORY);
+        verifiedTokens = new ConcurrentHashMap<>();
+        keyGeneration = new AtomicLong();
     }
 
     public AuthenticationResponse authenticateGuest(String userid){
@@ -55,19 +80,51 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
     }
 
     public AuthenticationResponse authenticateUser(String userId, String password) {
+        return authenticateUser(userId, password, null);
+    }
+
+    /**
+     * The failures of a user are counted per client address, so failing from one address never slows down
+     * the logins of the same user from another one. The address is also slowed down on its own,
+     * whichever users it tries.
+     * @param clientAddress the address of the client that logs in, null if unknown
+     * @return a failed response with a retry hint if the user or the address failed too many times lately,
+     * or if too many password checks are already in progress
+     */
+    public AuthenticationResponse authenticateUser(String userId, String password, String clientAddress) {
         userId = userId.toLowerCase();
         log.debug("Authenticating user {}", userId);
-        boolean answer = authenticate(userId, password);
+        String userKey = clientAddress == null ? "user:" + userId : "user:" + userId + "@" + clientAddress;
+        String addressKey = clientAddress == null ? null : "address:" + clientAddress;
+        Duration delayed = loginThrottle.retryAfter(userKey, addressKey);
+        if(delayed != null){
+            log.debug("Too many failed logins for user {}", userId);
+            return AuthenticationResponse.throttled(delayed);
+        }
+        boolean answer;
+        try{
+            answer = authenticate(userId, password);
+        } catch (ThrottledException e) {
+            log.debug("Password check for user {} was refused: {}", userId, e.getMessage());
+            return AuthenticationResponse.throttled(e.getRetryAfter());
+        }
+        if(answer){
+            loginThrottle.recordSuccess(userKey);
+        } else {
+            loginThrottle.recordFailure(userKey, addressKey);
+        }
         return new AuthenticationResponse(answer, answer ? getToken(userId) : null);
     }
 
+    public PasswordHasher.Snapshot getHashingMetrics() {
+        return hasher.snapshot();
+    }
+
     public boolean revokeAuthentication(String userId) {
         userId = userId.toLowerCase();
         log.debug("Revoking authentication for user {}", userId);
-        lock.acquireWrite();
-        String uuid = userIdToUUID.remove(userId);
-        lock.releaseWrite();
-        return uuid != null;
+        Session session = sessions.remove(userId);
+        return session != null && session.generation() == keyGeneration.get();
     }
 
     public boolean validateTokenOwnership(String userId, String token) {
@@ -75,14 +132,7 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
         log.debug("Validating token ownership for user {}", userId);
         boolean answer;
         try{
-            Pair<String,String> payload = extractPayload(token);
-            String userIdFromToken = payload.first();
-
-            log.trace("Checking if the UUID from the token matches the stored UUID for user {}", userId);
-            lock.acquireRead();
-            String uuid = userIdToUUID.get(userId);
-            lock.releaseRead();
-            answer = uuid != null && userId.equals(userIdFromToken);
+            answer = validatePrincipalOwnership(userId, verifyToken(token));
         } catch (Exception ignored) {
             answer = false;
         }
@@ -90,31 +140,46 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
         return answer;
     }
 
+    /**
+     * Same as {@link #validateTokenOwnership(String, String)} for a token that was already verified
+     * by {@link #resolveToken(String)}, the token is not parsed again
+     */
+    public boolean validatePrincipalOwnership(String userId, VerifiedToken principal) {
+        userId = userId.toLowerCase();
+        if(principal.generation() != keyGeneration.get()){
+            return false;
+        }
+        log.trace("Checking if the UUID from the token matches the stored UUID for user {}", userId);
+        String uuid = liveSession(userId);
+        return uuid != null && uuid.equals(principal.uuid()) && userId.equals(principal.userId());
+    }
+
     public boolean validateTokenAuthenticity(String token) {
-        boolean answer;
+        return resolveToken(token) != null;
+    }
+
+    /**
+     * @return the payload of the token if it is authentic and not revoked, null otherwise
+     */
+    public VerifiedToken resolveToken(String token) {
         try{
-            Pair<String,String> payload = extractPayload(token);
-            String userIdFromToken = payload.first();
-            String uuidFromToken = payload.second();
-            lock.acquireRead();
-            String UUIDFromDB = userIdToUUID.get(userIdFromToken);
-            lock.releaseRead();
-            answer = userExists(userIdFromToken) && UUIDFromDB != null && UUIDFromDB.equals(uuidFromToken);
+            VerifiedToken verified = verifyToken(token);
+            String UUIDFromDB = liveSession(verified.userId());
+            boolean answer = userExists(verified.userId()) && UUIDFromDB != null && UUIDFromDB.equals(verified.uuid());
+            return answer ? verified : null;
         } catch(Exception ignored) {
-            answer = false;
+            return null;
         }
-        return answer;
     }
 
     /**
-     * This operation logs out all users by resetting the secret key
+     * This operation logs out all users by resetting the secret key.
+     * The sessions are not cleared, moving to the next key generation makes all of them stale at once.
      */
     public void resetSecretKey() {
         log.debug("Resetting secret key");
-        lock.acquireWrite();
         key = Jwts.SIG.HS512.key().build();
-        userIdToUUID.clear();
-        lock.releaseWrite();
+        keyGeneration.incrementAndGet();
     }
 
     //================================================================================= |
@@ -125,7 +190,13 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         UserDetails userDetails = loadUserByUsername(authentication.getName());
         String credentials = (String) authentication.getCredentials();
-        if(authenticate(userDetails.getUsername().toLowerCase(),credentials)) {
+        boolean answer;
+        try{
+            answer = authenticate(userDetails.getUsername().toLowerCase(),credentials);
+        } catch (ThrottledException e) {
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        }
+        if(answer) {
             return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
         } else {
             throw new AccessDeniedException("Bad credentials");
@@ -137,10 +208,8 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
         if(userExists(userId)){
             throw new AccessDeniedException("userId already exists");
         }
-        String password = generatePassword();
         log.debug("Adding guest credentials for userId {}", userId);
-        String hashedPassword = encoder.encode(password);
-        repository.saveGuest(userId,hashedPassword);
+        repository.saveGuest(userId,GUEST_CREDENTIALS);
     }
 
     public void removeGuest(String userId){
@@ -163,7 +232,7 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
         }
 
         log.debug("Adding user credentials for user {}", username);
-        String hashedPassword = encoder.encode(user.getPassword());
+        String hashedPassword = hasher.encode(user.getPassword());
         repository.saveHashedPassword(username,hashedPassword);
     }
 
@@ -174,7 +243,7 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
             throw new UsernameNotFoundException("User not found");
         }
 
-        String hashedPassword = encoder.encode(user.getPassword());
+        String hashedPassword = hasher.encode(user.getPassword());
         repository.saveHashedPassword(username,hashedPassword);
     }
 
@@ -197,7 +266,7 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
             String username = currentUser.getName();                                            //TODO: add this when we have a mongodb
             UserCredentials currentUserFromDB = repository.findById(username);  //.orElseThrow(() -> new UsernameNotFoundException("User not found"));
             if(isPasswordsMatch(oldPassword, currentUserFromDB.getPassword())) {
-                String hashedPassword = encoder.encode(newPassword);
+                String hashedPassword = hasher.encode(newPassword);
                 UserCredentials updatedUser = new UserCredentials(username, hashedPassword);
                 repository.save(updatedUser);
             } else {
@@ -233,6 +302,10 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
             log.debug("User {} does not exist", userId);
             return false;
         }
+        if(GUEST_CREDENTIALS.equals(hashedPassword)) {
+            log.debug("User {} is a guest and has no password", userId);
+            return false;
+        }
         log.trace("User {} exists", userId);
 
         // check if the password is correct
@@ -246,7 +319,7 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
     }
 
     private boolean isPasswordsMatch(String password, String hashedPassword) {
-        return encoder.matches(password, hashedPassword);
+        return hasher.matches(password, hashedPassword);
     }
 
     private String generateJwt(String payload) {
@@ -265,12 +338,79 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
 
         //store the UUID and associate it with the user
         log.trace("Storing new UUID for user {}", userId);
-        lock.acquireWrite();
-        userIdToUUID.put(userId, uuid);
-        lock.releaseWrite();
+        sessions.put(userId, new Session(uuid, keyGeneration.get()));
         return generateJwt(payload);
     }
 
+    private String liveSession(String userId) {
+        Session session = sessions.get(userId);
+        if(session == null){
+            return null;
+        }
+        if(session.generation() != keyGeneration.get()){
+            // drop it only if it was not replaced by a new login meanwhile
+            sessions.remove(userId, session);
+            return null;
+        }
+        return session.uuid();
+    }
+
+    /**
+     * Parses and verifies the token once, later calls with the same token are answered from the cache.
+     * A revoked token stays in the cache, its uuid no longer matches the stored one.
+     * A token verified by a previous secret key is verified again, and fails.
+     */
+    private VerifiedToken verifyToken(String token) {
+        String digest = digest(token);
+        // read the generation before the key, a token verified by a key that was replaced meanwhile is stored as stale
+        long generation = keyGeneration.get();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if(cached != null && cached.generation() == generation){
+            return cached;
+        }
+        Pair<String,String> payload = extractPayload(token);
+        VerifiedToken verified = new VerifiedToken(payload.first(), payload.second(), generation);
+        if(verifiedTokens.size() >= VERIFIED_TOKENS_CAPACITY){
+            evictOneVerifiedToken();
+        }
+        verifiedTokens.put(digest, verified);
+        return verified;
+    }
+
+    /**
+     * Makes room for one token, the entries of an older key generation go first.
+     * Any other entry only costs its token one more verification.
+     */
+    private void evictOneVerifiedToken() {
+        long generation = keyGeneration.get();
+        String victim = null;
+        int scanned = 0;
+        for (Map.Entry<String, VerifiedToken> entry : verifiedTokens.entrySet()) {
+            if(entry.getValue().generation() != generation){
+                victim = entry.getKey();
+                break;
+            }
+            if(victim == null){
+                victim = entry.getKey();
+            }
+            if(++scanned >= EVICTION_SCAN_LIMIT){
+                break;
+            }
+        }
+        if(victim != null){
+            verifiedTokens.remove(victim);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     private Pair<String,String> extractPayload(String token) {
         String[] parts = new String(Jwts.parser()
                 .verifyWith(key)
@@ -293,4 +433,6 @@ public class AuthenticationController implements UserDetailsManager, Authenticat
         Collections.shuffle(chars);
         return chars.stream().map(String::valueOf).reduce("",String::concat);
     }
+
+    private record Session(String uuid, long generation) { }
 }
@@ -1,4 +1,17 @@
 package com.amazonas.backend.business.authentication;
 
-public record AuthenticationResponse(boolean success, String token) {
+import java.time.Duration;
+
+/**
+ * @param retryAfter set when the attempt was refused without checking the password, how long to wait before trying again
+ */
+public record AuthenticationResponse(boolean success, String token, Duration retryAfter) {
+
+    public AuthenticationResponse(boolean success, String token) {
+        this(success, token, null);
+    }
+
+    public static AuthenticationResponse throttled(Duration retryAfter) {
+        return new AuthenticationResponse(false, null, retryAfter);
+    }
 }
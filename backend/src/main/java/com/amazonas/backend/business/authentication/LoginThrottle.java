@@ -0,0 +1,77 @@
+package com.amazonas.backend.business.authentication;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the failed login attempts of every key and slows down the keys that keep failing.
+ * <br/>
+ * The first <code>freeFailures</code> failures cost nothing. After them every failure has to be followed by a wait,
+ * <code>firstDelay</code> after the first one and twice as long after every next one, up to <code>maxDelay</code>.
+ * A key is forgotten <code>memory</code> after its last failure, a successful login forgets it at once.
+ */
+public class LoginThrottle {
+
+    private static final int CLEANUP_THRESHOLD = 10_000;
+
+    private final int freeFailures;
+    private final long firstDelayNanos;
+    private final long maxDelayNanos;
+    private final long memoryNanos;
+    private final Map<String, Failures> failures;
+
+    public LoginThrottle(int freeFailures, Duration firstDelay, Duration maxDelay, Duration memory) {
+        this.freeFailures = freeFailures;
+        this.firstDelayNanos = firstDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.memoryNanos = memory.toNanos();
+        failures = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return how long to wait before the next attempt of the slowest of the keys, null if none of them has to wait
+     */
+    public Duration retryAfter(String... keys) {
+        long now = System.nanoTime();
+        long longest = 0;
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            Failures current = failures.get(key);
+            if (current == null || current.count() < freeFailures || now - current.lastFailure() >= memoryNanos) {
+                continue;
+            }
+            longest = Math.max(longest, delay(current.count()) - (now - current.lastFailure()));
+        }
+        return longest > 0 ? Duration.ofNanos(longest) : null;
+    }
+
+    public void recordFailure(String... keys) {
+        long now = System.nanoTime();
+        if (failures.size() >= CLEANUP_THRESHOLD) {
+            failures.values().removeIf(f -> now - f.lastFailure() >= memoryNanos);
+        }
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            failures.merge(key, new Failures(1, now), (old, _) -> now - old.lastFailure() >= memoryNanos
+                    ? new Failures(1, now)
+                    : new Failures(old.count() + 1, now));
+        }
+    }
+
+    public void recordSuccess(String key) {
+        failures.remove(key);
+    }
+
+    private long delay(int count) {
+        int doublings = Math.min(count - freeFailures, 30);
+        long delay = firstDelayNanos << doublings;
+        return delay < 0 || delay > maxDelayNanos ? maxDelayNanos : delay;
+    }
+
+    private record Failures(int count, long lastFailure) { }
+}
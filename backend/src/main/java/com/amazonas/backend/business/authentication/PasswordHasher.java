@@ -0,0 +1,136 @@
+package com.amazonas.backend.business.authentication;
+
+import com.amazonas.backend.exceptions.ThrottledException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the password hashing of the market on a small pool of its own, so a storm of logins or registrations
+ * occupies at most <code>threads</code> cores, and the request threads are left to cheap requests.
+ * <br/>
+ * At most <code>queueCapacity</code> hashes wait for a thread. A hash that does not fit, or that does not finish
+ * within <code>timeout</code>, fails fast with a {@link ThrottledException} that says when to retry.
+ */
+public class PasswordHasher {
+
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final PasswordEncoder encoder;
+    private final int threads;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed;
+    private final LongAdder rejected;
+    private final LongAdder totalQueueWaitNanos;
+    private final LongAdder totalHashNanos;
+    private final AtomicLong maxHashNanos;
+
+    public PasswordHasher(PasswordEncoder encoder, int threads, int queueCapacity, Duration timeout) {
+        this.encoder = encoder;
+        this.threads = threads;
+        this.timeout = timeout;
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hasher-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        completed = new LongAdder();
+        rejected = new LongAdder();
+        totalQueueWaitNanos = new LongAdder();
+        totalHashNanos = new LongAdder();
+        maxHashNanos = new AtomicLong();
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @return an estimate of how long it takes the queue in front of a new hash to drain
+     */
+    public Duration retryAfter() {
+        long done = completed.sum();
+        long meanHashNanos = done == 0 ? 0 : totalHashNanos.sum() / done;
+        Duration drain = Duration.ofNanos(meanHashNanos * (executor.getQueue().size() + 1) / threads);
+        return drain.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : drain;
+    }
+
+    public Snapshot snapshot() {
+        long done = completed.sum();
+        return new Snapshot(executor.getQueue().size(),
+                            executor.getActiveCount(),
+                            done,
+                            rejected.sum(),
+                            done == 0 ? 0 : totalQueueWaitNanos.sum() / 1_000_000.0 / done,
+                            done == 0 ? 0 : totalHashNanos.sum() / 1_000_000.0 / done,
+                            maxHashNanos.get() / 1_000_000.0);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private <T> T run(Callable<T> hash) {
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    long end = System.nanoTime();
+                    totalQueueWaitNanos.add(start - enqueued);
+                    totalHashNanos.add(end - start);
+                    maxHashNanos.accumulateAndGet(end - start, Math::max);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ThrottledException("Too many password checks in progress", retryAfter());
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new ThrottledException("Too many password checks in progress", retryAfter());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ThrottledException("Interrupted while waiting for a password check", retryAfter());
+        }
+    }
+
+    /**
+     * @param queueDepth the hashes waiting for a thread
+     * @param active the hashes running
+     * @param completed the hashes that ran
+     * @param rejected the hashes refused because the queue was full or they timed out
+     */
+    public record Snapshot(int queueDepth,
+                           int active,
+                           long completed,
+                           long rejected,
+                           double meanQueueWaitMillis,
+                           double meanHashMillis,
+                           double maxHashMillis) { }
+}
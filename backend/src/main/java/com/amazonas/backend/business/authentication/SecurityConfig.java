@@ -47,9 +47,23 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * The principal is the {@link VerifiedToken} the filter resolved and the credentials are the token,
+     * so the proxies do not parse the token again
+     */
     public static class JWTAuthentication extends UsernamePasswordAuthenticationToken {
-        public JWTAuthentication() {
-            super(null, null, null);
+        public JWTAuthentication(VerifiedToken principal, String token) {
+            super(principal, token, null);
+        }
+
+        @Override
+        public VerifiedToken getPrincipal() {
+            return (VerifiedToken) super.getPrincipal();
+        }
+
+        @Override
+        public String getCredentials() {
+            return (String) super.getCredentials();
         }
     }
 
@@ -60,8 +74,9 @@ public class SecurityConfig {
             if (token != null) {
                 if(token.startsWith("Bearer ")){
                     token = token.substring(7);
-                    if(authenticationController.validateTokenAuthenticity(token)){
-                        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication());
+                    VerifiedToken principal = authenticationController.resolveToken(token);
+                    if(principal != null){
+                        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(principal, token));
                     }
                 }
             }
@@ -0,0 +1,7 @@
+package com.amazonas.backend.business.authentication;
+
+/**
+ * The payload of a token whose signature was verified
+ * @param generation the generation of the secret key that verified the token, see {@link AuthenticationController#resetSecretKey()}
+ */
+public record VerifiedToken(String userId, String uuid, long generation) { }
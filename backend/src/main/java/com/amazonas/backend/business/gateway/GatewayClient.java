@@ -0,0 +1,199 @@
+package com.amazonas.backend.business.gateway;
+
+import com.amazonas.backend.ConfigurationValues;
+import com.amazonas.backend.exceptions.GatewayException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client of one external gateway (payment or shipping) that speaks the form-encoded 'action_type' protocol.
+ * <br/>
+ * All the clients share one JDK http client, which keeps its connections alive and pools them per host.
+ * Every call is bounded by the connect and read timeouts and goes through a circuit breaker,
+ * so a gateway that is down is answered with an immediate failure instead of holding a thread for the full timeout.
+ * A successful handshake is trusted for a while, so a payment or shipment costs one round trip instead of two.
+ */
+public class GatewayClient {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewayClient.class);
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_HANDSHAKE_TTL = Duration.ofSeconds(60);
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    // payment and shipping may be served at the same url, each of them still gets its own breaker and metrics
+    private record Key(String name, String url) {}
+
+    private static final Map<Key, GatewayClient> clients = new ConcurrentHashMap<>();
+    private static volatile HttpClient sharedHttpClient;
+
+    private final String name;
+    private final String url;
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final GatewayMetrics metrics;
+    private final long handshakeTtlNanos;
+    private volatile long handshakeValidUntil;
+
+    public GatewayClient(String name, String url, Duration readTimeout, Duration handshakeTtl, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.url = url;
+        this.circuitBreaker = circuitBreaker;
+        this.handshakeTtlNanos = handshakeTtl.toNanos();
+        this.metrics = new GatewayMetrics();
+        this.handshakeValidUntil = System.nanoTime();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient());
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * @return the client of the <code>name</code> gateway at <code>url</code>, shared by every service of that gateway
+     */
+    public static GatewayClient of(String name, String url) {
+        return clients.computeIfAbsent(new Key(name, url), _ -> new GatewayClient(name,
+                url,
+                durationProperty("GATEWAY_READ_TIMEOUT_MS", DEFAULT_READ_TIMEOUT),
+                durationProperty("GATEWAY_HANDSHAKE_TTL_MS", DEFAULT_HANDSHAKE_TTL),
+                new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION)));
+    }
+
+    /**
+     * @return the metrics of every client, by "name@url"
+     */
+    public static Map<String, GatewayMetrics.Snapshot> allMetrics() {
+        Map<String, GatewayMetrics.Snapshot> ret = new ConcurrentHashMap<>();
+        clients.values().forEach(client -> ret.put(client.name + "@" + client.url, client.metrics.snapshot()));
+        return Collections.unmodifiableMap(ret);
+    }
+
+    // =============================================================================== |
+    // ================================ CALLS ======================================== |
+    // =============================================================================== |
+
+    public boolean handshake() {
+        if (System.nanoTime() - handshakeValidUntil < 0) {
+            metrics.recordHandshakeSkipped();
+            return true;
+        }
+        try {
+            if ("OK".equals(post(form("handshake")))) {
+                handshakeValidUntil = System.nanoTime() + handshakeTtlNanos;
+                return true;
+            }
+        } catch (GatewayException e) {
+            log.error("Failed to handshake with {}: {}", name, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Posts the form and returns the body of the answer
+     * @throws GatewayException if the circuit is open, the call failed or timed out, or the answer is not 200 OK
+     */
+    public String post(MultiValueMap<String, String> formData) throws GatewayException {
+        if (!circuitBreaker.tryAcquire()) {
+            metrics.recordRejected();
+            throw new GatewayException("The " + name + " gateway is unavailable");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            if (response.getStatusCode() != HttpStatus.OK) {
+                throw new GatewayException("The " + name + " gateway answered " + response.getStatusCode());
+            }
+            success = true;
+            return response.getBody();
+        } catch (GatewayException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GatewayException("The " + name + " gateway call failed", e);
+        } finally {
+            metrics.recordCall(System.nanoTime() - start, success);
+            if (success) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+                // the next call has to prove again that the gateway is reachable
+                handshakeValidUntil = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Posts the form and parses the answer as an integer, as the 'pay', 'supply' and 'cancel' actions answer
+     * @return the parsed answer, or -1 if the call failed
+     */
+    public int postForInt(MultiValueMap<String, String> formData) {
+        try {
+            String body = post(formData);
+            if (body == null || body.isBlank()) {
+                log.error("The {} action on {} failed: the gateway answered with an empty body", formData.getFirst("action_type"), name);
+                return -1;
+            }
+            return Integer.parseInt(body.strip());
+        } catch (GatewayException | NumberFormatException e) {
+            log.error("The {} action on {} failed", formData.getFirst("action_type"), name, e);
+            return -1;
+        }
+    }
+
+    public static MultiValueMap<String, String> form(String actionType) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("action_type", actionType);
+        return formData;
+    }
+
+    public GatewayMetrics.Snapshot getMetrics() {
+        return metrics.snapshot();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private static HttpClient httpClient() {
+        if (sharedHttpClient == null) {
+            synchronized (GatewayClient.class) {
+                if (sharedHttpClient == null) {
+                    sharedHttpClient = HttpClient.newBuilder()
+                            .connectTimeout(durationProperty("GATEWAY_CONNECT_TIMEOUT_MS", DEFAULT_CONNECT_TIMEOUT))
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .build();
+                }
+            }
+        }
+        return sharedHttpClient;
+    }
+
+    private static Duration durationProperty(String property, Duration fallback) {
+        try {
+            String value = ConfigurationValues.getProperty(property);
+            return value == null ? fallback : Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (RuntimeException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.amazonas.backend.business.gateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the calls made to one external gateway
+ */
+public class GatewayMetrics {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder handshakesSkipped = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    void recordCall(long latencyNanos, boolean success) {
+        calls.increment();
+        if (!success) {
+            errors.increment();
+        }
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordHandshakeSkipped() {
+        handshakesSkipped.increment();
+    }
+
+    public Snapshot snapshot() {
+        long callCount = calls.sum();
+        return new Snapshot(callCount,
+                            errors.sum(),
+                            rejected.sum(),
+                            handshakesSkipped.sum(),
+                            callCount == 0 ? 0 : totalLatencyNanos.sum() / 1_000_000.0 / callCount,
+                            maxLatencyNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * @param calls the calls that reached the network
+     * @param errors the calls that failed or timed out
+     * @param rejected the calls refused by the open circuit breaker
+     * @param handshakesSkipped the handshakes answered from the cache
+     */
+    public record Snapshot(long calls, long errors, long rejected, long handshakesSkipped, double meanLatencyMillis, double maxLatencyMillis) { }
+}
@@ -0,0 +1,206 @@
+package com.amazonas.backend.business.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the external payment and shipping gateway, for load tests that must not leave the machine.
+ * <br/>
+ * It speaks the same form-encoded protocol: 'handshake' answers OK, 'pay' and 'supply' answer a transaction id,
+ * and 'cancel_pay' and 'cancel_supply' answer 1. A refused 'pay' or 'supply' answers -1.
+ * <br/>
+ * The n-th request is decided only by the seed and n, so a run that sends the same requests in the same order
+ * sees the same latencies, refusals and outages.
+ */
+public class GatewaySimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewaySimulator.class);
+
+    /**
+     * @param minLatencyMillis the latency every request pays
+     * @param meanExtraLatencyMillis the mean of an exponentially distributed latency added on top of the minimum
+     * @param errorRate the probability that a 'pay' or 'supply' is refused
+     * @param burstEvery the number of requests between the starts of two outages, 0 for no outages
+     * @param burstLength the number of requests in every outage, they are answered with 503
+     * @param seed the seed of the random decisions
+     */
+    public record Settings(long minLatencyMillis,
+                           double meanExtraLatencyMillis,
+                           double errorRate,
+                           long burstEvery,
+                           long burstLength,
+                           long seed) {
+
+        public Settings {
+            if (minLatencyMillis < 0 || meanExtraLatencyMillis < 0) {
+                throw new IllegalArgumentException("Latency must not be negative");
+            }
+            if (errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("Error rate must be between 0 and 1");
+            }
+            if (burstEvery < 0 || burstLength < 0 || (burstEvery > 0 && burstLength > burstEvery)) {
+                throw new IllegalArgumentException("Outages must fit between their starts");
+            }
+        }
+
+        public static Settings instant() {
+            return new Settings(0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private final Settings settings;
+    private final AtomicLong requestCounter;
+    private final AtomicLong transactionIds;
+    private final Map<String, LongAdder> requests;
+    private final LongAdder refused;
+    private final LongAdder unavailable;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public GatewaySimulator(Settings settings) {
+        this.settings = settings;
+        requestCounter = new AtomicLong();
+        transactionIds = new AtomicLong(10_000);
+        requests = new ConcurrentHashMap<>();
+        refused = new LongAdder();
+        unavailable = new LongAdder();
+    }
+
+    /**
+     * Starts listening on the loopback interface
+     * @param port the port to listen on, 0 for any free port
+     * @return the url of the simulator
+     */
+    public synchronized String start(int port) throws IOException {
+        if (server != null) {
+            return url();
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::answer);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Gateway simulator listening on {} with {}", url(), settings);
+        return url();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public synchronized String url() {
+        if (server == null) {
+            throw new IllegalStateException("The gateway simulator is not running");
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> ret = new HashMap<>();
+        requests.forEach((action, count) -> ret.put(action, count.sum()));
+        return ret;
+    }
+
+    public long getRefusedCount() {
+        return refused.sum();
+    }
+
+    public long getUnavailableCount() {
+        return unavailable.sum();
+    }
+
+    // =============================================================================== |
+    // ================================ PROTOCOL ===================================== |
+    // =============================================================================== |
+
+    private void answer(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String action = actionType(exchange);
+            requests.computeIfAbsent(action, _ -> new LongAdder()).increment();
+
+            long n = requestCounter.getAndIncrement();
+            SplittableRandom random = new SplittableRandom(settings.seed() ^ (n * 0x9E3779B97F4A7C15L));
+            sleep(latencyMillis(random));
+
+            if (inBurst(n)) {
+                unavailable.increment();
+                respond(exchange, 503, "");
+                return;
+            }
+            switch (action) {
+                case "handshake" -> respond(exchange, 200, "OK");
+                case "pay", "supply" -> {
+                    if (random.nextDouble() < settings.errorRate()) {
+                        refused.increment();
+                        respond(exchange, 200, "-1");
+                    } else {
+                        respond(exchange, 200, String.valueOf(transactionIds.getAndIncrement()));
+                    }
+                }
+                case "cancel_pay", "cancel_supply" -> respond(exchange, 200, "1");
+                default -> respond(exchange, 400, "");
+            }
+        }
+    }
+
+    long latencyMillis(SplittableRandom random) {
+        double extra = settings.meanExtraLatencyMillis() == 0 ? 0 : -Math.log(1 - random.nextDouble()) * settings.meanExtraLatencyMillis();
+        return settings.minLatencyMillis() + Math.round(extra);
+    }
+
+    boolean inBurst(long n) {
+        return settings.burstEvery() > 0 && n % settings.burstEvery() >= settings.burstEvery() - settings.burstLength();
+    }
+
+    private static String actionType(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && "action_type".equals(pair.substring(0, eq))) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
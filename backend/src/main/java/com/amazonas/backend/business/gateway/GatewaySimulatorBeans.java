@@ -0,0 +1,55 @@
+package com.amazonas.backend.business.gateway;
+
+import com.amazonas.backend.ConfigurationValues;
+import com.amazonas.backend.business.payment.PaymentService;
+import com.amazonas.backend.business.shipping.ShippingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/**
+ * Replaces the external payment and shipping gateway with a local {@link GatewaySimulator}
+ * when the application runs with the 'gateway-sim' profile.
+ * The simulator is configured in application-gateway-sim.properties.
+ */
+@Configuration
+@Profile("gateway-sim")
+public class GatewaySimulatorBeans {
+
+    @Bean(destroyMethod = "stop")
+    public GatewaySimulator gatewaySimulator(@Value("${gateway.simulator.port:0}") int port,
+                                             @Value("${gateway.simulator.min-latency-ms:0}") long minLatencyMillis,
+                                             @Value("${gateway.simulator.mean-extra-latency-ms:0}") double meanExtraLatencyMillis,
+                                             @Value("${gateway.simulator.error-rate:0}") double errorRate,
+                                             @Value("${gateway.simulator.burst-every:0}") long burstEvery,
+                                             @Value("${gateway.simulator.burst-length:0}") long burstLength,
+                                             @Value("${gateway.simulator.seed:0}") long seed) throws IOException {
+        GatewaySimulator simulator = new GatewaySimulator(new GatewaySimulator.Settings(minLatencyMillis,
+                meanExtraLatencyMillis,
+                errorRate,
+                burstEvery,
+                burstLength,
+                seed));
+        String url = simulator.start(port);
+        // services created with 'new' anywhere in the application read these
+        ConfigurationValues.override("PAYMENT_SERVICE_URL", url);
+        ConfigurationValues.override("SHIPPING_SERVICE_URL", url);
+        return simulator;
+    }
+
+    @Bean
+    @Primary
+    public PaymentService simulatedPaymentService(GatewaySimulator gatewaySimulator) {
+        return new PaymentService(gatewaySimulator.url());
+    }
+
+    @Bean
+    @Primary
+    public ShippingService simulatedShippingService(GatewaySimulator gatewaySimulator) {
+        return new ShippingService(gatewaySimulator.url());
+    }
+}
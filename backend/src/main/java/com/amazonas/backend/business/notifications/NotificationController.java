@@ -7,6 +7,8 @@ import com.amazonas.common.dtos.Notification;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,6 +37,21 @@ public class NotificationController {
         repo.insert(notification);
     }
 
+    /**
+     * Sends the notifications whose receiver exists, with one insert into the repository
+     * @return the number of notifications that were sent
+     */
+    public int sendNotifications(Collection<Notification> notifications) {
+        List<Notification> valid = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            if(userRepository.userIdExists(notification.receiverId())){
+                valid.add(notification);
+            }
+        }
+        repo.insertAll(valid);
+        return valid.size();
+    }
+
     public void setReadValue(String notificationId, boolean read) throws NotificationException {
         Notification notification = repo.findById(notificationId);
         if(notification == null){
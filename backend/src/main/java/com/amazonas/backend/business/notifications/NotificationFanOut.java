@@ -0,0 +1,118 @@
+package com.amazonas.backend.business.notifications;
+
+import com.amazonas.backend.business.stores.Store;
+import com.amazonas.backend.repository.StoreRepository;
+import com.amazonas.common.dtos.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expands store events into one notification per owner, away from the thread that published the event.
+ * <br/>
+ * Events are queued and drained by a single worker. Every drained batch of events is expanded
+ * with the cached owner lists of the stores and inserted into the notification repository at once.
+ */
+@Component("notificationFanOut")
+public class NotificationFanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationFanOut.class);
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 256;
+    private static final String SENDER_ID = "Amazonas";
+
+    private final StoreRepository storeRepository;
+    private final NotificationController notificationController;
+    private final BlockingQueue<StoreEvent> events;
+    private final ExecutorService worker;
+    private final AtomicBoolean draining;
+    private final LongAdder sent;
+
+    public NotificationFanOut(StoreRepository storeRepository, NotificationController notificationController) {
+        this.storeRepository = storeRepository;
+        this.notificationController = notificationController;
+        events = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        worker = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("notification-fan-out").daemon(true).factory());
+        draining = new AtomicBoolean(false);
+        sent = new LongAdder();
+    }
+
+    /**
+     * Queues the event to be sent to the owners of its store
+     * @return false if the queue is full and the event was not accepted
+     */
+    public boolean publish(StoreEvent event) {
+        if(!events.offer(event)){
+            log.warn("Notification queue is full, rejected an event of store {}", event.storeId());
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    public int getQueueSize() {
+        return events.size();
+    }
+
+    /**
+     * @return the number of notifications sent since startup
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<StoreEvent> batch = new ArrayList<>(BATCH_SIZE);
+            events.drainTo(batch, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                draining.set(false);
+                // an event may have been queued after the queue was seen empty
+                if (events.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                sent.add(notificationController.sendNotifications(expand(batch)));
+            } catch (RuntimeException e) {
+                log.error("Failed to send the notifications of {} store events", batch.size(), e);
+            }
+        }
+    }
+
+    private List<Notification> expand(List<StoreEvent> batch) {
+        List<Notification> ret = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StoreEvent event : batch) {
+            Store store = storeRepository.getStore(event.storeId());
+            if(store == null){
+                log.error("Failed to notify the owners of store {}, the store does not exist", event.storeId());
+                continue;
+            }
+            for (String ownerId : store.getOwners()) {
+                ret.add(new Notification(UUID.randomUUID().toString(), event.title(), event.message(), now, SENDER_ID, ownerId));
+            }
+        }
+        return ret;
+    }
+}
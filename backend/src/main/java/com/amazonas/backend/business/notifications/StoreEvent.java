@@ -0,0 +1,6 @@
+package com.amazonas.backend.business.notifications;
+
+/**
+ * Something that happened in a store and that all of its owners should hear about
+ */
+public record StoreEvent(String storeId, String title, String message) { }
@@ -0,0 +1,16 @@
+package com.amazonas.backend.business.outbox;
+
+import com.amazonas.backend.exceptions.OutboxException;
+
+/**
+ * Delivers the outbox messages of one type.
+ * <br/>
+ * Delivery is at-least-once: a message is handed again if the previous attempt failed,
+ * so handling the same message twice must be harmless.
+ */
+public interface OutboxHandler {
+
+    String type();
+
+    void handle(OutboxMessage message) throws OutboxException;
+}
@@ -0,0 +1,32 @@
+package com.amazonas.backend.business.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * A side effect that has to happen after a state change was committed
+ * @param sequence the position of the message in the outbox, assigned when it is appended
+ * @param type selects the {@link OutboxHandler} that delivers the message
+ * @param key the id of the entity the message is about
+ * @param payload handler specific data
+ * @param failedAttempts the number of deliveries that failed so far
+ * @param nextAttemptAt the relay does not try to deliver the message before this time, null if it never failed
+ */
+public record OutboxMessage(long sequence, String type, String key, String payload, LocalDateTime createdAt,
+                            int failedAttempts, LocalDateTime nextAttemptAt) {
+
+    public static OutboxMessage of(String type, String key, String payload) {
+        return new OutboxMessage(-1, type, key, payload, LocalDateTime.now(), 0, null);
+    }
+
+    public OutboxMessage withSequence(long sequence) {
+        return new OutboxMessage(sequence, type, key, payload, createdAt, failedAttempts, nextAttemptAt);
+    }
+
+    public OutboxMessage withFailedAttempt(LocalDateTime nextAttemptAt) {
+        return new OutboxMessage(sequence, type, key, payload, createdAt, failedAttempts + 1, nextAttemptAt);
+    }
+
+    public boolean isDue(LocalDateTime now) {
+        return nextAttemptAt == null || !now.isBefore(nextAttemptAt);
+    }
+}
@@ -0,0 +1,137 @@
+package com.amazonas.backend.business.outbox;
+
+import com.amazonas.backend.exceptions.OutboxException;
+import com.amazonas.backend.repository.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox in the background and hands every message to the handler of its type.
+ * <br/>
+ * A message is marked as delivered only after its handler returned, so a failed or interrupted delivery
+ * is retried on a later pass. A failed message waits {@link #FIRST_RETRY_DELAY} before its next attempt and twice
+ * as long after every next failure, up to {@link #MAX_RETRY_DELAY}, so an outage of the handler does not burn
+ * through its attempts. A message that still fails {@link #GIVE_UP_AFTER} after it was created is moved aside.
+ */
+@Component("outboxRelay")
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofMillis(200);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+    private static final Duration GIVE_UP_AFTER = Duration.ofHours(1);
+
+    private final OutboxRepository outboxRepository;
+    private final Map<String, OutboxHandler> handlers;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    public OutboxRelay(OutboxRepository outboxRepository, List<OutboxHandler> handlers) {
+        this(outboxRepository, handlers, Clock.systemDefaultZone());
+    }
+
+    OutboxRelay(OutboxRepository outboxRepository, List<OutboxHandler> handlers, Clock clock) {
+        this.outboxRepository = outboxRepository;
+        this.handlers = new HashMap<>();
+        handlers.forEach(handler -> this.handlers.put(handler.type(), handler));
+        this.clock = clock;
+    }
+
+    @EventListener
+    public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        start();
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("outbox-relay").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(this::relaySafely, 0, POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Makes one pass over the pending messages, skipping the ones that wait for their next attempt
+     * @return the number of delivered messages
+     */
+    public synchronized int relay() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int delivered = 0;
+        long cursor = -1;
+        List<OutboxMessage> batch;
+        while (!(batch = outboxRepository.nextPending(cursor, BATCH_SIZE)).isEmpty()) {
+            List<Long> done = new ArrayList<>(batch.size());
+            for (OutboxMessage message : batch) {
+                if (message.isDue(now) && deliver(message, now)) {
+                    done.add(message.sequence());
+                }
+            }
+            outboxRepository.markDelivered(done);
+            delivered += done.size();
+            cursor = batch.getLast().sequence();
+        }
+        return delivered;
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private boolean deliver(OutboxMessage message, LocalDateTime now) {
+        OutboxHandler handler = handlers.get(message.type());
+        try {
+            if (handler == null) {
+                throw new OutboxException("No handler for outbox messages of type " + message.type());
+            }
+            handler.handle(message);
+            return true;
+        } catch (OutboxException | RuntimeException e) {
+            int attempts = message.failedAttempts() + 1;
+            if (!now.isBefore(message.createdAt().plus(GIVE_UP_AFTER))) {
+                log.error("Giving up on outbox message {} of type {} after {} attempts", message.sequence(), message.type(), attempts, e);
+                outboxRepository.markDead(message.sequence());
+            } else {
+                OutboxMessage failed = message.withFailedAttempt(now.plus(retryDelay(attempts)));
+                outboxRepository.markFailed(failed);
+                log.warn("Failed to deliver outbox message {} of type {}, retrying at {}: {}",
+                        message.sequence(), message.type(), failed.nextAttemptAt(), e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private static Duration retryDelay(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        long delay = FIRST_RETRY_DELAY.toMillis() << doublings;
+        return Duration.ofMillis(Math.min(delay, MAX_RETRY_DELAY.toMillis()));
+    }
+
+    private void relaySafely() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.error("Outbox relay pass failed", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.amazonas.backend.business.outbox;
+
+import com.amazonas.backend.business.notifications.NotificationFanOut;
+import com.amazonas.backend.business.notifications.StoreEvent;
+import com.amazonas.backend.business.stores.Store;
+import com.amazonas.backend.exceptions.OutboxException;
+import com.amazonas.backend.repository.StoreRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the owners of a store about a new transaction in it.
+ * The key of the message is the transaction id and the payload is the store id.
+ */
+@Component
+public class OwnerNotificationHandler implements OutboxHandler {
+
+    public static final String TYPE = "transaction.notify-owners";
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerNotificationHandler.class);
+
+    private final StoreRepository storeRepository;
+    private final NotificationFanOut notificationFanOut;
+
+    public OwnerNotificationHandler(StoreRepository storeRepository, NotificationFanOut notificationFanOut) {
+        this.storeRepository = storeRepository;
+        this.notificationFanOut = notificationFanOut;
+    }
+
+    public static OutboxMessage message(String transactionId, String storeId) {
+        return OutboxMessage.of(TYPE, transactionId, storeId);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws OutboxException {
+        Store store = storeRepository.getStore(message.payload());
+        if(store == null){
+            // the purchase is already paid and documented, a missing store only means nobody to notify
+            log.error("Failed to notify the owners of store {} about transaction {}", message.payload(), message.key());
+            return;
+        }
+        StoreEvent event = new StoreEvent(message.payload(),
+                "New transactionId in your store: "+store.getStoreName(),
+                "Transaction id: "+message.key());
+        if(!notificationFanOut.publish(event)){
+            throw new OutboxException("The notification queue is full");
+        }
+    }
+}
@@ -6,9 +6,9 @@ import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 import com.amazonas.common.permissions.profiles.AdminPermissionsProfile;
 import com.amazonas.common.permissions.profiles.DefaultPermissionsProfile;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.common.permissions.profiles.UserPermissionsProfile;
-import com.amazonas.common.utils.ReadWriteLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
@@ -23,7 +23,6 @@ public class PermissionsController {
     private final DefaultPermissionsProfile defaultProfile;
     private final DefaultPermissionsProfile guestProfile;
     private final AdminPermissionsProfile adminProfile;
-    private final ReadWriteLock lock;
     private final PermissionsProfileRepository repository;
 
     public PermissionsController(DefaultPermissionsProfile defaultRegisteredUserPermissionsProfile,
@@ -34,7 +33,6 @@ public class PermissionsController {
         guestProfile = guestPermissionsProfile;
         this.adminProfile = adminPermissionsProfile;
         this.repository = permissionsProfileRepository;
-        lock = new ReadWriteLock();
     }
 
     //TODO: fix this when we have a database
@@ -87,27 +85,15 @@ public class PermissionsController {
     }
 
     public boolean checkPermission(String userId, UserActions action) {
-        log.debug("Checking action {} for user {}", action, userId);
-        PermissionsProfile profile = getPermissionsProfile(userId);
-        boolean result = profile.hasPermission(action);
-        log.debug("action is {}", result? "granted" : "denied");
-        return result;
+        return getPermissionsProfile(userId).hasPermission(action);
     }
 
     public boolean checkPermission(String userId, String storeId, StoreActions action) {
-        log.debug("Checking action {} for user {} for store {}", action, userId, storeId);
-        PermissionsProfile profile = getPermissionsProfile(userId);
-        boolean result = profile.hasPermission(storeId, action);
-        log.debug("action is {}", result? "granted" : "denied");
-        return result;
+        return getPermissionsProfile(userId).hasPermission(storeId, action);
     }
 
     public boolean checkPermission(String userId, MarketActions action) {
-        log.debug("Checking action {} for user {}", action, userId);
-        PermissionsProfile profile = getPermissionsProfile(userId);
-        boolean result = profile.hasPermission(action);
-        log.debug("action is {}", result? "granted" : "denied");
-        return result;
+        return getPermissionsProfile(userId).hasPermission(action);
     }
 
     public void registerUser(String userId) {
@@ -145,34 +131,23 @@ public class PermissionsController {
     }
 
     private void registerUser(String userId, PermissionsProfile profile , String failMessage) {
-        try{
-            lock.acquireWrite();
-            repository.addUser(userId, profile);
-        } finally{
-            lock.releaseWrite();
-        }
+        repository.addUser(userId, profile);
     }
 
     private void removeUser(String userId, String failMessage) {
-        try{
-            lock.acquireWrite();
-            var removed = repository.removeUser(userId);
-
-            if(removed == null) {
-                log.error(failMessage);
-                throw new IllegalArgumentException(failMessage);
-            }
-        } finally {
-            lock.releaseWrite();
+        var removed = repository.removeUser(userId);
+        if(removed == null) {
+            log.error(failMessage);
+            throw new IllegalArgumentException(failMessage);
         }
     }
 
+    /**
+     * Called on every permission check, it does not lock and does not log unless the user is unknown
+     */
     @NonNull
     public PermissionsProfile getPermissionsProfile(String userId) {
-        log.trace("Fetching permissions profile for user {}", userId);
-        lock.acquireRead();
         PermissionsProfile profile = repository.getPermissionsProfile(userId);
-        lock.releaseRead();
         if(profile == null) {
             log.error("User not registered");
             throw new IllegalArgumentException("User not registered");
@@ -180,6 +155,10 @@ public class PermissionsController {
         return profile;
     }
 
+    public PermissionsMatrix getPermissionsMatrix(String userId) {
+        return getPermissionsProfile(userId).getPermissionsMatrix();
+    }
+
     public PermissionsProfile getGuestPermissionsProfile() {
         return guestProfile;
     }
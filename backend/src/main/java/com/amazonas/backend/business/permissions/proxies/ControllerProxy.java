@@ -1,14 +1,14 @@
 package com.amazonas.backend.business.permissions.proxies;
 
 import com.amazonas.backend.business.authentication.AuthenticationController;
+import com.amazonas.backend.business.authentication.SecurityConfig.JWTAuthentication;
 import com.amazonas.backend.business.permissions.PermissionsController;
 import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
 import com.amazonas.backend.exceptions.NoPermissionException;
-
-import java.util.function.Function;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 public abstract class ControllerProxy {
 
@@ -21,25 +21,29 @@ public abstract class ControllerProxy {
     }
 
     protected void authenticateToken(String userId, String token) throws AuthenticationFailedException {
-        if (! auth.validateTokenOwnership(userId,token)) {
+        // reuse the token the request filter already verified
+        boolean valid = SecurityContextHolder.getContext().getAuthentication() instanceof JWTAuthentication jwt && jwt.getCredentials().equals(token)
+                ? auth.validatePrincipalOwnership(userId, jwt.getPrincipal())
+                : auth.validateTokenOwnership(userId, token);
+        if (! valid) {
             throw new AuthenticationFailedException("Failed to validate authenticity of the user");
         }
     }
 
     protected void checkPermission(String userId, UserActions action) throws NoPermissionException {
-        checkPermission(_ -> perm.checkPermission(userId, action));
+        checkPermission(perm.checkPermission(userId, action));
     }
 
     protected void checkPermission(String userId, MarketActions action) throws NoPermissionException {
-        checkPermission(_ -> perm.checkPermission(userId, action));
+        checkPermission(perm.checkPermission(userId, action));
     }
 
     protected void checkPermission(String userId, String storeId, StoreActions action) throws NoPermissionException {
-        checkPermission(_ -> perm.checkPermission(userId, storeId, action));
+        checkPermission(perm.checkPermission(userId, storeId, action));
     }
 
-    private void checkPermission(Function<Void,Boolean> test) throws NoPermissionException {
-        if (! test.apply(null)) {
+    private void checkPermission(boolean granted) throws NoPermissionException {
+        if (! granted) {
             throw new NoPermissionException("User does not have permission to perform this action");
         }
     }
@@ -1,6 +1,8 @@
 package com.amazonas.backend.business.permissions.proxies;
 
 import com.amazonas.backend.business.authentication.AuthenticationController;
+import com.amazonas.backend.business.gateway.GatewayClient;
+import com.amazonas.backend.business.gateway.GatewayMetrics;
 import com.amazonas.backend.business.payment.PaymentService;
 import com.amazonas.backend.business.payment.PaymentServiceController;
 import com.amazonas.backend.business.permissions.PermissionsController;
@@ -10,8 +12,11 @@ import com.amazonas.backend.business.shipping.ShippingService;
 import com.amazonas.backend.business.shipping.ShippingServiceController;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
 import com.amazonas.backend.exceptions.NoPermissionException;
+import com.amazonas.backend.exceptions.StoreException;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 @Component("externalServicesProxy")
 public class ExternalServicesProxy extends ControllerProxy {
 
@@ -30,6 +35,12 @@ public class ExternalServicesProxy extends ControllerProxy {
         return shippingServiceController.sendShipment(transactionId, serviceId);
     }
 
+    public int dispatchPendingShipments(String serviceId, String storeId, String userId, String token) throws NoPermissionException, AuthenticationFailedException, StoreException {
+        authenticateToken(userId, token);
+        checkPermission(userId, storeId, StoreActions.SEND_SHIPMENT);
+        return shippingServiceController.dispatchPendingShipments(storeId, serviceId);
+    }
+
     public void addShippingService(String serviceId, ShippingService shippingService, String userId, String token) throws NoPermissionException, AuthenticationFailedException {
         authenticateToken(userId, token);
         checkPermission(userId, MarketActions.ADD_SHIPPING_SERVICE);
@@ -60,6 +71,13 @@ public class ExternalServicesProxy extends ControllerProxy {
         paymentServiceController.removePaymentService(serviceId);
     }
 
+    public Map<String, GatewayMetrics.Snapshot> getGatewayMetrics(String userId, String token) throws NoPermissionException, AuthenticationFailedException {
+        authenticateToken(userId, token);
+        checkPermission(userId, MarketActions.UPDATE_PAYMENT_SERVICE);
+        checkPermission(userId, MarketActions.UPDATE_SHIPPING_SERVICE);
+        return GatewayClient.allMetrics();
+    }
+
     public void updatePaymentService(String serviceId, PaymentService paymentService, String userId, String token) throws NoPermissionException, AuthenticationFailedException {
         authenticateToken(userId, token);
         checkPermission(userId, MarketActions.UPDATE_PAYMENT_SERVICE);
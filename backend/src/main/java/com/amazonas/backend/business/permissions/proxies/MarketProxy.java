@@ -1,6 +1,7 @@
 package com.amazonas.backend.business.permissions.proxies;
 
 import com.amazonas.backend.business.authentication.AuthenticationController;
+import com.amazonas.backend.business.authentication.PasswordHasher;
 import com.amazonas.backend.business.market.MarketInitializer;
 import com.amazonas.backend.business.permissions.PermissionsController;
 import com.amazonas.common.permissions.actions.MarketActions;
@@ -12,10 +13,12 @@ import org.springframework.stereotype.Component;
 public class MarketProxy extends ControllerProxy {
 
     private final MarketInitializer real;
+    private final AuthenticationController auth;
 
     public MarketProxy(MarketInitializer marketInitializer, PermissionsController perm, AuthenticationController auth) {
         super(perm,auth);
         this.real = marketInitializer;
+        this.auth = auth;
     }
     public void start(String userId, String token) throws AuthenticationFailedException, NoPermissionException {
         authenticateToken(userId, token);
@@ -27,4 +30,10 @@ public class MarketProxy extends ControllerProxy {
         authenticateToken(userId, token);
         checkPermission(userId, MarketActions.SHUTDOWN_MARKET);
     }
+
+    public PasswordHasher.Snapshot getHashingMetrics(String userId, String token) throws AuthenticationFailedException, NoPermissionException {
+        authenticateToken(userId, token);
+        checkPermission(userId, MarketActions.SHUTDOWN_MARKET);
+        return auth.getHashingMetrics();
+    }
 }
@@ -2,6 +2,7 @@ package com.amazonas.backend.business.permissions.proxies;
 
 import com.amazonas.backend.business.authentication.AuthenticationController;
 import com.amazonas.backend.business.permissions.PermissionsController;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
 import org.springframework.stereotype.Component;
@@ -26,6 +27,11 @@ public class PermissionsProxy extends ControllerProxy{
         return real.getGuestPermissionsProfile();
     }
 
+    public PermissionsMatrix getPermissionsMatrix(String userId, String token) throws AuthenticationFailedException, IllegalArgumentException {
+        authenticateToken(userId, token);
+        return real.getPermissionsMatrix(userId);
+    }
+
     public boolean isAdmin(String userId, String token) throws AuthenticationFailedException {
         authenticateToken(userId, token);
         return real.isAdmin(userId);
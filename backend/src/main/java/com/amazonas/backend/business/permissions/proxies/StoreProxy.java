@@ -5,6 +5,8 @@ import com.amazonas.backend.business.permissions.PermissionsController;
 import com.amazonas.common.exceptions.DiscountPolicyException;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.common.PurchaseRuleDTO.PurchaseRuleDTO;
+import com.amazonas.common.dtos.DiscountSimulationResult;
+import com.amazonas.common.dtos.StoreAppointment;
 import com.amazonas.common.dtos.StoreDetails;
 import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.permissions.actions.StoreActions;
@@ -158,6 +160,11 @@ public class StoreProxy extends ControllerProxy {
         return real.getStoreRolesInformation(storeId);
     }
 
+    public List<StoreAppointment> getUserStores(String userId, String token) throws AuthenticationFailedException {
+        authenticateToken(userId, token);
+        return real.getUserStores(userId);
+    }
+
     public List<Transaction> getStoreTransactionHistory(String storeId, String userId, String token) throws NoPermissionException, AuthenticationFailedException {
         authenticateToken(userId, token);
         checkPermission(userId,storeId, StoreActions.VIEW_STORE_TRANSACTIONS);
@@ -195,6 +202,20 @@ public class StoreProxy extends ControllerProxy {
         return real.addDiscountRuleByDTO(storeId, dto);
     }
 
+    public DiscountSimulationResult simulateDiscountRuleByCFG(String storeId, String cfg, String userId, String token) throws StoreException, DiscountPolicyException, AuthenticationFailedException, NoPermissionException {
+        authenticateToken(userId, token);
+        checkPermission(userId,storeId, StoreActions.EDIT_DISCOUNT);
+        checkPermission(userId,storeId, StoreActions.VIEW_STORE_TRANSACTIONS);
+        return real.simulateDiscountRuleByCFG(storeId, cfg);
+    }
+
+    public DiscountSimulationResult simulateDiscountRuleByDTO(String storeId, DiscountComponentDTO dto, String userId, String token) throws StoreException, AuthenticationFailedException, NoPermissionException {
+        authenticateToken(userId, token);
+        checkPermission(userId,storeId, StoreActions.EDIT_DISCOUNT);
+        checkPermission(userId,storeId, StoreActions.VIEW_STORE_TRANSACTIONS);
+        return real.simulateDiscountRuleByDTO(storeId, dto);
+    }
+
     public DiscountComponentDTO getDiscountRuleDTO(String storeId, String userId, String token) throws StoreException, AuthenticationFailedException, NoPermissionException {
         authenticateToken(userId, token);
         checkPermission(userId,MarketActions.VIEW_STORES);
@@ -71,15 +71,23 @@ public class UserProxy extends ControllerProxy {
     }
 
     public void startPurchase(String userId, String token) throws PurchaseFailedException, NoPermissionException, AuthenticationFailedException, UserException {
+        startPurchase(userId, token, null);
+    }
+
+    public void startPurchase(String userId, String token, String idempotencyKey) throws PurchaseFailedException, NoPermissionException, AuthenticationFailedException, UserException {
         authenticateToken(userId, token);
         checkPermission(userId, UserActions.START_PURCHASE);
-        real.startPurchase(userId);
+        real.startPurchase(userId, idempotencyKey);
     }
 
     public void payForPurchase(String userId, String token) throws PurchaseFailedException, NoPermissionException, AuthenticationFailedException, UserException {
+        payForPurchase(userId, token, null);
+    }
+
+    public void payForPurchase(String userId, String token, String idempotencyKey) throws PurchaseFailedException, NoPermissionException, AuthenticationFailedException, UserException {
         authenticateToken(userId, token);
         checkPermission(userId, UserActions.PAY_FOR_PURCHASE);
-        real.payForPurchase(userId);
+        real.payForPurchase(userId, idempotencyKey);
     }
 
     public void cancelPurchase(String userId, String token) throws NoPermissionException, AuthenticationFailedException, UserException {
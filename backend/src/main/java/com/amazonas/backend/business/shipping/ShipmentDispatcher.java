@@ -0,0 +1,330 @@
+package com.amazonas.backend.business.shipping;
+
+import com.amazonas.common.dtos.Transaction;
+import com.amazonas.common.dtos.TransactionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ships queued transactions in the background.
+ * <br/>
+ * Shipments are taken from the queue in batches of up to <code>batchSize</code> and every batch is handed
+ * to a bounded pool of workers. A worker looks up the shipping service once per batch and calls it
+ * without holding any lock, then records all the shipped transactions of the batch in one go.
+ * A shipment the service refused is queued again after an exponential backoff, until it runs out of attempts.
+ * <br/>
+ * A transaction is shipped by one shipment at a time, a transaction that is submitted again while it is
+ * in flight gets the result of the shipment that is already on its way.
+ * <br/>
+ * {@link #shutdown()} lets the batches that are being shipped finish, every other shipment completes with false.
+ */
+public class ShipmentDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentDispatcher.class);
+
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(5);
+
+    private final Function<String, ShippingService> serviceLookup;
+    private final Function<String, Transaction> transactionLookup;
+    private final Function<Collection<Transaction>, Set<String>> shippedRecorder;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final BlockingQueue<Shipment> queue;
+    private final Map<String, CompletableFuture<Boolean>> inFlight;
+    private final Set<Shipment> waitingForRetry;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryTimer;
+    private final AtomicBoolean draining;
+    private volatile boolean shutDown;
+
+    /**
+     * @param serviceLookup returns the active shipping service of the given id, or null if there is none
+     * @param transactionLookup returns the transaction of the given id, or null if there is none
+     * @param shippedRecorder marks the given transactions as shipped and returns the ids it managed to record
+     */
+    public ShipmentDispatcher(Function<String, ShippingService> serviceLookup,
+                              Function<String, Transaction> transactionLookup,
+                              Function<Collection<Transaction>, Set<String>> shippedRecorder,
+                              int workerCount,
+                              int batchSize,
+                              int maxAttempts,
+                              Duration baseBackoff,
+                              Duration maxBackoff) {
+        if (workerCount < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Worker count, batch size and attempts must be positive");
+        }
+        this.serviceLookup = serviceLookup;
+        this.transactionLookup = transactionLookup;
+        this.shippedRecorder = shippedRecorder;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        queue = new LinkedBlockingQueue<>();
+        inFlight = new ConcurrentHashMap<>();
+        waitingForRetry = ConcurrentHashMap.newKeySet();
+        workers = Executors.newFixedThreadPool(workerCount, daemon("shipment-worker"));
+        retryTimer = Executors.newSingleThreadScheduledExecutor(daemon("shipment-retry"));
+        draining = new AtomicBoolean(false);
+    }
+
+    /**
+     * Queues the transaction for shipment
+     * @return a future that completes with true once the transaction is shipped and recorded,
+     * or with false if it could not be shipped
+     */
+    public CompletableFuture<Boolean> submit(String transactionId, String serviceId) {
+        if (shutDown) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Shipment shipment = new Shipment(transactionId, serviceId);
+        CompletableFuture<Boolean> existing = claim(transactionId, shipment.result);
+        if (existing != null) {
+            return existing;
+        }
+        queue.add(shipment);
+        scheduleDrain();
+        return shipment.result;
+    }
+
+    /**
+     * Ships the transaction on the calling thread, unless it is already in flight
+     * @param shipment ships the transaction and records it, returns true if it did both
+     * @return the result of the shipment that is already in flight, or of <code>shipment</code>
+     */
+    public CompletableFuture<Boolean> shipNow(String transactionId, Supplier<Boolean> shipment) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = claim(transactionId, result);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            result.complete(shipment.get());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Stops taking shipments. The batches that are being shipped get a grace period to finish,
+     * the shipments that are still queued, waiting for a retry or cut off by the grace period complete with false.
+     */
+    public void shutdown() {
+        if (shutDown) {
+            return;
+        }
+        shutDown = true;
+        retryTimer.shutdownNow();
+        failAll(waitingForRetry);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Shipment workers did not finish within {}, cancelling the batches left", SHUTDOWN_GRACE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable notStarted : workers.shutdownNow()) {
+            if (notStarted instanceof Batch batch) {
+                failAll(batch.shipments);
+            }
+        }
+        failQueued();
+    }
+
+    // =============================================================================== |
+    // ================================ DISPATCH ===================================== |
+    // =============================================================================== |
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                workers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                failQueued();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<Shipment> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                draining.set(false);
+                // a shipment may have been queued after the queue was seen empty
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                workers.execute(new Batch(batch));
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                failAll(batch);
+                failQueued();
+                draining.set(false);
+                return;
+            }
+        }
+    }
+
+    private void ship(List<Shipment> batch) {
+        Map<String, List<Shipment>> byService = new HashMap<>();
+        batch.forEach(shipment -> byService.computeIfAbsent(shipment.serviceId, _ -> new LinkedList<>()).add(shipment));
+
+        for (var entry : byService.entrySet()) {
+            ShippingService service = serviceLookup.apply(entry.getKey());
+            if (service == null) {
+                log.warn("Shipping service {} is not active, dropping {} shipments", entry.getKey(), entry.getValue().size());
+                entry.getValue().forEach(shipment -> shipment.result.complete(false));
+                continue;
+            }
+            ship(service, entry.getValue());
+        }
+    }
+
+    private void ship(ShippingService service, List<Shipment> shipments) {
+        Map<String, Shipment> shipped = new HashMap<>();
+        List<Transaction> shippedTransactions = new LinkedList<>();
+        for (Shipment shipment : shipments) {
+            Transaction transaction = transactionLookup.apply(shipment.transactionId);
+            if (transaction == null || transaction.state() != TransactionState.PENDING_SHIPMENT || shipped.containsKey(shipment.transactionId)) {
+                shipment.result.complete(false);
+                continue;
+            }
+            boolean success;
+            try {
+                success = service.ship(transaction);
+            } catch (RuntimeException e) {
+                log.error("Shipping transaction {} failed", shipment.transactionId, e);
+                success = false;
+            }
+            if (success) {
+                shipped.put(shipment.transactionId, shipment);
+                shippedTransactions.add(transaction);
+            } else {
+                retryOrFail(shipment);
+            }
+        }
+        if (shipped.isEmpty()) {
+            return;
+        }
+
+        Set<String> recorded;
+        try {
+            recorded = shippedRecorder.apply(shippedTransactions);
+        } catch (RuntimeException e) {
+            log.error("Failed to record {} shipped transactions", shippedTransactions.size(), e);
+            recorded = Set.of();
+        }
+        for (Shipment shipment : shipped.values()) {
+            shipment.result.complete(recorded.contains(shipment.transactionId));
+        }
+    }
+
+    private void retryOrFail(Shipment shipment) {
+        if (++shipment.attempts >= maxAttempts) {
+            log.warn("Giving up on shipping transaction {} after {} attempts", shipment.transactionId, shipment.attempts);
+            shipment.result.complete(false);
+            return;
+        }
+        waitingForRetry.add(shipment);
+        try {
+            retryTimer.schedule(() -> {
+                if (waitingForRetry.remove(shipment)) {
+                    queue.add(shipment);
+                    scheduleDrain();
+                }
+            }, backoffMillis(shipment.attempts), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            waitingForRetry.remove(shipment);
+            shipment.result.complete(false);
+        }
+    }
+
+    /**
+     * @return the result of the shipment of the transaction that is in flight, or null if <code>result</code> is the one in flight now
+     */
+    private CompletableFuture<Boolean> claim(String transactionId, CompletableFuture<Boolean> result) {
+        while (true) {
+            CompletableFuture<Boolean> existing = inFlight.putIfAbsent(transactionId, result);
+            if (existing == null) {
+                // the result is completed once the shipment is recorded or given up on
+                result.whenComplete((_, _) -> inFlight.remove(transactionId, result));
+                return null;
+            }
+            if (!existing.isDone()) {
+                return existing;
+            }
+            // done, but not removed yet
+            inFlight.remove(transactionId, existing);
+        }
+    }
+
+    long backoffMillis(int attempts) {
+        long delay = baseBackoffMillis << Math.min(attempts - 1, 30);
+        return Math.min(delay, maxBackoffMillis);
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private void failQueued() {
+        List<Shipment> left = new LinkedList<>();
+        queue.drainTo(left);
+        failAll(left);
+    }
+
+    private static void failAll(Collection<Shipment> shipments) {
+        shipments.forEach(shipment -> shipment.result.complete(false));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+    }
+
+    private class Batch implements Runnable {
+        private final List<Shipment> shipments;
+
+        private Batch(List<Shipment> shipments) {
+            this.shipments = shipments;
+        }
+
+        @Override
+        public void run() {
+            ship(shipments);
+        }
+    }
+
+    private static class Shipment {
+        private final String transactionId;
+        private final String serviceId;
+        private final CompletableFuture<Boolean> result;
+        private int attempts;
+
+        private Shipment(String transactionId, String serviceId) {
+            this.transactionId = transactionId;
+            this.serviceId = serviceId;
+            this.result = new CompletableFuture<>();
+        }
+    }
+}
@@ -6,25 +6,33 @@ import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.backend.repository.StoreRepository;
 import com.amazonas.backend.repository.TransactionRepository;
 import com.amazonas.common.utils.ReadWriteLock;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class ShippingServiceController {
 
     private static final Logger log = LoggerFactory.getLogger(ShippingServiceController.class);
 
+    private static final int DISPATCH_WORKERS = 8;
+    private static final int DISPATCH_BATCH_SIZE = 50;
+    private static final int DISPATCH_MAX_ATTEMPTS = 5;
+    private static final Duration DISPATCH_BASE_BACKOFF = Duration.ofMillis(500);
+    private static final Duration DISPATCH_MAX_BACKOFF = Duration.ofSeconds(30);
+
     private final Map<String, ShippingService> activeShippingServices;
     private final Map<String, ShippingService> disabledShippingServices;
 
     private final ReadWriteLock lock;
     private final StoreRepository storeRepository;
     private final TransactionRepository transactionRepository;
+    private final ShipmentDispatcher dispatcher;
 
     public ShippingServiceController(StoreRepository storeRepository, TransactionRepository transactionRepository) {
         activeShippingServices = new HashMap<>();
@@ -32,16 +40,26 @@ public class ShippingServiceController {
         lock = new ReadWriteLock();
         this.storeRepository = storeRepository;
         this.transactionRepository = transactionRepository;
+        dispatcher = new ShipmentDispatcher(this::getActiveShippingService,
+                transactionRepository::getTransactionById,
+                this::recordShipped,
+                DISPATCH_WORKERS,
+                DISPATCH_BATCH_SIZE,
+                DISPATCH_MAX_ATTEMPTS,
+                DISPATCH_BASE_BACKOFF,
+                DISPATCH_MAX_BACKOFF);
     }
 
     public boolean sendShipment(String transactionId, String serviceId) {
-        try {
-            lock.acquireRead();
-            if(!activeShippingServices.containsKey(serviceId)){
-                return false;
-            }
+        // the shipping service is called outside the lock, so a slow gateway does not block the management of services
+        ShippingService shippingService = getActiveShippingService(serviceId);
+        if(shippingService == null){
+            return false;
+        }
+        // a transaction that the dispatcher is already shipping is not shipped twice
+        return dispatcher.shipNow(transactionId, () -> {
             Transaction transaction = transactionRepository.getTransactionById(transactionId);
-            boolean shipped = activeShippingServices.get(serviceId).ship(transaction);
+            boolean shipped = shippingService.ship(transaction);
             if(shipped){
                 Store store = storeRepository.getStore(transaction.getStoreId());
                 try {
@@ -52,9 +70,43 @@ public class ShippingServiceController {
                 }
             }
             return shipped;
-        } finally {
-            lock.releaseRead();
+        }).join();
+    }
+
+    /**
+     * Queues the transaction to be shipped in the background
+     * @return a future that completes with true once the transaction is shipped
+     */
+    public CompletableFuture<Boolean> enqueueShipment(String transactionId, String serviceId) {
+        return dispatcher.submit(transactionId, serviceId);
+    }
+
+    /**
+     * Queues all the orders of the store that are waiting for shipment
+     * @return the number of queued orders
+     */
+    public int dispatchPendingShipments(String storeId, String serviceId) throws StoreException {
+        Store store = storeRepository.getStore(storeId);
+        if(store == null){
+            throw new StoreException("Store not found");
         }
+        int queued = 0;
+        for (Transaction transaction : store.getPendingShipmentOrders()) {
+            if(storeId.equals(transaction.getStoreId())){
+                dispatcher.submit(transaction.getTransactionId(), serviceId);
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    public int getShipmentQueueSize() {
+        return dispatcher.getQueueSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
     }
 
     public void addShippingService(String serviceId, ShippingService newShippingService) {
@@ -148,4 +200,37 @@ public class ShippingServiceController {
             lock.releaseRead();
         }
     }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private ShippingService getActiveShippingService(String serviceId) {
+        try {
+            lock.acquireRead();
+            return activeShippingServices.get(serviceId);
+        } finally {
+            lock.releaseRead();
+        }
+    }
+
+    private Set<String> recordShipped(Collection<Transaction> transactions) {
+        Map<String, List<String>> byStore = new HashMap<>();
+        transactions.forEach(t -> byStore.computeIfAbsent(t.getStoreId(), _ -> new LinkedList<>()).add(t.getTransactionId()));
+
+        Set<String> recorded = new HashSet<>();
+        for (var entry : byStore.entrySet()) {
+            Store store = storeRepository.getStore(entry.getKey());
+            if(store == null){
+                log.error("Store {} of {} shipped orders was not found", entry.getKey(), entry.getValue().size());
+                continue;
+            }
+            try {
+                recorded.addAll(store.setOrdersShipped(entry.getValue()));
+            } catch (StoreException e) {
+                log.error("Failed to set orders as shipped in store {}", entry.getKey(), e);
+            }
+        }
+        return recorded;
+    }
 }
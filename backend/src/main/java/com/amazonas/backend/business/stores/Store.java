@@ -4,6 +4,7 @@ import com.amazonas.backend.business.inventory.ProductInventory;
 import com.amazonas.backend.business.permissions.PermissionsController;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.backend.business.stores.discountPolicies.DiscountManager;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
 import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
 import com.amazonas.backend.business.stores.purchasePolicy.PurchasePolicyManager;
@@ -16,12 +17,14 @@ import com.amazonas.common.dtos.StorePosition;
 import com.amazonas.common.dtos.StoreRole;
 import com.amazonas.backend.business.userProfiles.RegisteredUser;
 import com.amazonas.common.dtos.Transaction;
+import com.amazonas.common.dtos.TransactionState;
 import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.backend.repository.TransactionRepository;
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.dtos.StoreDetails;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.requests.stores.ProductSearchRequest;
+import com.amazonas.common.utils.Money;
 import com.amazonas.common.utils.Rating;
 import com.amazonas.common.utils.ReadWriteLock;
 import org.springframework.lang.Nullable;
@@ -159,6 +162,35 @@ public class Store {
         }
     }
 
+    /**
+     * Marks all the given orders as shipped under a single acquisition of the store lock
+     * @return the ids of the orders that were waiting for shipment and are now shipped
+     */
+    public Set<String> setOrdersShipped(Collection<String> transactionIds) throws StoreException {
+        try{
+            lock.acquireWrite();
+            checkIfOpen();
+
+            Set<String> shipped = new HashSet<>();
+            List<Transaction> updated = new LinkedList<>();
+            for (String transactionId : transactionIds) {
+                Transaction transaction = repository.getTransactionById(transactionId);
+                if (transaction == null
+                        || !storeId.equals(transaction.getStoreId())
+                        || transaction.state() != TransactionState.PENDING_SHIPMENT) {
+                    continue;
+                }
+                transaction.setShipped();
+                shipped.add(transactionId);
+                updated.add(transaction);
+            }
+            repository.saveAllTransactions(updated);
+            return shipped;
+        } finally {
+            lock.releaseWrite();
+        }
+    }
+
     public void setOrderDelivered(String transactionId) throws StoreException {
         try{
             lock.acquireWrite();
@@ -190,23 +222,20 @@ public class Store {
     //====================================================================== |
 
     public double calculatePrice(Map<String,Integer> products) {
+        return Money.toDouble(calculatePriceInCents(products));
+    }
+
+    public long calculatePriceInCents(Map<String,Integer> products) {
+        PricedBasket basket = new PricedBasket(products.size());
         try {
             lock.acquireRead();
-            List<ProductWithQuantitiy> productsWithQuantitiy = new ArrayList<>();
-            for (String productID : products.keySet()){
-                productsWithQuantitiy.add(new ProductWithQuantitiy(inventory.getProduct(productID), products.get(productID)));
+            for (var entry : products.entrySet()){
+                basket.add(inventory.getProduct(entry.getKey()), entry.getValue());
             }
-            ProductAfterDiscount[] res = discountManager.applyDiscountPolicy(productsWithQuantitiy);
-            double ret = 0.0;
-            for (ProductAfterDiscount productAfterDiscount : res) {
-                ret += productAfterDiscount.priceAfterDiscount() * productAfterDiscount.quantity();
-            }
-            return ret;
-        } catch (StoreException e) {
-            return -1;
         } finally {
             lock.releaseRead();
         }
+        return discountManager.calculatePriceInCents(basket);
     }
 
     public List<Product> searchProduct(ProductSearchRequest request) {
@@ -449,63 +478,42 @@ public class Store {
     }
 
     public List<String> getOwners(){
-        return getRolesInformation().stream()
-                .filter(storePosition -> storePosition.role() == StoreRole.STORE_OWNER)
-                .map(StorePosition::userId)
-                .toList();
+        return appointmentSystem.getOwnerIds();
+    }
+
+    public List<String> getManagers(){
+        return appointmentSystem.getManagerIds();
     }
 
     //====================================================================== |
     //========================= STORE DISCOUNTS ============================ |
     //====================================================================== |
 
+    // The discount and purchase policies are immutable snapshots published by their managers,
+    // so the policy methods below never take the store lock and pricing is not blocked by policy edits
+
     public DiscountComponentDTO getDiscountPolicyDTO() throws StoreException {
-        try {
-            lock.acquireRead();
-            return discountManager.getDiscountPolicyDTO();
-        } finally {
-            lock.releaseRead();
-        }
+        return discountManager.getDiscountPolicyDTO();
     }
 
     public String getDiscountPolicyCFG() throws StoreException {
-        try {
-            lock.acquireRead();
-            String ret = discountManager.getDiscountPolicyCFG();
-            if (ret == null) {
-                throw new StoreException("No discount policy found");
-            }
-            return ret;
-        } finally {
-            lock.releaseRead();
+        String ret = discountManager.getDiscountPolicyCFG();
+        if (ret == null) {
+            throw new StoreException("No discount policy found");
         }
+        return ret;
     }
 
     public boolean deleteAllDiscounts() {
-        try {
-            lock.acquireWrite();
-            return discountManager.deleteAllDiscounts();
-        } finally {
-            lock.releaseWrite();
-        }
+        return discountManager.deleteAllDiscounts();
     }
 
     public ProductAfterDiscount[] applyDiscountPolicy(List<ProductWithQuantitiy> products) throws StoreException {
-        try {
-            lock.acquireRead();
-            return discountManager.applyDiscountPolicy(products);
-        } finally {
-            lock.releaseRead();
-        }
+        return discountManager.applyDiscountPolicy(products);
     }
 
     public String changeDiscountPolicy(DiscountComponentDTO discountComponentDTO) throws StoreException {
-        try {
-            lock.acquireWrite();
-            return discountManager.changeDiscountPolicy(discountComponentDTO);
-        } finally {
-            lock.releaseWrite();
-        }
+        return discountManager.changeDiscountPolicy(discountComponentDTO);
     }
 
 
@@ -514,39 +522,19 @@ public class Store {
     //====================================================================== |
 
     public PurchaseRuleDTO getPurchasePolicyDTO() throws StoreException {
-        try {
-            lock.acquireRead();
-            return purchasePolicyManager.getPurchasePolicy();
-        } finally {
-            lock.releaseRead();
-        }
+        return purchasePolicyManager.getPurchasePolicy();
     }
 
     public boolean deleteAllPurchasePolicies() {
-        try {
-            lock.acquireWrite();
-            return purchasePolicyManager.deletePurchasePolicy();
-        } finally {
-            lock.releaseWrite();
-        }
+        return purchasePolicyManager.deletePurchasePolicy();
     }
 
     public boolean isPurchasePolicySatisfied(List<ProductWithQuantitiy> products, RegisteredUser user) throws StoreException {
-        try {
-            lock.acquireRead();
-            return purchasePolicyManager.isSatisfied(products, user);
-        } finally {
-            lock.releaseRead();
-        }
+        return purchasePolicyManager.isSatisfied(products, user);
     }
 
     public void changePurchasePolicy(PurchaseRuleDTO purchaseRuleDTO) throws StoreException {
-        try {
-            lock.acquireWrite();
-            purchasePolicyManager.changePurchasePolicy(purchaseRuleDTO);
-        } finally {
-            lock.releaseWrite();
-        }
+        purchasePolicyManager.changePurchasePolicy(purchaseRuleDTO);
     }
 
     //====================================================================== |
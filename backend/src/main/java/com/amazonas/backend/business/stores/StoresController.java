@@ -1,15 +1,20 @@
 package com.amazonas.backend.business.stores;
 
 import com.amazonas.backend.business.permissions.PermissionsController;
+import com.amazonas.backend.business.stores.discountPolicies.DiscountManager;
+import com.amazonas.backend.business.stores.discountPolicies.DiscountSimulator;
 import com.amazonas.common.DiscountDTOs.Translator;
 import com.amazonas.common.exceptions.DiscountPolicyException;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.common.PurchaseRuleDTO.PurchaseRuleDTO;
 import com.amazonas.backend.repository.ProductRepository;
+import com.amazonas.common.dtos.DiscountSimulationResult;
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.dtos.StoreDetails;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.backend.business.stores.factories.StoreFactory;
+import com.amazonas.backend.business.stores.storePositions.StoreRoleIndex;
+import com.amazonas.common.dtos.StoreAppointment;
 import com.amazonas.common.dtos.StorePosition;
 import com.amazonas.common.dtos.Transaction;
 import com.amazonas.backend.exceptions.StoreException;
@@ -19,9 +24,11 @@ import com.amazonas.common.requests.stores.GlobalSearchRequest;
 import com.amazonas.common.requests.stores.ProductSearchRequest;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 @Component("storesController")
 public class StoresController {
@@ -30,13 +37,15 @@ public class StoresController {
     private final TransactionRepository transactionRepository;
     private final ProductRepository productRepository;
     private final PermissionsController permissionsController;
+    private final StoreRoleIndex storeRoleIndex;
 
-    public StoresController(StoreFactory storeFactory, StoreRepository storeRepository, TransactionRepository transactionRepository, ProductRepository productRepository, PermissionsController permissionsController){
+    public StoresController(StoreFactory storeFactory, StoreRepository storeRepository, TransactionRepository transactionRepository, ProductRepository productRepository, PermissionsController permissionsController, StoreRoleIndex storeRoleIndex){
         this.storeFactory = storeFactory;
         this.repository = storeRepository;
         this.transactionRepository = transactionRepository;
         this.productRepository = productRepository;
         this.permissionsController = permissionsController;
+        this.storeRoleIndex = storeRoleIndex;
     }
 
     public String addStore(String founderId,String name, String description) throws StoreException {
@@ -161,6 +170,15 @@ public class StoresController {
         return getStore(storeId).getRolesInformation();
     }
 
+    /**
+     * Reads the market wide role index, it does not go through the stores
+     */
+    public List<StoreAppointment> getUserStores(String userId) {
+        List<StoreAppointment> ret = new ArrayList<>();
+        storeRoleIndex.getRoles(userId).forEach((storeId, role) -> ret.add(new StoreAppointment(storeId, role)));
+        return ret;
+    }
+
     public List<Transaction> getStoreTransactionHistory(String storeId) {
         return transactionRepository.getTransactionHistoryByStore(storeId);
     }
@@ -188,6 +206,20 @@ public class StoresController {
         return getStore(storeId).changeDiscountPolicy(dto);
     }
 
+    public DiscountSimulationResult simulateDiscountRuleByCFG(String storeId, String cfg) throws StoreException, DiscountPolicyException {
+        return simulateDiscountRuleByDTO(storeId, Translator.translator(cfg));
+    }
+
+    public DiscountSimulationResult simulateDiscountRuleByDTO(String storeId, DiscountComponentDTO dto) throws StoreException {
+        if(getStore(storeId) == null){
+            throw new StoreException("Store not found");
+        }
+        DiscountManager candidate = new DiscountManager();
+        candidate.changeDiscountPolicy(dto);
+        DiscountSimulator simulator = new DiscountSimulator(candidate, ForkJoinPool.commonPool());
+        return simulator.simulate(transactionRepository.getTransactionHistoryByStore(storeId));
+    }
+
     public DiscountComponentDTO getDiscountRuleDTO(String storeId) throws StoreException {
         return getStore(storeId).getDiscountPolicyDTO();
     }
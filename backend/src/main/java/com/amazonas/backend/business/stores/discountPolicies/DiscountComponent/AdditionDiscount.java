@@ -1,7 +1,6 @@
 package com.amazonas.backend.business.stores.discountPolicies.DiscountComponent;
 
-import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.common.DiscountDTOs.MultipleDiscountDTO;
@@ -39,30 +38,18 @@ public class AdditionDiscount implements DiscountComponent{
     }
 
     @Override
-    public ProductAfterDiscount[] calculateDiscount(List<ProductWithQuantitiy> products) {
-        ProductAfterDiscount[][] childrenResult = new ProductAfterDiscount[children.length][];
-        ProductAfterDiscount[] ret = new ProductAfterDiscount[products.size()];
-        int index = 0;
+    public void calculateDiscount(PricedBasket basket, long[] prices) {
+        long[] childPrices = basket.newPriceArray();
+        basket.copyUnitPrices(prices);
         for (DiscountComponent child : children) { //calculate all the discounts
-            childrenResult[index++] = child.calculateDiscount(products);
-        }
-        for (int productIndex = 0; productIndex < products.size(); productIndex++) {
-            double initialPrice = childrenResult[0][productIndex].originalPrice();
-            for (ProductAfterDiscount[] productsAfterDiscounts : childrenResult) {
-                initialPrice -= (productsAfterDiscounts[productIndex].originalPrice() -
-                        productsAfterDiscounts[productIndex].priceAfterDiscount());
-                if (initialPrice < 0) {
-                    initialPrice = 0;// combine the discounts
+            child.calculateDiscount(basket, childPrices);
+            for (int i = 0; i < basket.size(); i++) {
+                prices[i] -= basket.unitPrice(i) - childPrices[i]; // combine the discounts
+                if (prices[i] < 0) {
+                    prices[i] = 0;
                 }
             }
-            ret[productIndex] = new ProductAfterDiscount(
-                                        childrenResult[0][productIndex].productId(),
-                                        childrenResult[0][productIndex].quantity(),
-                                        childrenResult[0][productIndex].originalPrice(),
-                                        initialPrice
-                                    );
         }
-        return ret;
     }
 
     @Override
@@ -3,12 +3,9 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountComponent;
 import com.amazonas.backend.business.stores.discountPolicies.DiscountCondition.Condition;
 import com.amazonas.common.DiscountDTOs.ComplexDiscountDTO;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
-import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 
-import java.util.List;
-
 public class ComplexDiscount implements DiscountComponent {
     final private boolean isLeavesNode;
     private final Condition condition;
@@ -35,28 +32,15 @@ public class ComplexDiscount implements DiscountComponent {
     }
 
     @Override
-    public ProductAfterDiscount[] calculateDiscount(List<ProductWithQuantitiy> products) {
-        if (products == null) {
+    public void calculateDiscount(PricedBasket basket, long[] prices) {
+        if (basket == null) {
             throw new IllegalArgumentException("Products cannot be null");
         }
-        if (condition.decideCondition(products)) {
-            return discount.calculateDiscount(products);
+        if (condition.decideCondition(basket)) {
+            discount.calculateDiscount(basket, prices);
         }
         else {
-            ProductAfterDiscount[] ret = new ProductAfterDiscount[products.size()];
-            int index = 0;
-            for (ProductWithQuantitiy product : products) {
-                if (product == null) {
-                    throw new IllegalArgumentException("Product cannot be null");
-                }
-                ret[index++] = new ProductAfterDiscount(
-                                                        product.product().getProductId(),
-                                                        product.quantity(),
-                                                        product.product().getPrice(),
-                                                        product.product().getPrice()
-                                                        );
-            }
-            return ret;
+            basket.copyUnitPrices(prices);
         }
     }
 
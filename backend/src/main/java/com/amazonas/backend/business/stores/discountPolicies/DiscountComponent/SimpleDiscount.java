@@ -7,11 +7,9 @@ import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.Cate
 import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.DiscountHierarchyLevel;
 import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.ProductLevel;
 import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.StoreLevel;
-import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
-
-import java.util.List;
+import com.amazonas.common.utils.Money;
 
 public class SimpleDiscount implements DiscountComponent{
     private final int percent;
@@ -37,35 +35,18 @@ public class SimpleDiscount implements DiscountComponent{
     }
 
     @Override
-    public ProductAfterDiscount[] calculateDiscount(List<ProductWithQuantitiy> products) {
-        if (products == null) {
+    public void calculateDiscount(PricedBasket basket, long[] prices) {
+        if (basket == null) {
             throw new IllegalArgumentException("Products cannot be null");
         }
-        int index = 0;
-        ProductAfterDiscount[] ret = new ProductAfterDiscount[products.size()];
-        for (ProductWithQuantitiy productWithQuantitiy : products) {
-            if (productWithQuantitiy == null) {
-                throw new IllegalArgumentException("Product cannot be null");
-            }
-            if (discountHierarchyLevel.isTheProductEligible(productWithQuantitiy.product())) {
-                ret[index] = new ProductAfterDiscount(
-                                            productWithQuantitiy.product().getProductId(),
-                                            productWithQuantitiy.quantity(),
-                                            productWithQuantitiy.product().getPrice(),
-                                            productWithQuantitiy.product().getPrice() * ((100 - percent)/100.0)
-                                            );
+        for (int i = 0; i < basket.size(); i++) {
+            if (discountHierarchyLevel.isTheProductEligible(basket, i)) {
+                prices[i] = Money.applyPercentOff(basket.unitPrice(i), percent);
             }
             else {
-                ret[index] = new ProductAfterDiscount(
-                                            productWithQuantitiy.product().getProductId(),
-                                            productWithQuantitiy.quantity(),
-                                            productWithQuantitiy.product().getPrice(),
-                                            productWithQuantitiy.product().getPrice()
-                                            );
+                prices[i] = basket.unitPrice(i);
             }
-            index++;
         }
-        return ret;
     }
 
     @Override
@@ -3,8 +3,7 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountComponent;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.common.DiscountDTOs.MultipleDiscountDTO;
 import com.amazonas.common.DiscountDTOs.MultipleDiscountType;
-import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 
 import java.util.ArrayList;
@@ -41,41 +40,30 @@ public class XorDiscount implements DiscountComponent {
     }
 
     @Override
-    public ProductAfterDiscount[] calculateDiscount(List<ProductWithQuantitiy> products) {
-        if (products == null || products.isEmpty()) {
+    public void calculateDiscount(PricedBasket basket, long[] prices) {
+        if (basket == null || basket.size() == 0) {
             throw new IllegalArgumentException("products must not be empty");
         }
-        ProductAfterDiscount[] ret = children[0].calculateDiscount(products);
-        double value;
+        long value;
         if (xorDecisionRule == XorDecisionRule.THE_LOWEST_ONE) {
-            value = Double.MAX_VALUE;
+            value = Long.MAX_VALUE;
         }
         else if (xorDecisionRule == XorDecisionRule.THE_HIGHEST_ONE) {
-            value = Double.MIN_VALUE;
+            value = Long.MIN_VALUE;
         }
         else {
             throw new IllegalArgumentException("The xor condition must be one of the list");
         }
+        long[] current = basket.newPriceArray();
         for (DiscountComponent child : children) { //calculate all the discounts
-            ProductAfterDiscount[] current = child.calculateDiscount(products);
-            double totalPrice = 0;
-            for (ProductAfterDiscount productAfterDiscount : current) {
-                totalPrice += productAfterDiscount.priceAfterDiscount() * productAfterDiscount.quantity();
-            }
-            if (xorDecisionRule == XorDecisionRule.THE_LOWEST_ONE) {
-                if (totalPrice < value) {
-                    value = totalPrice;
-                    ret = current;
-                }
-            }
-            else if (xorDecisionRule == XorDecisionRule.THE_HIGHEST_ONE) {
-                if (totalPrice > value) {
-                    value = totalPrice;
-                    ret = current;
-                }
+            child.calculateDiscount(basket, current);
+            long totalPrice = basket.total(current);
+            if ((xorDecisionRule == XorDecisionRule.THE_LOWEST_ONE && totalPrice < value) ||
+                (xorDecisionRule == XorDecisionRule.THE_HIGHEST_ONE && totalPrice > value)) {
+                value = totalPrice;
+                System.arraycopy(current, 0, prices, 0, basket.size());
             }
         }
-        return ret;
     }
 
     @Override
@@ -3,13 +3,13 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountCondition;
 import com.amazonas.common.DiscountDTOs.DiscountConditionDTO;
 import com.amazonas.common.DiscountDTOs.UnaryConditionDTO;
 import com.amazonas.common.DiscountDTOs.UnaryConditionType;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
-
-import java.util.List;
+import com.amazonas.common.utils.Money;
 
 public class AtLeastPriceCondition implements Condition{
     private final double limit;
+    private final long limitInCents;
 
     /***
      * Consider to cart's total price >= <code>limit</code>
@@ -17,18 +17,15 @@ public class AtLeastPriceCondition implements Condition{
      */
     public AtLeastPriceCondition(double limit) {
         this.limit = limit;
+        this.limitInCents = Money.toCents(limit);
     }
 
     @Override
-    public boolean decideCondition(List<ProductWithQuantitiy> products) {
-        if (products == null ) {
+    public boolean decideCondition(PricedBasket basket) {
+        if (basket == null ) {
             throw new IllegalArgumentException("products list cannot be null");
         }
-        double count = 0;
-        for (ProductWithQuantitiy productWithQuantitiy : products) {
-            count += productWithQuantitiy.product().getPrice() * productWithQuantitiy.quantity();
-        }
-        return count >= limit;
+        return basket.originalTotal() >= limitInCents;
     }
 
     @Override
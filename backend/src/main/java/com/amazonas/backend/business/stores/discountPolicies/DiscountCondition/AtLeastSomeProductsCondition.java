@@ -3,11 +3,9 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountCondition;
 import com.amazonas.common.DiscountDTOs.DiscountConditionDTO;
 import com.amazonas.common.DiscountDTOs.UnaryConditionDTO;
 import com.amazonas.common.DiscountDTOs.UnaryConditionType;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 
-import java.util.List;
-
 public class AtLeastSomeProductsCondition implements Condition{
     private final int limit;
     private final String productId;
@@ -23,14 +21,14 @@ public class AtLeastSomeProductsCondition implements Condition{
     }
 
     @Override
-    public boolean decideCondition(List<ProductWithQuantitiy> products) {
-        if (products == null ) {
+    public boolean decideCondition(PricedBasket basket) {
+        if (basket == null ) {
             throw new IllegalArgumentException("products list cannot be null");
         }
         int count = 0;
-        for (ProductWithQuantitiy productWithQuantitiy : products) {
-            if (productWithQuantitiy.product().getProductId().equals(productId)) {
-                count += productWithQuantitiy.quantity();
+        for (int i = 0; i < basket.size(); i++) {
+            if (basket.productId(i).equals(productId)) {
+                count += basket.quantity(i);
             }
         }
         return count >= limit;
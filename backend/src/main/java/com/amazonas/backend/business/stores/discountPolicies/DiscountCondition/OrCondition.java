@@ -3,7 +3,7 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountCondition;
 import com.amazonas.common.DiscountDTOs.DiscountConditionDTO;
 import com.amazonas.common.DiscountDTOs.MultipleConditionDTO;
 import com.amazonas.common.DiscountDTOs.MultipleConditionType;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 
 import java.util.LinkedList;
@@ -25,12 +25,12 @@ public class OrCondition implements Condition {
     }
 
     @Override
-    public boolean decideCondition(List<ProductWithQuantitiy> products) {
-        if (products == null ) {
+    public boolean decideCondition(PricedBasket basket) {
+        if (basket == null ) {
             throw new IllegalArgumentException("products list cannot be null");
         }
         for (Condition condition : conditions) {
-            if (condition.decideCondition(products)) {
+            if (condition.decideCondition(basket)) {
                 return true;
             }
         }
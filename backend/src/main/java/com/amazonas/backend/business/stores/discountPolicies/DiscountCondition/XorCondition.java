@@ -3,7 +3,7 @@ package com.amazonas.backend.business.stores.discountPolicies.DiscountCondition;
 import com.amazonas.common.DiscountDTOs.DiscountConditionDTO;
 import com.amazonas.common.DiscountDTOs.MultipleConditionDTO;
 import com.amazonas.common.DiscountDTOs.MultipleConditionType;
-import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 import com.amazonas.backend.exceptions.StoreException;
 
 import java.util.LinkedList;
@@ -25,19 +25,13 @@ public class XorCondition implements Condition{
     }
 
     @Override
-    public boolean decideCondition(List<ProductWithQuantitiy> products) {
-        if (products == null) {
+    public boolean decideCondition(PricedBasket basket) {
+        if (basket == null) {
             throw new IllegalArgumentException("products list cannot be null");
         }
         boolean found = false;
         for (Condition condition : conditions) {
-            if (condition.decideCondition(products)) {
-                try {
-
-
-                    System.out.println(condition.generateCFG());
-                }
-                catch (StoreException e) {}
+            if (condition.decideCondition(basket)) {
                 if (found) {
                     return false;
                 }
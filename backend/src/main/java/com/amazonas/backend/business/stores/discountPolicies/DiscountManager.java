@@ -7,28 +7,36 @@ import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.Prod
 import com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel.StoreLevel;
 import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.common.DiscountDTOs.*;
+import com.amazonas.common.utils.Money;
 
 import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * The discount policy is published as an immutable snapshot (the component tree is never mutated after translation).
+ * Readers take the current snapshot once and work on it without locking,
+ * writers build the new tree aside and replace the snapshot with a single volatile write.
+ */
 public class DiscountManager {
-    private DiscountComponent discountComponent;
+    private volatile DiscountComponent discountComponent;
     public DiscountManager() {
         discountComponent = null;
     }
 
     public DiscountComponentDTO getDiscountPolicyDTO() throws StoreException {
-        if (discountComponent == null) {
+        DiscountComponent snapshot = discountComponent;
+        if (snapshot == null) {
             return null;
         }
-        return discountComponent.generateDTO();
+        return snapshot.generateDTO();
     }
 
     public String getDiscountPolicyCFG() throws StoreException {
-        if (discountComponent == null) {
+        DiscountComponent snapshot = discountComponent;
+        if (snapshot == null) {
             return null;
         }
-        return discountComponent.generateCFG();
+        return snapshot.generateCFG();
     }
 
     public boolean deleteAllDiscounts() {
@@ -43,18 +51,42 @@ public class DiscountManager {
      * @throws StoreException
      */
     public ProductAfterDiscount[] applyDiscountPolicy(List<ProductWithQuantitiy> products) throws StoreException {
-        if (discountComponent == null) {
-            ProductAfterDiscount[] productsAfterDiscounts = new ProductAfterDiscount[products.size()];
-            int index = 0;
-            for (ProductWithQuantitiy product : products) {
-                productsAfterDiscounts[index++] = new ProductAfterDiscount(product.product().getProductId(),
-                                                                           product.quantity(),
-                                                                           product.product().getPrice(),
-                                                                           product.product().getPrice());
-            }
-            return productsAfterDiscounts;
+        PricedBasket basket = PricedBasket.of(products);
+        long[] prices = applyDiscountPolicy(basket);
+        ProductAfterDiscount[] productsAfterDiscounts = new ProductAfterDiscount[basket.size()];
+        for (int i = 0; i < basket.size(); i++) {
+            productsAfterDiscounts[i] = new ProductAfterDiscount(basket.productId(i),
+                                                                 basket.quantity(i),
+                                                                 Money.toDouble(basket.unitPrice(i)),
+                                                                 Money.toDouble(prices[i]));
+        }
+        return productsAfterDiscounts;
+    }
+
+    /**
+     *
+     * @param basket the products of the cart with their unit prices in cents
+     * @return the total price of the basket after the discounts, in cents
+     */
+    public long calculatePriceInCents(PricedBasket basket) {
+        return basket.total(applyDiscountPolicy(basket));
+    }
+
+    /**
+     *
+     * @param basket the products of the cart with their unit prices in cents
+     * @return the unit prices after the discounts, in cents, in the order of the basket
+     */
+    public long[] applyDiscountPolicy(PricedBasket basket) {
+        DiscountComponent snapshot = discountComponent;
+        long[] prices = basket.newPriceArray();
+        if (snapshot == null || basket.size() == 0) {
+            basket.copyUnitPrices(prices);
+        }
+        else {
+            snapshot.calculateDiscount(basket, prices);
         }
-        return discountComponent.calculateDiscount(products);
+        return prices;
     }
 
     /**
@@ -64,8 +96,9 @@ public class DiscountManager {
      * @throws StoreException
      */
     public String changeDiscountPolicy(DiscountComponentDTO discountComponentDTO) throws StoreException {
-        discountComponent = translateDiscountComponentDTO(discountComponentDTO);
-        return discountComponent.generateCFG();
+        DiscountComponent newPolicy = translateDiscountComponentDTO(discountComponentDTO);
+        discountComponent = newPolicy;
+        return newPolicy.generateCFG();
     }
 
     private DiscountComponent translateDiscountComponentDTO(DiscountComponentDTO discountComponentDTO) throws StoreException {
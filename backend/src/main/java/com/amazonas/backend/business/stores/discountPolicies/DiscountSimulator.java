@@ -0,0 +1,124 @@
+package com.amazonas.backend.business.stores.discountPolicies;
+
+import com.amazonas.common.dtos.DiscountSimulationResult;
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.dtos.Transaction;
+import com.amazonas.common.dtos.TransactionState;
+import com.amazonas.common.utils.Money;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Replays past orders through a candidate discount policy to tell what it would have given away.
+ * <br/>
+ * The orders are split into ranges that are priced in parallel on a fork-join pool.
+ * Each range sums into its own tally and the tallies are merged on the way up, so no state is shared between workers.
+ */
+public class DiscountSimulator {
+
+    private static final int ORDERS_PER_TASK = 1024;
+
+    private final DiscountManager candidate;
+    private final ForkJoinPool pool;
+
+    public DiscountSimulator(DiscountManager candidate, ForkJoinPool pool) {
+        this.candidate = candidate;
+        this.pool = pool;
+    }
+
+    public DiscountSimulationResult simulate(List<Transaction> transactions) {
+        Transaction[] orders = transactions.stream()
+                .filter(transaction -> transaction.state() != TransactionState.CANCELED)
+                .toArray(Transaction[]::new);
+        Tally tally = pool.invoke(new SimulationTask(orders, 0, orders.length));
+        return tally.toResult(orders.length);
+    }
+
+    private void replay(Transaction order, Tally tally) {
+        Map<Product, Integer> productToQuantity = order.getProductToQuantity();
+        PricedBasket basket = new PricedBasket(productToQuantity.size());
+        productToQuantity.forEach(basket::add);
+        long[] prices = candidate.applyDiscountPolicy(basket);
+        boolean affected = false;
+        for (int i = 0; i < basket.size(); i++) {
+            long discount = (basket.unitPrice(i) - prices[i]) * basket.quantity(i);
+            if (discount > 0) {
+                affected = true;
+                tally.add(basket.productId(i), basket.category(i), discount);
+            }
+        }
+        if (affected) {
+            tally.affectedOrders++;
+        }
+    }
+
+    private class SimulationTask extends RecursiveTask<Tally> {
+        private final Transaction[] orders;
+        private final int from;
+        private final int to;
+
+        private SimulationTask(Transaction[] orders, int from, int to) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= ORDERS_PER_TASK) {
+                Tally tally = new Tally();
+                for (int i = from; i < to; i++) {
+                    replay(orders[i], tally);
+                }
+                return tally;
+            }
+            int middle = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(orders, from, middle);
+            left.fork();
+            Tally right = new SimulationTask(orders, middle, to).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    // amounts are kept in cents until the result is built
+    private static class Tally {
+        private long totalDiscount;
+        private int affectedOrders;
+        private final Map<String, Long> discountPerProduct = new HashMap<>();
+        private final Map<String, Long> discountPerCategory = new HashMap<>();
+
+        private void add(String productId, String category, long discount) {
+            totalDiscount += discount;
+            discountPerProduct.merge(productId, discount, Long::sum);
+            discountPerCategory.merge(category, discount, Long::sum);
+        }
+
+        private Tally merge(Tally other) {
+            totalDiscount += other.totalDiscount;
+            affectedOrders += other.affectedOrders;
+            other.discountPerProduct.forEach((key, value) -> discountPerProduct.merge(key, value, Long::sum));
+            other.discountPerCategory.forEach((key, value) -> discountPerCategory.merge(key, value, Long::sum));
+            return this;
+        }
+
+        private DiscountSimulationResult toResult(int totalOrders) {
+            double percentage = totalOrders == 0 ? 0 : affectedOrders * 100.0 / totalOrders;
+            return new DiscountSimulationResult(totalOrders,
+                                                affectedOrders,
+                                                percentage,
+                                                Money.toDouble(totalDiscount),
+                                                toDoubles(discountPerProduct),
+                                                toDoubles(discountPerCategory));
+        }
+
+        private static Map<String, Double> toDoubles(Map<String, Long> cents) {
+            Map<String, Double> ret = new HashMap<>(cents.size() * 2);
+            cents.forEach((key, value) -> ret.put(key, Money.toDouble(value)));
+            return ret;
+        }
+    }
+}
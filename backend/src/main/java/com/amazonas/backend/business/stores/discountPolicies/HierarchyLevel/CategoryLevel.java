@@ -1,6 +1,6 @@
 package com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel;
 
-import com.amazonas.common.dtos.Product;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 
 public class CategoryLevel implements DiscountHierarchyLevel{
     private final String category;
@@ -14,7 +14,7 @@ public class CategoryLevel implements DiscountHierarchyLevel{
     }
 
     @Override
-    public boolean isTheProductEligible(Product product) {
-        return product.getCategory().equals(category);
+    public boolean isTheProductEligible(PricedBasket basket, int index) {
+        return basket.category(index).equals(category);
     }
 }
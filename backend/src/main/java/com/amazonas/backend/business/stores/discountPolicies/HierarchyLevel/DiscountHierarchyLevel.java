@@ -1,7 +1,7 @@
 package com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel;
 
-import com.amazonas.common.dtos.Product;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 
 public interface DiscountHierarchyLevel {
-    boolean isTheProductEligible(Product product);
+    boolean isTheProductEligible(PricedBasket basket, int index);
 }
@@ -1,6 +1,6 @@
 package com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel;
 
-import com.amazonas.common.dtos.Product;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 
 public class ProductLevel implements DiscountHierarchyLevel{
     private final String productId;
@@ -14,7 +14,7 @@ public class ProductLevel implements DiscountHierarchyLevel{
     }
 
     @Override
-    public boolean isTheProductEligible(Product product) {
-        return productId.equals(product.getProductId());
+    public boolean isTheProductEligible(PricedBasket basket, int index) {
+        return productId.equals(basket.productId(index));
     }
 }
@@ -1,10 +1,10 @@
 package com.amazonas.backend.business.stores.discountPolicies.HierarchyLevel;
 
-import com.amazonas.common.dtos.Product;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
 
 public class StoreLevel implements DiscountHierarchyLevel{
     @Override
-    public boolean isTheProductEligible(Product product) {
+    public boolean isTheProductEligible(PricedBasket basket, int index) {
         return true;
     }
 }
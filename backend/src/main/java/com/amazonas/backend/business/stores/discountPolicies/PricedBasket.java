@@ -0,0 +1,86 @@
+package com.amazonas.backend.business.stores.discountPolicies;
+
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.utils.Money;
+
+import java.util.List;
+
+/**
+ * A basket laid out in flat arrays, with the unit prices held as whole cents.
+ * This is the input of the pricing kernel: discounts and conditions read it by index
+ * and write the discounted unit prices into plain <code>long[]</code> arrays.
+ */
+public class PricedBasket {
+    private final String[] productIds;
+    private final String[] categories;
+    private final int[] quantities;
+    private final long[] unitPrices;
+    private int size;
+
+    public PricedBasket(int capacity) {
+        productIds = new String[capacity];
+        categories = new String[capacity];
+        quantities = new int[capacity];
+        unitPrices = new long[capacity];
+        size = 0;
+    }
+
+    public static PricedBasket of(List<ProductWithQuantitiy> products) {
+        PricedBasket basket = new PricedBasket(products.size());
+        for (ProductWithQuantitiy product : products) {
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null");
+            }
+            basket.add(product.product(), product.quantity());
+        }
+        return basket;
+    }
+
+    public void add(Product product, int quantity) {
+        productIds[size] = product.getProductId();
+        categories[size] = product.getCategory();
+        quantities[size] = quantity;
+        unitPrices[size] = Money.toCents(product.getPrice());
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String productId(int index) {
+        return productIds[index];
+    }
+
+    public String category(int index) {
+        return categories[index];
+    }
+
+    public int quantity(int index) {
+        return quantities[index];
+    }
+
+    public long unitPrice(int index) {
+        return unitPrices[index];
+    }
+
+    public long[] newPriceArray() {
+        return new long[size];
+    }
+
+    public void copyUnitPrices(long[] prices) {
+        System.arraycopy(unitPrices, 0, prices, 0, size);
+    }
+
+    public long total(long[] prices) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += prices[i] * quantities[i];
+        }
+        return total;
+    }
+
+    public long originalTotal() {
+        return total(unitPrices);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Component("storeCallbackFactory")
 public class StoreCallbackFactory {
@@ -16,8 +17,8 @@ public class StoreCallbackFactory {
         this.storeRepository = storeRepository;
     }
 
-    public Function<Map<String,Integer>, Double> calculatePrice(String storeId){
-        return products -> storeRepository.getStore(storeId).calculatePrice(products);
+    public ToLongFunction<Map<String,Integer>> calculatePriceInCents(String storeId){
+        return products -> storeRepository.getStore(storeId).calculatePriceInCents(products);
     }
 
     public Function<Map<String,Integer>, Reservation> makeReservation(String storeId, String userId){
@@ -6,6 +6,7 @@ import com.amazonas.backend.business.stores.Store;
 import com.amazonas.backend.business.stores.reservations.PendingReservationMonitor;
 import com.amazonas.backend.business.stores.reservations.ReservationFactory;
 import com.amazonas.backend.business.stores.storePositions.AppointmentSystem;
+import com.amazonas.backend.business.stores.storePositions.StoreRoleIndex;
 import com.amazonas.backend.repository.ProductRepository;
 import com.amazonas.backend.repository.TransactionRepository;
 import com.amazonas.common.utils.Rating;
@@ -21,24 +22,28 @@ public class StoreFactory {
     private final PermissionsController permissionsController;
     private final TransactionRepository transactionRepository;
     private final ProductRepository productRepository;
+    private final StoreRoleIndex storeRoleIndex;
 
     public StoreFactory(ReservationFactory reservationFactory,
                         PendingReservationMonitor pendingReservationMonitor,
-                        PermissionsController permissionsController, TransactionRepository transactionRepository, ProductRepository productRepository) {
+                        PermissionsController permissionsController, TransactionRepository transactionRepository, ProductRepository productRepository,
+                        StoreRoleIndex storeRoleIndex) {
         this.reservationFactory = reservationFactory;
         this.pendingReservationMonitor = pendingReservationMonitor;
         this.permissionsController = permissionsController;
         this.transactionRepository = transactionRepository;
         this.productRepository = productRepository;
+        this.storeRoleIndex = storeRoleIndex;
     }
 
     public Store get(String founderUserId, String storeName, String description){
-        return new Store(UUID.randomUUID().toString(),
+        String storeId = UUID.randomUUID().toString();
+        return new Store(storeId,
                 storeName,
                 description,
                 Rating.NOT_RATED,
                 new ProductInventory(productRepository),
-                new AppointmentSystem(founderUserId),
+                new AppointmentSystem(founderUserId, storeId, storeRoleIndex),
                 reservationFactory,
                 pendingReservationMonitor,
                 permissionsController,
@@ -0,0 +1,104 @@
+package com.amazonas.backend.business.stores.purchasePolicy;
+
+import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.userProfiles.RegisteredUser;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The facts about a single basket that purchase rules ask about.
+ * Each fact is computed on first use and then shared by all the rules of the same evaluation,
+ * so a rule that short-circuits early never pays for a scan of the basket.
+ */
+class BasketFacts {
+    private final List<ProductWithQuantitiy> products;
+    private final RegisteredUser user;
+    private final Clock clock;
+
+    private Instant instant;
+    private LocalDate today;
+    private LocalTime now;
+    private Map<String, Integer> categoryQuantities;
+    private Map<String, Integer> productQuantities;
+
+    BasketFacts(List<ProductWithQuantitiy> products, RegisteredUser user, Clock clock) {
+        this.products = products;
+        this.user = user;
+        this.clock = clock;
+    }
+
+    boolean hasProducts() {
+        return products != null;
+    }
+
+    int uniqueProducts() {
+        return products == null ? 0 : products.size();
+    }
+
+    LocalDate birthDate() {
+        return user.getBirthDate();
+    }
+
+    ZoneId zone() {
+        return clock.getZone();
+    }
+
+    long millis() {
+        return instant().toEpochMilli();
+    }
+
+    LocalDate today() {
+        if (today == null) {
+            today = LocalDate.ofInstant(instant(), clock.getZone());
+        }
+        return today;
+    }
+
+    LocalTime now() {
+        if (now == null) {
+            now = LocalTime.ofInstant(instant(), clock.getZone());
+        }
+        return now;
+    }
+
+    // all the time facts of one evaluation are derived from a single reading of the clock
+    private Instant instant() {
+        if (instant == null) {
+            instant = clock.instant();
+        }
+        return instant;
+    }
+
+    int categoryQuantity(String categoryName) {
+        if (categoryQuantities == null) {
+            countQuantities();
+        }
+        return categoryQuantities.getOrDefault(categoryName, 0);
+    }
+
+    int productQuantity(String productId) {
+        if (productQuantities == null) {
+            countQuantities();
+        }
+        return productQuantities.getOrDefault(productId, 0);
+    }
+
+    private void countQuantities() {
+        categoryQuantities = new HashMap<>();
+        productQuantities = new HashMap<>();
+        if (products == null) {
+            return;
+        }
+        for (ProductWithQuantitiy product : products) {
+            categoryQuantities.merge(product.product().getCategory(), product.quantity(), Integer::sum);
+            productQuantities.merge(product.product().getProductId(), product.quantity(), Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.amazonas.backend.business.stores.purchasePolicy;
+
+import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.backend.business.stores.purchasePolicy.PurchaseRule.*;
+import com.amazonas.backend.business.userProfiles.RegisteredUser;
+import com.amazonas.backend.exceptions.StoreException;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A purchase policy flattened into a pre-order program.
+ * <br/>
+ * Every rule of the tree is one instruction. The children of an 'and'/'or' instruction
+ * follow it directly and are ordered from the cheapest to the most expensive one,
+ * so the cheap rules get the chance to short-circuit the evaluation first.
+ * <code>end[pc]</code> holds the index right after the subtree of the instruction at <code>pc</code>.
+ * <br/>
+ * Subtrees that depend only on the time of day (day and hour restrictions and any 'and'/'or' of them)
+ * change their result only at the edges of their ranges. Their verdict is cached together with
+ * the instant at which it may flip, and is served without re-evaluation until then.
+ */
+public class CompiledPurchasePolicy {
+
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int AGE_RESTRICTION = 2;
+    private static final int MAX_UNIQUE_PRODUCTS = 3;
+    private static final int MIN_UNIQUE_PRODUCTS = 4;
+    private static final int DAY_RESTRICTION = 5;
+    private static final int HOUR_RESTRICTION = 6;
+    private static final int IF_CATEGORY_QUANTITY = 7;
+    private static final int IF_PRODUCT_QUANTITY = 8;
+
+    // upper bound on how long a time verdict is trusted, so a daylight-saving jump cannot keep a stale verdict for long
+    private static final long MAX_VERDICT_AGE_MILLIS = 60 * 60 * 1000;
+
+    private final int[] opcodes;
+    private final int[] end;
+    private final int[] numbers;
+    private final String[] keys;
+    private final long[] rangeStart;
+    private final long[] rangeEnd;
+    private final boolean[] timeOnly;
+    private final TimeVerdict[] timeVerdicts;
+    private final Clock clock;
+
+    private CompiledPurchasePolicy(List<Instruction> program, Clock clock) {
+        this.clock = clock;
+        int size = program.size();
+        opcodes = new int[size];
+        end = new int[size];
+        numbers = new int[size];
+        keys = new String[size];
+        rangeStart = new long[size];
+        rangeEnd = new long[size];
+        timeOnly = new boolean[size];
+        timeVerdicts = new TimeVerdict[size];
+        for (int pc = 0; pc < size; pc++) {
+            Instruction instruction = program.get(pc);
+            opcodes[pc] = instruction.opcode;
+            end[pc] = instruction.end;
+            numbers[pc] = instruction.number;
+            keys[pc] = instruction.key;
+            rangeStart[pc] = instruction.rangeStart;
+            rangeEnd[pc] = instruction.rangeEnd;
+            timeOnly[pc] = instruction.timeOnly;
+        }
+    }
+
+    public static CompiledPurchasePolicy compile(PurchaseRule purchaseRule) throws StoreException {
+        return compile(purchaseRule, Clock.systemDefaultZone());
+    }
+
+    public static CompiledPurchasePolicy compile(PurchaseRule purchaseRule, Clock clock) throws StoreException {
+        List<Instruction> program = new ArrayList<>();
+        flatten(toNode(purchaseRule), program);
+        return new CompiledPurchasePolicy(program, clock);
+    }
+
+    public boolean isSatisfied(List<ProductWithQuantitiy> products, RegisteredUser user) {
+        return evaluate(0, new BasketFacts(products, user, clock));
+    }
+
+    private boolean evaluate(int pc, BasketFacts facts) {
+        if (timeOnly[pc]) {
+            return cachedTimeVerdict(pc, facts);
+        }
+        switch (opcodes[pc]) {
+            case AND -> {
+                for (int child = pc + 1; child < end[pc]; child = end[child]) {
+                    if (!evaluate(child, facts)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case OR -> {
+                for (int child = pc + 1; child < end[pc]; child = end[child]) {
+                    if (evaluate(child, facts)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case AGE_RESTRICTION -> {
+                return facts.birthDate().isBefore(facts.today().minusYears(numbers[pc]).plusDays(1));
+            }
+            case MAX_UNIQUE_PRODUCTS -> {
+                return facts.hasProducts() && facts.uniqueProducts() <= numbers[pc];
+            }
+            case MIN_UNIQUE_PRODUCTS -> {
+                return facts.hasProducts() && facts.uniqueProducts() >= numbers[pc];
+            }
+            case IF_CATEGORY_QUANTITY -> {
+                return facts.categoryQuantity(keys[pc]) < numbers[pc] || evaluate(pc + 1, facts);
+            }
+            case IF_PRODUCT_QUANTITY -> {
+                return facts.productQuantity(keys[pc]) < numbers[pc] || evaluate(pc + 1, facts);
+            }
+            default -> throw new IllegalStateException("Invalid purchase policy instruction");
+        }
+    }
+
+    //====================================================================== |
+    //============================= TIME CACHE ============================= |
+    //====================================================================== |
+
+    // A stale read of timeVerdicts only costs a re-evaluation, since every verdict carries its own expiry
+    private boolean cachedTimeVerdict(int pc, BasketFacts facts) {
+        long now = facts.millis();
+        TimeVerdict verdict = timeVerdicts[pc];
+        if (verdict == null || now >= verdict.validUntil()) {
+            long[] validUntil = {now + MAX_VERDICT_AGE_MILLIS};
+            boolean satisfied = evaluateTime(pc, facts, validUntil);
+            verdict = new TimeVerdict(satisfied, validUntil[0]);
+            timeVerdicts[pc] = verdict;
+        }
+        return verdict.satisfied();
+    }
+
+    /**
+     * Evaluates a time-only subtree and lowers <code>validUntil[0]</code> to the earliest instant
+     * at which one of the rules that decided the result may flip
+     */
+    private boolean evaluateTime(int pc, BasketFacts facts, long[] validUntil) {
+        switch (opcodes[pc]) {
+            case AND -> {
+                for (int child = pc + 1; child < end[pc]; child = end[child]) {
+                    if (!evaluateTime(child, facts, validUntil)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case OR -> {
+                for (int child = pc + 1; child < end[pc]; child = end[child]) {
+                    if (evaluateTime(child, facts, validUntil)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case DAY_RESTRICTION -> {
+                long today = facts.today().toEpochDay();
+                if (today < rangeStart[pc]) {
+                    flipsAt(validUntil, LocalDate.ofEpochDay(rangeStart[pc]), 0, facts.zone());
+                    return true;
+                }
+                if (today <= rangeEnd[pc]) {
+                    flipsAt(validUntil, LocalDate.ofEpochDay(rangeEnd[pc] + 1), 0, facts.zone());
+                    return false;
+                }
+                return true;
+            }
+            case HOUR_RESTRICTION -> {
+                long now = facts.now().toNanoOfDay();
+                if (now < rangeStart[pc]) {
+                    flipsAt(validUntil, facts.today(), rangeStart[pc], facts.zone());
+                    return true;
+                }
+                if (now <= rangeEnd[pc]) {
+                    flipsAt(validUntil, facts.today(), rangeEnd[pc] + 1, facts.zone());
+                    return false;
+                }
+                flipsAt(validUntil, facts.today().plusDays(1), 0, facts.zone());
+                return true;
+            }
+            default -> throw new IllegalStateException("Invalid time restriction instruction");
+        }
+    }
+
+    private static void flipsAt(long[] validUntil, LocalDate date, long nanoOfDay, ZoneId zone) {
+        if (nanoOfDay > LocalTime.MAX.toNanoOfDay()) {
+            date = date.plusDays(1);
+            nanoOfDay = 0;
+        }
+        long millis = date.atTime(LocalTime.ofNanoOfDay(nanoOfDay)).atZone(zone).toInstant().toEpochMilli();
+        validUntil[0] = Math.min(validUntil[0], millis);
+    }
+
+    //====================================================================== |
+    //============================= COMPILATION ============================ |
+    //====================================================================== |
+
+    private static Node toNode(PurchaseRule purchaseRule) throws StoreException {
+        switch (purchaseRule) {
+            case null -> throw new StoreException("Purchase policy cannot be empty");
+            case AgeRestrictionRule rule -> {
+                return Node.leaf(AGE_RESTRICTION, 1, rule.getMinAge(), null, 0, 0);
+            }
+            case MaxUniqueProductsRule rule -> {
+                return Node.leaf(MAX_UNIQUE_PRODUCTS, 1, rule.getLimit(), null, 0, 0);
+            }
+            case MinUniqueProductsRule rule -> {
+                return Node.leaf(MIN_UNIQUE_PRODUCTS, 1, rule.getLimit(), null, 0, 0);
+            }
+            case DayRestrictionRule rule -> {
+                return Node.leaf(DAY_RESTRICTION, 2, 0, null,
+                        rule.getFirstRestrictedDay().toEpochDay(),
+                        rule.getLastRestrictedDay().toEpochDay());
+            }
+            case HoursRestrictionRule rule -> {
+                return Node.leaf(HOUR_RESTRICTION, 2, 0, null,
+                        rule.getStartRestrictionTime().toNanoOfDay(),
+                        rule.getEndRestrictionTime().toNanoOfDay());
+            }
+            case ConditionalProductRule rule -> {
+                Node child = toNode(rule.getPurchaseRule());
+                return new Node(IF_PRODUCT_QUANTITY, 4 + child.cost, rule.getQuantity(), rule.getProductID(), 0, 0, List.of(child));
+            }
+            case ConditionalCategoryRule rule -> {
+                Node child = toNode(rule.getPurchaseRule());
+                return new Node(IF_CATEGORY_QUANTITY, 5 + child.cost, rule.getQuantity(), rule.getCategoryName(), 0, 0, List.of(child));
+            }
+            case AndRule rule -> {
+                return composite(AND, rule.getRules());
+            }
+            case OrRule rule -> {
+                return composite(OR, rule.getRules());
+            }
+            default -> throw new StoreException("Invalid purchase policy");
+        }
+    }
+
+    private static Node composite(int opcode, List<PurchaseRule> rules) throws StoreException {
+        List<Node> children = new ArrayList<>(rules.size());
+        int cost = 1;
+        for (PurchaseRule rule : rules) {
+            Node child = toNode(rule);
+            children.add(child);
+            cost += child.cost;
+        }
+        // 'and' and 'or' are side-effect free, so the children can be evaluated in any order
+        children.sort(Comparator.comparingInt(node -> node.cost));
+        return new Node(opcode, cost, 0, null, 0, 0, children);
+    }
+
+    private static boolean isTimeOnly(Node node) {
+        switch (node.opcode) {
+            case DAY_RESTRICTION, HOUR_RESTRICTION -> {
+                return true;
+            }
+            case AND, OR -> {
+                return !node.children.isEmpty() && node.children.stream().allMatch(CompiledPurchasePolicy::isTimeOnly);
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static void flatten(Node node, List<Instruction> program) {
+        Instruction instruction = new Instruction(node);
+        program.add(instruction);
+        for (Node child : node.children) {
+            flatten(child, program);
+        }
+        instruction.end = program.size();
+    }
+
+    private record Node(int opcode, int cost, int number, String key, long rangeStart, long rangeEnd, List<Node> children) {
+        static Node leaf(int opcode, int cost, int number, String key, long rangeStart, long rangeEnd) {
+            return new Node(opcode, cost, number, key, rangeStart, rangeEnd, List.of());
+        }
+    }
+
+    private static class Instruction {
+        private final int opcode;
+        private final int number;
+        private final String key;
+        private final long rangeStart;
+        private final long rangeEnd;
+        private final boolean timeOnly;
+        private int end;
+
+        private Instruction(Node node) {
+            this.opcode = node.opcode;
+            this.number = node.number;
+            this.key = node.key;
+            this.rangeStart = node.rangeStart;
+            this.rangeEnd = node.rangeEnd;
+            this.timeOnly = isTimeOnly(node);
+        }
+    }
+
+    private record TimeVerdict(boolean satisfied, long validUntil) { }
+}
@@ -6,44 +6,63 @@ import com.amazonas.backend.business.userProfiles.RegisteredUser;
 import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.common.PurchaseRuleDTO.*;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The purchase policy and its compiled program are published together as one immutable snapshot.
+ * Readers take the current snapshot once without locking, writers translate and compile the new policy aside
+ * and replace the snapshot with a single volatile write.
+ */
 public class PurchasePolicyManager {
-    private PurchaseRule purchasePolicy;
+    private static final PolicySnapshot NO_POLICY = new PolicySnapshot(null, null);
+
+    private volatile PolicySnapshot snapshot;
+    private final Clock clock;
 
     public PurchasePolicyManager() {
-        purchasePolicy = null;
+        this(Clock.systemDefaultZone());
+    }
+
+    public PurchasePolicyManager(Clock clock) {
+        this.clock = clock;
+        snapshot = NO_POLICY;
     }
 
     public void changePurchasePolicy(PurchaseRuleDTO purchasePolicy) throws StoreException {
         if (purchasePolicy == null) {
             throw new StoreException("The new purchase policy cannot be empty");
         }
-        this.purchasePolicy = translateFromDTO(purchasePolicy);
+        PurchaseRule newPolicy = translateFromDTO(purchasePolicy);
+        snapshot = new PolicySnapshot(newPolicy, CompiledPurchasePolicy.compile(newPolicy, clock));
     }
 
     public PurchaseRuleDTO getPurchasePolicy () throws StoreException {
-        if (purchasePolicy == null) {
+        PurchaseRule current = snapshot.policy();
+        if (current == null) {
             return null;
         }
-        return translateToDTO(purchasePolicy);
+        return translateToDTO(current);
     }
 
     public boolean deletePurchasePolicy() {
-        purchasePolicy = null;
+        snapshot = NO_POLICY;
         return true;
     }
 
     public boolean isSatisfied(List<ProductWithQuantitiy> products, RegisteredUser user) {
-        if(purchasePolicy == null) {
+        CompiledPurchasePolicy compiledPolicy = snapshot.compiled();
+        if(compiledPolicy == null) {
             return true;
         }
-        return purchasePolicy.isSatisfied(products, user);
+        return compiledPolicy.isSatisfied(products, user);
     }
 
+    private record PolicySnapshot(PurchaseRule policy, CompiledPurchasePolicy compiled) { }
+
 
     //====================================================================== |
     //============================ TRANSLATION ============================= |
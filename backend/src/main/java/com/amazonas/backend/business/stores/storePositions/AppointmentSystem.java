@@ -4,23 +4,32 @@ import com.amazonas.common.dtos.StorePosition;
 import com.amazonas.common.dtos.StoreRole;
 import com.amazonas.common.utils.ReadWriteLock;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 public class AppointmentSystem {
-    private final Map<String, OwnerNode> managersList; // contains all the managers of the store every moment
-    private final OwnerNode ownershipTree; // handle the appointment hierarchy as a tree
-    private final Map<String, OwnerNode> ownershipList; //contains all the owners of the store every moment
+    private final OwnershipTree ownershipTree; // the appointment hierarchy of all the owners and managers
     private final ReadWriteLock appointmentLock;
+    private final String storeId;
+    private final StoreRoleIndex roleIndex;
+    private volatile long version; // bumped on every change of the administration team
+    private volatile Roster roster;
 
     public AppointmentSystem(String storeFounderId) {
-        this.managersList = new HashMap<>();
-        this.ownershipTree = new OwnerNode(storeFounderId, null);
-        this.ownershipList = new HashMap<>();
-        ownershipList.put(ownershipTree.getUserID(), ownershipTree);
+        this(storeFounderId, "", new StoreRoleIndex());
+    }
+
+    /**
+     * @param roleIndex the market wide index of roles, it is updated on every appointment and removal in this store
+     */
+    public AppointmentSystem(String storeFounderId, String storeId, StoreRoleIndex roleIndex) {
+        this.ownershipTree = new OwnershipTree(storeFounderId);
         this.appointmentLock = new ReadWriteLock();
+        this.storeId = storeId;
+        this.roleIndex = roleIndex;
+        roleIndex.put(storeFounderId, storeId, StoreRole.STORE_FOUNDER);
     }
 
     /**
@@ -32,14 +41,10 @@ public class AppointmentSystem {
     public boolean addManager(String appointeeOwnerUserId, String appointedUserId) {
         try {
             appointmentLock.acquireWrite();
-            OwnerNode appointeeNode = ownershipList.get(appointeeOwnerUserId);
-            if (appointeeNode != null) {
-                if (!managersList.containsKey(appointedUserId) && !ownershipList.containsKey(appointedUserId)) {
-                    if(appointeeNode.addManager(appointedUserId)) {
-                        managersList.put(appointedUserId, null);
-                        return true;
-                    }
-                }
+            if (ownershipTree.add(appointeeOwnerUserId, appointedUserId, false) != null) {
+                roleIndex.put(appointedUserId, storeId, StoreRole.STORE_MANAGER);
+                version++;
+                return true;
             }
             return false;
         }
@@ -57,12 +62,12 @@ public class AppointmentSystem {
     public boolean removeManager(String appointeeOwnerUserId, String appointedUserId) {
         try {
             appointmentLock.acquireWrite();
-            OwnerNode appointeeNode = ownershipList.get(appointeeOwnerUserId);
-            if (appointeeNode != null) {
-                if (appointeeNode.deleteManager(appointedUserId)) {
-                    managersList.remove(appointedUserId);
-                    return true;
-                }
+            OwnershipTree.Member manager = appointedBy(appointeeOwnerUserId, appointedUserId);
+            if (manager != null && !manager.isOwner()) {
+                ownershipTree.remove(manager);
+                roleIndex.remove(appointedUserId, storeId);
+                version++;
+                return true;
             }
             return false;
         }
@@ -80,15 +85,10 @@ public class AppointmentSystem {
     public boolean addOwner(String appointeeOwnerUserId, String appointedUserId) {
         try {
             appointmentLock.acquireWrite();
-            OwnerNode appointeeNode = ownershipList.get(appointeeOwnerUserId);
-            if (appointeeNode != null) {
-                if (!ownershipList.containsKey(appointedUserId) && !managersList.containsKey(appointedUserId)) {
-                    OwnerNode appointedNode = appointeeNode.addOwner(appointedUserId);
-                    if (appointedNode != null) {
-                        ownershipList.put(appointedUserId, appointedNode);
-                        return true;
-                    }
-                }
+            if (ownershipTree.add(appointeeOwnerUserId, appointedUserId, true) != null) {
+                roleIndex.put(appointedUserId, storeId, StoreRole.STORE_OWNER);
+                version++;
+                return true;
             }
             return false;
         }
@@ -99,6 +99,7 @@ public class AppointmentSystem {
 
     /**
      * Remove exist owner from the administration team of the store. Along with him, all the other owners and managers appointed by him, and by his descendants, will be removed.
+     * They are removed as one range of the ownership tree.
      * @param appointeeOwnerUserId the original owner who appointed the owner
      * @param appointedUserId the owner ID to remove
      * @return true - if the operation done well, false - otherwise
@@ -106,18 +107,13 @@ public class AppointmentSystem {
     public boolean removeOwner(String appointeeOwnerUserId, String appointedUserId) {
         try {
             appointmentLock.acquireWrite();
-            OwnerNode appointeeNode = ownershipList.get(appointeeOwnerUserId);
-            if (appointeeNode != null) {
-                OwnerNode deletedOwner = appointeeNode.deleteOwner(appointedUserId);
-                if (deletedOwner != null) {
-                    List<String> appointerChildren = deletedOwner.getAllChildren();
-                    for (String appointerToRemove : appointerChildren) {
-                        if (ownershipList.remove(appointerToRemove) == null) {
-                            managersList.remove(appointerToRemove);
-                        }
-                    }
-                    return true;
+            OwnershipTree.Member owner = appointedBy(appointeeOwnerUserId, appointedUserId);
+            if (owner != null && owner.isOwner()) {
+                for (String removed : ownershipTree.remove(owner)) {
+                    roleIndex.remove(removed, storeId);
                 }
+                version++;
+                return true;
             }
             return false;
         }
@@ -127,13 +123,14 @@ public class AppointmentSystem {
     }
 
     /**
-     * The method returns details of the founder of the store.
-     * @return StorePosition with the founder's userId
+     * @return true if the user was appointed by the owner, or by someone the owner appointed, at any depth
      */
-    public StorePosition getFounder() {
+    public boolean isAppointedUnder(String ownerUserId, String userId) {
         try {
             appointmentLock.acquireRead();
-            return new StorePosition(ownershipTree.getUserID(), StoreRole.STORE_FOUNDER);
+            OwnershipTree.Member owner = ownershipTree.get(ownerUserId);
+            OwnershipTree.Member member = ownershipTree.get(userId);
+            return owner != null && member != null && ownershipTree.isUnder(owner, member);
         }
         finally {
             appointmentLock.releaseRead();
@@ -141,19 +138,17 @@ public class AppointmentSystem {
     }
 
     /**
-     * The method returns the details of all the owners except the founder.
-     * @return List of StorePositions with all owners' usernames
+     * @return the user ids of everyone the owner appointed, directly or not, every appointer before its appointees
      */
-    public List<StorePosition> getOwners() {
+    public List<String> getAppointedUnder(String ownerUserId) {
         try {
             appointmentLock.acquireRead();
-            LinkedList<StorePosition> ret = new LinkedList<>();
-            for (String userId : ownershipList.keySet()) {
-                if (!userId.equals(ownershipTree.getUserID())) { //except the founder
-                    ret.add(new StorePosition(userId, StoreRole.STORE_OWNER));
-                }
+            OwnershipTree.Member owner = ownershipTree.get(ownerUserId);
+            if (owner == null) {
+                return List.of();
             }
-            return ret;
+            List<String> ret = ownershipTree.subtree(owner);
+            return ret.subList(1, ret.size());
         }
         finally {
             appointmentLock.releaseRead();
@@ -161,49 +156,81 @@ public class AppointmentSystem {
     }
 
     /**
-     * The method return the details of all the managers of the store.
-     * @return List of StorePositions with all managers' usernames
+     * @return a number that changes whenever an owner or a manager is added or removed
      */
-    public List<StorePosition> getManagers() {
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The method returns details of the founder of the store.
+     * @return StorePosition with the founder's userId
+     */
+    public StorePosition getFounder() {
         try {
             appointmentLock.acquireRead();
-            LinkedList<StorePosition> ret = new LinkedList<>();
-            for (String userId : managersList.keySet()) {
-                ret.add(new StorePosition(userId, StoreRole.STORE_MANAGER));
-            }
-            return ret;
+            return new StorePosition(ownershipTree.getRoot().getUserId(), StoreRole.STORE_FOUNDER);
         }
         finally {
             appointmentLock.releaseRead();
         }
     }
 
+    /**
+     * The method returns the details of all the owners except the founder.
+     * @return List of StorePositions with all owners' usernames
+     */
+    public List<StorePosition> getOwners() {
+        String[] owners = roster().owners();
+        List<StorePosition> ret = new ArrayList<>(owners.length);
+        for (String userId : owners) {
+            ret.add(new StorePosition(userId, StoreRole.STORE_OWNER));
+        }
+        return ret;
+    }
+
+    /**
+     * The method return the details of all the managers of the store.
+     * @return List of StorePositions with all managers' usernames
+     */
+    public List<StorePosition> getManagers() {
+        String[] managers = roster().managers();
+        List<StorePosition> ret = new ArrayList<>(managers.length);
+        for (String userId : managers) {
+            ret.add(new StorePosition(userId, StoreRole.STORE_MANAGER));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the user ids of all the owners except the founder, read from an array that is shared until the team changes
+     */
+    public List<String> getOwnerIds() {
+        return Collections.unmodifiableList(Arrays.asList(roster().owners()));
+    }
+
+    /**
+     * @return the user ids of all the managers, read from an array that is shared until the team changes
+     */
+    public List<String> getManagerIds() {
+        return Collections.unmodifiableList(Arrays.asList(roster().managers()));
+    }
+
     /**
      * The method return the details of all the store admins.
      * @return List of StorePositions with all admins' usernames and their roles
      */
     public List<StorePosition> getAllRoles() {
-        try {
-            appointmentLock.acquireRead();
-            LinkedList<StorePosition> ret = new LinkedList<>();
-            // founder
-            ret.add(new StorePosition(ownershipTree.getUserID(), StoreRole.STORE_FOUNDER));
-            // owners
-            for (String userId : ownershipList.keySet()) {
-                if (!userId.equals(ownershipTree.getUserID())) { //except the founder
-                    ret.add(new StorePosition(userId, StoreRole.STORE_OWNER));
-                }
-            }
-            // managers
-            for (String userId : managersList.keySet()) {
-                ret.add(new StorePosition(userId, StoreRole.STORE_MANAGER));
-            }
-
-            return ret;
+        Roster current = roster();
+        List<StorePosition> ret = new ArrayList<>(1 + current.owners().length + current.managers().length);
+        ret.add(new StorePosition(ownershipTree.getRoot().getUserId(), StoreRole.STORE_FOUNDER));
+        for (String userId : current.owners()) {
+            ret.add(new StorePosition(userId, StoreRole.STORE_OWNER));
         }
-        finally {
-            appointmentLock.releaseRead();
+        for (String userId : current.managers()) {
+            ret.add(new StorePosition(userId, StoreRole.STORE_MANAGER));
         }
+        return ret;
     }
 
     /**
@@ -214,23 +241,61 @@ public class AppointmentSystem {
     public StoreRole getRoleOfUser(String userID) {
         try {
             appointmentLock.acquireRead();
-            if (userID.equals(ownershipTree.getUserID())) {
+            OwnershipTree.Member member = ownershipTree.get(userID);
+            if (member == null) {
+                return StoreRole.NONE;
+            }
+            if (member == ownershipTree.getRoot()) {
                 return StoreRole.STORE_FOUNDER;
             }
-            for (String ownerId : ownershipList.keySet()) {
-                if (ownerId.equals(userID)) {
-                    return StoreRole.STORE_OWNER;
+            return member.isOwner() ? StoreRole.STORE_OWNER : StoreRole.STORE_MANAGER;
+        }
+        finally {
+            appointmentLock.releaseRead();
+        }
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    // the member must have been appointed directly by the appointee
+    private OwnershipTree.Member appointedBy(String appointeeOwnerUserId, String appointedUserId) {
+        OwnershipTree.Member member = ownershipTree.get(appointedUserId);
+        if (member == null || member.getAppointer() == null || !member.getAppointer().getUserId().equals(appointeeOwnerUserId)) {
+            return null;
+        }
+        return member;
+    }
+
+    // the owners and managers are copied once per version of the administration team
+    private Roster roster() {
+        Roster current = roster;
+        if (current != null && current.version() == version) {
+            return current;
+        }
+        try {
+            appointmentLock.acquireRead();
+            List<String> owners = new ArrayList<>();
+            List<String> managers = new ArrayList<>();
+            for (OwnershipTree.Member member : ownershipTree.getMembers()) {
+                if (member == ownershipTree.getRoot()) {
+                    continue;
                 }
-            }
-            for (String managerId : managersList.keySet()) {
-                if (managerId.equals(userID)) {
-                    return StoreRole.STORE_MANAGER;
+                if (member.isOwner()) {
+                    owners.add(member.getUserId());
+                } else {
+                    managers.add(member.getUserId());
                 }
             }
-            return StoreRole.NONE;
+            current = new Roster(version, owners.toArray(String[]::new), managers.toArray(String[]::new));
+            roster = current;
+            return current;
         }
         finally {
             appointmentLock.releaseRead();
         }
     }
+
+    private record Roster(long version, String[] owners, String[] managers) { }
 }
@@ -0,0 +1,227 @@
+package com.amazonas.backend.business.stores.storePositions;
+
+/**
+ * A linked list that tells which of two entries comes first in constant time, by labels that grow along the list.
+ * <br/>
+ * The entries are split into groups of at most <code>GROUP_CAPACITY</code> neighbours. An entry is labeled
+ * inside its group and every group is labeled inside the list, so an insert relabels at most its own group,
+ * and a full group is split in two, which labels one new group.
+ * A new group takes the middle of the gap after its neighbour. When there is no gap the labels of the smallest
+ * aligned range of groups around it that is sparse enough are spread evenly, the ranges may hold fewer groups
+ * the larger they are, so a new group writes a logarithmic number of labels on average.
+ * A group is split only after half of its capacity was inserted into it, which keeps the labels written per insert constant on average.
+ * Not thread safe.
+ */
+class OrderList<T> {
+
+    private static final int GROUP_CAPACITY = 64;
+    private static final int LABEL_BITS = 62;
+    private static final long LABEL_LIMIT = 1L << LABEL_BITS;
+    // a range of 2^i labels is sparse enough while it holds fewer than (2 / DENSITY)^i groups
+    private static final double DENSITY = 1.4;
+
+    static final class Entry<T> {
+        private final T value;
+        private Group group;
+        private long label;
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        private Entry(T value) {
+            this.value = value;
+        }
+
+        T value() {
+            return value;
+        }
+
+        Entry<T> next() {
+            return next;
+        }
+    }
+
+    private static final class Group {
+        private long label;
+        private int size;
+        private Group prev;
+        private Group next;
+    }
+
+    private Entry<T> last;
+
+    /**
+     * Adds the value at the end of the list
+     */
+    Entry<T> append(T value) {
+        if (last != null) {
+            return insertAfter(last, value);
+        }
+        Entry<T> entry = new Entry<>(value);
+        entry.group = new Group();
+        entry.group.size = 1;
+        last = entry;
+        return entry;
+    }
+
+    Entry<T> insertBefore(Entry<T> at, T value) {
+        if (at.prev == null) {
+            throw new IllegalArgumentException("Nothing can be inserted before the first entry");
+        }
+        return insertAfter(at.prev, value);
+    }
+
+    Entry<T> insertAfter(Entry<T> at, T value) {
+        if (at.group.size >= GROUP_CAPACITY) {
+            split(at);
+        }
+        Group group = at.group;
+        if (labelAfter(at) - at.label < 2) {
+            spread(at);
+        }
+        Entry<T> entry = new Entry<>(value);
+        entry.group = group;
+        entry.label = at.label + (labelAfter(at) - at.label) / 2;
+        entry.prev = at;
+        entry.next = at.next;
+        if (at.next != null) {
+            at.next.prev = entry;
+        } else {
+            last = entry;
+        }
+        at.next = entry;
+        group.size++;
+        return entry;
+    }
+
+    /**
+     * @return true if a comes before b
+     */
+    boolean precedes(Entry<T> a, Entry<T> b) {
+        return a.group == b.group ? a.label < b.label : a.group.label < b.group.label;
+    }
+
+    /**
+     * Removes the entries from first to last, both included
+     */
+    void remove(Entry<T> first, Entry<T> last) {
+        Entry<T> after = last.next;
+        for (Entry<T> entry = first; entry != after; entry = entry.next) {
+            Group group = entry.group;
+            if (--group.size == 0) {
+                if (group.prev != null) {
+                    group.prev.next = group.next;
+                }
+                if (group.next != null) {
+                    group.next.prev = group.prev;
+                }
+            }
+        }
+        if (first.prev != null) {
+            first.prev.next = after;
+        }
+        if (after != null) {
+            after.prev = first.prev;
+        } else {
+            this.last = first.prev;
+        }
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private long labelAfter(Entry<T> entry) {
+        return entry.next != null && entry.next.group == entry.group ? entry.next.label : LABEL_LIMIT;
+    }
+
+    private Entry<T> firstOfGroup(Entry<T> entry) {
+        Entry<T> first = entry;
+        while (first.prev != null && first.prev.group == entry.group) {
+            first = first.prev;
+        }
+        return first;
+    }
+
+    /**
+     * Spreads the labels of the group of the entry evenly
+     */
+    private void spread(Entry<T> entry) {
+        Group group = entry.group;
+        long step = LABEL_LIMIT / (group.size + 1);
+        long label = 0;
+        for (Entry<T> e = firstOfGroup(entry); e != null && e.group == group; e = e.next) {
+            e.label = label;
+            label += step;
+        }
+    }
+
+    /**
+     * Moves the second half of the group of the entry to a new group right after it
+     */
+    private void split(Entry<T> entry) {
+        Group group = entry.group;
+        Group second = insertGroupAfter(group);
+        Entry<T> head = firstOfGroup(entry);
+        Entry<T> secondHead = head;
+        for (int i = 0; i < group.size / 2; i++) {
+            secondHead = secondHead.next;
+        }
+        for (Entry<T> e = secondHead; e != null && e.group == group; e = e.next) {
+            e.group = second;
+            second.size++;
+        }
+        group.size -= second.size;
+        spread(head);
+        spread(secondHead);
+    }
+
+    private Group insertGroupAfter(Group group) {
+        if (groupLabelAfter(group) - group.label < 2) {
+            makeRoom(group);
+        }
+        Group inserted = new Group();
+        inserted.label = group.label + (groupLabelAfter(group) - group.label) / 2;
+        inserted.prev = group;
+        inserted.next = group.next;
+        if (group.next != null) {
+            group.next.prev = inserted;
+        }
+        group.next = inserted;
+        return inserted;
+    }
+
+    private long groupLabelAfter(Group group) {
+        return group.next != null ? group.next.label : LABEL_LIMIT;
+    }
+
+    /**
+     * Spreads the labels of the smallest aligned range of groups around the group that is sparse enough
+     */
+    private void makeRoom(Group group) {
+        Group first = group;
+        Group last = group;
+        int count = 1;
+        for (int i = 1; i <= LABEL_BITS; i++) {
+            long low = group.label >>> i << i;
+            long high = low + (1L << i);
+            while (first.prev != null && first.prev.label >= low) {
+                first = first.prev;
+                count++;
+            }
+            while (last.next != null && last.next.label < high) {
+                last = last.next;
+                count++;
+            }
+            long step = (1L << i) / (count + 1);
+            if (count < Math.pow(2 / DENSITY, i) && step >= 2) {
+                long label = low;
+                for (Group g = first; g != last.next; g = g.next) {
+                    g.label = label;
+                    label += step;
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("The list is out of labels");
+    }
+}
@@ -0,0 +1,123 @@
+package com.amazonas.backend.business.stores.storePositions;
+
+import java.util.*;
+
+/**
+ * The appointment hierarchy of a store, indexed by an Euler tour.
+ * <br/>
+ * Every member enters the tour before and exits it after everyone it appointed, directly or not.
+ * Checking if one member is under another compares positions in the tour, and the members
+ * under someone are a range of the tour, so they are listed and removed without walking the tree.
+ * <br/>
+ * The tour is an {@link OrderList}, a new member is inserted right before the exit of its appointer
+ * and relabels only its neighbourhood of the tour.
+ * Not thread safe, the {@link AppointmentSystem} guards it.
+ */
+class OwnershipTree {
+
+    static final class Member {
+        private final String userId;
+        private final boolean owner;
+        private final Member appointer;
+        private OrderList.Entry<Member> enter;
+        private OrderList.Entry<Member> exit;
+
+        private Member(String userId, boolean owner, Member appointer) {
+            this.userId = userId;
+            this.owner = owner;
+            this.appointer = appointer;
+        }
+
+        String getUserId() {
+            return userId;
+        }
+
+        boolean isOwner() {
+            return owner;
+        }
+
+        Member getAppointer() {
+            return appointer;
+        }
+    }
+
+    private final Member root;
+    private final Map<String, Member> members;
+    private final OrderList<Member> tour;
+
+    OwnershipTree(String founderId) {
+        root = new Member(founderId, true, null);
+        members = new HashMap<>();
+        tour = new OrderList<>();
+        root.enter = tour.append(root);
+        root.exit = tour.append(root);
+        members.put(founderId, root);
+    }
+
+    Member getRoot() {
+        return root;
+    }
+
+    Member get(String userId) {
+        return members.get(userId);
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    Collection<Member> getMembers() {
+        return members.values();
+    }
+
+    /**
+     * @return the new member, or null if the user is already a member or the appointer is not an owner
+     */
+    Member add(String appointerId, String userId, boolean owner) {
+        Member appointer = members.get(appointerId);
+        if (appointer == null || !appointer.owner || members.containsKey(userId)) {
+            return null;
+        }
+        Member member = new Member(userId, owner, appointer);
+        member.enter = tour.insertBefore(appointer.exit, member);
+        member.exit = tour.insertAfter(member.enter, member);
+        members.put(userId, member);
+        return member;
+    }
+
+    /**
+     * @return true if the member was appointed by someone who was appointed by the ancestor, at any depth
+     */
+    boolean isUnder(Member ancestor, Member member) {
+        return tour.precedes(ancestor.enter, member.enter) && tour.precedes(member.exit, ancestor.exit);
+    }
+
+    /**
+     * @return the member and everyone under it, in tour order
+     */
+    List<String> subtree(Member member) {
+        List<String> ret = new ArrayList<>();
+        for (OrderList.Entry<Member> e = member.enter; e != member.exit; e = e.next()) {
+            if (e == e.value().enter) {
+                ret.add(e.value().userId);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Removes the member and everyone under it as one range of the tour
+     * @return the user ids of the removed members
+     */
+    List<String> remove(Member member) {
+        if (member == root) {
+            throw new IllegalArgumentException("The founder cannot be removed");
+        }
+        List<String> removed = subtree(member);
+        for (String userId : removed) {
+            members.remove(userId);
+        }
+        tour.remove(member.enter, member.exit);
+        return removed;
+    }
+}
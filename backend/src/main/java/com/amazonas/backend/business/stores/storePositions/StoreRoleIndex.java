@@ -0,0 +1,63 @@
+package com.amazonas.backend.business.stores.storePositions;
+
+import com.amazonas.common.dtos.StoreRole;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The roles of every user in every store of the market, indexed by the user.
+ * <br/>
+ * The appointment systems of the stores keep it up to date, so the stores of a user
+ * are found without going through all the stores.
+ */
+@Component("storeRoleIndex")
+public class StoreRoleIndex {
+
+    private final Map<String, Map<String, StoreRole>> rolesByUser;
+
+    public StoreRoleIndex() {
+        rolesByUser = new ConcurrentHashMap<>();
+    }
+
+    // the roles of a user are an immutable map that is replaced on every change, a user holds roles in a few stores
+    void put(String userId, String storeId, StoreRole role) {
+        rolesByUser.compute(userId, (_, roles) -> {
+            if (roles == null) {
+                return Map.of(storeId, role);
+            }
+            Map<String, StoreRole> ret = new HashMap<>(roles);
+            ret.put(storeId, role);
+            return Map.copyOf(ret);
+        });
+    }
+
+    void remove(String userId, String storeId) {
+        rolesByUser.computeIfPresent(userId, (_, roles) -> {
+            if (!roles.containsKey(storeId)) {
+                return roles;
+            }
+            if (roles.size() == 1) {
+                return null;
+            }
+            Map<String, StoreRole> ret = new HashMap<>(roles);
+            ret.remove(storeId);
+            return Map.copyOf(ret);
+        });
+    }
+
+    /**
+     * @return the role of the user in every store it has one in, by store id
+     */
+    public Map<String, StoreRole> getRoles(String userId) {
+        Map<String, StoreRole> roles = rolesByUser.get(userId);
+        return roles == null ? Map.of() : roles;
+    }
+
+    public StoreRole getRole(String userId, String storeId) {
+        Map<String, StoreRole> roles = rolesByUser.get(userId);
+        return roles == null ? StoreRole.NONE : roles.getOrDefault(storeId, StoreRole.NONE);
+    }
+}
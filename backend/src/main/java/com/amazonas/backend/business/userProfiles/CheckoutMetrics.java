@@ -0,0 +1,60 @@
+package com.amazonas.backend.business.userProfiles;
+
+import java.util.Arrays;
+
+/**
+ * Latency and throughput of the checkout pipeline.
+ * <br/>
+ * The latencies of the last {@value #WINDOW} checkouts are kept in a ring, and the percentiles are computed over it on demand.
+ * Throughput is the number of finished checkouts per second since the first one started.
+ */
+public class CheckoutMetrics {
+
+    private static final int WINDOW = 4096;
+
+    private final long[] latencies;
+    private long recorded;
+    private long succeeded;
+    private long failed;
+    private long firstStart;
+    private long lastEnd;
+
+    public CheckoutMetrics() {
+        latencies = new long[WINDOW];
+    }
+
+    public synchronized void record(long startNanos, long endNanos, boolean success) {
+        if (recorded == 0 || startNanos < firstStart) {
+            firstStart = startNanos;
+        }
+        lastEnd = Math.max(lastEnd, endNanos);
+        latencies[(int) (recorded++ % WINDOW)] = endNanos - startNanos;
+        if (success) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        int size = (int) Math.min(recorded, WINDOW);
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        double seconds = (lastEnd - firstStart) / 1_000_000_000.0;
+        return new Snapshot(succeeded,
+                            failed,
+                            percentileMillis(sorted, 50),
+                            percentileMillis(sorted, 99),
+                            seconds > 0 ? recorded / seconds : 0);
+    }
+
+    private static double percentileMillis(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    public record Snapshot(long succeeded, long failed, double p50Millis, double p99Millis, double checkoutsPerSecond) { }
+}
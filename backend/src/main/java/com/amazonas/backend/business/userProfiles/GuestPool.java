@@ -0,0 +1,120 @@
+package com.amazonas.backend.business.userProfiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * A pool of guests that were allocated ahead of time, so entering the market as a guest only pops one.
+ * <br/>
+ * A background refiller tops the pool up to its capacity whenever it drops below half.
+ * When the pool is empty, or the refiller is not running, {@link #take()} allocates the guest on the caller's thread.
+ */
+public class GuestPool {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestPool.class);
+
+    private static final Duration IDLE_CHECK = Duration.ofSeconds(1);
+
+    public record PreparedGuest(Guest guest, ShoppingCart cart) { }
+
+    private final Function<String, ShoppingCart> cartFactory;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final BlockingQueue<PreparedGuest> ready;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private volatile Thread refiller;
+
+    public GuestPool(Function<String, ShoppingCart> cartFactory, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.cartFactory = cartFactory;
+        this.capacity = capacity;
+        lowWaterMark = Math.max(1, capacity / 2);
+        ready = new ArrayBlockingQueue<>(capacity);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    public synchronized void start() {
+        if (refiller != null) {
+            return;
+        }
+        refiller = Thread.ofPlatform().name("guest-pool-refiller").daemon(true).start(this::refill);
+    }
+
+    public synchronized void stop() {
+        if (refiller != null) {
+            refiller.interrupt();
+            refiller = null;
+        }
+    }
+
+    public PreparedGuest take() {
+        PreparedGuest guest = ready.poll();
+        if (guest == null) {
+            misses.increment();
+            guest = prepare();
+        } else {
+            hits.increment();
+        }
+        Thread current = refiller;
+        if (current != null && ready.size() < lowWaterMark) {
+            LockSupport.unpark(current);
+        }
+        return guest;
+    }
+
+    /**
+     * Tops the pool up to its capacity on the caller's thread
+     * @return the number of guests that were added
+     */
+    public int fill() {
+        int added = 0;
+        while (ready.size() < capacity && ready.offer(prepare())) {
+            added++;
+        }
+        return added;
+    }
+
+    public int getReadyCount() {
+        return ready.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private PreparedGuest prepare() {
+        String guestInitialId = UUID.randomUUID().toString();
+        return new PreparedGuest(new Guest(guestInitialId), cartFactory.apply(guestInitialId));
+    }
+
+    private void refill() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                fill();
+            } catch (RuntimeException e) {
+                log.error("Failed to refill the guest pool", e);
+            }
+            LockSupport.parkNanos(IDLE_CHECK.toNanos());
+        }
+    }
+}
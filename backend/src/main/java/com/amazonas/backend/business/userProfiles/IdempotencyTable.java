@@ -0,0 +1,116 @@
+package com.amazonas.backend.business.userProfiles;
+
+import com.amazonas.backend.exceptions.PurchaseFailedException;
+import com.amazonas.backend.exceptions.UserException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Remembers the outcome of the purchase operations that were called with a client idempotency key.
+ * <br/>
+ * The first call with a key runs the operation and records its outcome, success or exception.
+ * A later call with the same key returns that outcome without running the operation again,
+ * and a call that arrives while the first one is still running waits for it.
+ * The table keeps at most <code>capacity</code> keys, each for at most <code>ttl</code>, and drops the oldest first.
+ */
+public class IdempotencyTable {
+
+    @FunctionalInterface
+    public interface PurchaseAction {
+        void run() throws PurchaseFailedException, UserException;
+    }
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    public IdempotencyTable(int capacity, Duration ttl) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+        // insertion order, so the eldest entries are both the first to expire and the first to evict
+        entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Runs the action once per key
+     * @param key the scope of the operation and the client key, e.g. "payforpurchase:user1:3f2a..."
+     */
+    public void runOnce(String key, PurchaseAction action) throws PurchaseFailedException, UserException {
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        CompletableFuture<Void> recorded;
+        synchronized (entries) {
+            long now = System.nanoTime();
+            evict(now, capacity);
+            Entry existing = entries.get(key);
+            recorded = existing == null ? null : existing.outcome;
+            if (recorded == null) {
+                evict(now, capacity - 1);
+                entries.put(key, new Entry(outcome, now + ttlNanos));
+            }
+        }
+
+        if (recorded != null) {
+            await(recorded);
+            return;
+        }
+
+        try {
+            action.run();
+            outcome.complete(null);
+        } catch (Throwable e) {
+            // even an error has to complete the outcome, or the duplicates of the key wait for it forever
+            outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            evict(System.nanoTime(), capacity);
+            return entries.size();
+        }
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private void evict(long now, int maxSize) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            // an operation that is still running does not expire, its duplicates have to find it, only a full table drops it
+            boolean expired = now - entry.expiresAt >= 0 && entry.outcome.isDone();
+            if (!expired && entries.size() <= maxSize) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    private static void await(CompletableFuture<Void> recorded) throws PurchaseFailedException, UserException {
+        try {
+            recorded.get();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case PurchaseFailedException cause -> throw cause;
+                case UserException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new PurchaseFailedException("The purchase failed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PurchaseFailedException("The purchase was interrupted");
+        }
+    }
+
+    private record Entry(CompletableFuture<Void> outcome, long expiresAt) { }
+}
@@ -3,25 +3,36 @@ package com.amazonas.backend.business.userProfiles;
 import com.amazonas.backend.business.stores.reservations.Reservation;
 import com.amazonas.backend.exceptions.PurchaseFailedException;
 import com.amazonas.backend.exceptions.ShoppingCartException;
+import com.amazonas.common.utils.Money;
 import com.amazonas.common.utils.ReadWriteLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.*;
 
 public class ShoppingCart {
     private static final Logger log = LoggerFactory.getLogger(ShoppingCart.class);
+    private static final Duration RESERVATION_DEADLINE = Duration.ofSeconds(10);
+    // every basket is reserved on its own virtual thread, so the stores are locked in parallel
+    private static final ExecutorService reservationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     private final StoreBasketFactory storeBasketFactory;
     private final String userId;
     private final ReadWriteLock lock;
 
     private final Map<String,StoreBasket> baskets; // storeName --> StoreBasket
+    private transient volatile Map<String, Duration> lastReservationTimings;
+
     public ShoppingCart(StoreBasketFactory storeBasketFactory, String userId){
         this.storeBasketFactory = storeBasketFactory;
         this.userId = userId;
         baskets = new HashMap<>();
         lock = new ReadWriteLock();
+        lastReservationTimings = Map.of();
     }
 
     //====================================================================================== |
@@ -50,11 +61,15 @@ public class ShoppingCart {
     }
 
     public double getTotalPrice() {
+        return Money.toDouble(getTotalPriceInCents());
+    }
+
+    public long getTotalPriceInCents() {
         try{
             lock.acquireRead();
-            double totalPrice = 0;
+            long totalPrice = 0;
             for (var basket : baskets.values()) {
-                totalPrice += basket.getTotalPrice();
+                totalPrice += basket.getTotalPriceInCents();
             }
             return totalPrice;
         } finally {
@@ -63,6 +78,8 @@ public class ShoppingCart {
     }
 
     public Map<String, Reservation> reserveCart() throws PurchaseFailedException {
+        Map<String, CompletableFuture<Reservation>> pending = new HashMap<>();
+        Map<String, Reservation> reservations;
         try{
             lock.acquireWrite();
             if(!isCartReservable()){
@@ -74,25 +91,45 @@ public class ShoppingCart {
                 log.debug("Cart is empty");
                 throw new PurchaseFailedException("Cart is empty");
             }
-            Map<String, Reservation> reservations = new HashMap<>();
+            Map<String, Duration> timings = new ConcurrentHashMap<>();
             for(var entry : baskets.entrySet()){
-                Reservation r = entry.getValue().reserveBasket();
-
-                // If the reservation is null it means that the reservation failed,
-                // so we need to cancel all the reservations that were made so far
-                if (r == null){
-                    reservations.values().forEach(Reservation::cancelReservation);
-                    log.debug("Could not reserve some of the products in the cart for user {}.", userId);
-                    throw new PurchaseFailedException("Could not reserve some of the products in the cart.");
-                }
+                String storeId = entry.getKey();
+                StoreBasket basket = entry.getValue();
+                pending.put(storeId, CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        return basket.reserveBasket();
+                    } finally {
+                        timings.put(storeId, Duration.ofNanos(System.nanoTime() - start));
+                    }
+                }, reservationExecutor));
+            }
 
-                // reservation was successful
-                reservations.put(entry.getKey(),r);
+            try {
+                reservations = awaitReservations(pending);
+            } finally {
+                lastReservationTimings = Collections.unmodifiableMap(timings);
+                log.debug("Reservation times of the cart of user {}: {}", userId, timings);
             }
-            return reservations;
         } finally {
             lock.releaseWrite();
         }
+
+        if (reservations == null) {
+            // cancelling unreserves the basket under the cart lock, which is not reentrant, so only after releasing it
+            cancelReservations(pending);
+            log.debug("Could not reserve some of the products in the cart for user {}.", userId);
+            throw new PurchaseFailedException("Could not reserve some of the products in the cart.");
+        }
+        return reservations;
+    }
+
+    /**
+     * @return how long the reservation of every basket took in the last call to {@link #reserveCart()},
+     * a basket that did not finish before the deadline is missing
+     */
+    public Map<String, Duration> getLastReservationTimings() {
+        return lastReservationTimings == null ? Map.of() : lastReservationTimings;
     }
 
     public void unReserve(String storeId) throws ShoppingCartException {
@@ -152,6 +189,42 @@ public class ShoppingCart {
         return baskets.get(storeName);
     }
 
+    /**
+     * @return the reservation of every basket, or null if one of them failed or did not finish before the deadline
+     */
+    private Map<String, Reservation> awaitReservations(Map<String, CompletableFuture<Reservation>> pending) {
+        long deadline = System.nanoTime() + RESERVATION_DEADLINE.toNanos();
+        Map<String, Reservation> reservations = new HashMap<>();
+        try {
+            for (var entry : pending.entrySet()) {
+                Reservation r = entry.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                // If the reservation is null it means that the reservation failed
+                if (r == null) {
+                    break;
+                }
+                reservations.put(entry.getKey(), r);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Reserving a basket of user {} failed or timed out.", userId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return reservations.size() == pending.size() ? reservations : null;
+    }
+
+    /**
+     * Cancels every reservation that was made, including the ones that complete after the deadline
+     */
+    private void cancelReservations(Map<String, CompletableFuture<Reservation>> pending) {
+        pending.values().forEach(f -> f.thenAccept(r -> {
+            if (r != null) {
+                r.cancelReservation();
+            }
+        }));
+    }
+
     private boolean isCartReservable(){
         for (StoreBasket basket : baskets.values()) {
             if (basket.isReserved()) {
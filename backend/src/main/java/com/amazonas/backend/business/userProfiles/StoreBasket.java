@@ -2,26 +2,28 @@ package com.amazonas.backend.business.userProfiles;
 
 import com.amazonas.backend.business.stores.reservations.Reservation;
 import com.amazonas.backend.exceptions.ShoppingCartException;
+import com.amazonas.common.utils.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class StoreBasket {
     private static final Logger log = LoggerFactory.getLogger(StoreBasket.class);
     private final Function<Map<String,Integer>, Reservation> makeReservation;
-    private final Function<Map<String, Integer>, Double> calculatePrice;
+    private final ToLongFunction<Map<String, Integer>> calculatePriceInCents;
     private Map<String, Integer> products; // productId --> quantity
     private boolean reserved;
 
     public StoreBasket (Function<Map<String,Integer>,
                         Reservation> makeReservation,
-                        Function<Map<String,Integer>,Double> calculatePrice){
+                        ToLongFunction<Map<String,Integer>> calculatePriceInCents){
 
         this.makeReservation = makeReservation;
-        this.calculatePrice = calculatePrice;
+        this.calculatePriceInCents = calculatePriceInCents;
         products = new HashMap<>();
     }
 
@@ -82,7 +84,11 @@ public class StoreBasket {
     }
 
     public double getTotalPrice() {
-        return calculatePrice.apply(getProducts());
+        return Money.toDouble(getTotalPriceInCents());
+    }
+
+    public long getTotalPriceInCents() {
+        return calculatePriceInCents.applyAsLong(getProducts());
     }
 
     public Map<String,Integer> getProducts() {
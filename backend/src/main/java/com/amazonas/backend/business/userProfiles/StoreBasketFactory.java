@@ -15,6 +15,6 @@ public class StoreBasketFactory {
 
     public StoreBasket get(String storeId, String userId){
         return new StoreBasket(storeCallbackFactory.makeReservation(storeId, userId),
-                                storeCallbackFactory.calculatePrice(storeId));
+                                storeCallbackFactory.calculatePriceInCents(storeId));
     }
 }
@@ -4,28 +4,37 @@ import com.amazonas.backend.ConfigurationValues;
 import com.amazonas.backend.business.authentication.AuthenticationController;
 import com.amazonas.backend.business.authentication.UserCredentials;
 import com.amazonas.backend.business.notifications.NotificationController;
+import com.amazonas.backend.business.outbox.OwnerNotificationHandler;
+import com.amazonas.backend.business.payment.PaymentMethod;
 import com.amazonas.backend.business.payment.PaymentService;
 import com.amazonas.backend.business.permissions.PermissionsController;
-import com.amazonas.backend.business.stores.Store;
 import com.amazonas.backend.business.stores.reservations.Reservation;
 import com.amazonas.common.dtos.Transaction;
-import com.amazonas.backend.exceptions.NotificationException;
 import com.amazonas.backend.exceptions.PurchaseFailedException;
 import com.amazonas.backend.exceptions.ShoppingCartException;
+import com.amazonas.backend.exceptions.ThrottledException;
 import com.amazonas.backend.exceptions.UserException;
 import com.amazonas.backend.repository.*;
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.dtos.UserInformation;
 import com.amazonas.common.utils.ReadWriteLock;
+import com.amazonas.common.utils.StripedLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +43,10 @@ import static com.amazonas.backend.business.authentication.AuthenticationControl
 @Component("usersController")
 public class UsersController {
     private static final Logger log = LoggerFactory.getLogger(UsersController.class);
+    private static final int IDEMPOTENCY_CAPACITY = 10_000;
+    private static final Duration IDEMPOTENCY_TTL = Duration.ofMinutes(10);
+    private static final int USER_LOCK_STRIPES = 256;
+    private static final int GUEST_POOL_CAPACITY = 4096;
     private final PaymentService paymentService;
     private final UserRepository userRepository;
     private final ReservationRepository reservationRepository;
@@ -45,12 +58,21 @@ public class UsersController {
     private final AuthenticationController authenticationController;
     private final PermissionsController permissionsController;
     private final NotificationController notificationController;
+    private final OutboxRepository outboxRepository;
 
     private final Map<String, ShoppingCart> guestCarts;
     private final Map<String,Guest> guests;
     private final Map<String,User> onlineRegisteredUsers;
 
-    private final ReadWriteLock lock;
+    // the lifecycle of a user is serialized by the stripe of its id, unrelated users do not wait for each other
+    private final StripedLock userLocks;
+    private final GuestPool guestPool;
+
+    // checkouts are isolated per user: a user has at most one purchase being paid or canceled at a time
+    private final Set<String> usersInCheckout;
+    private final ExecutorService paymentExecutor;
+    private final CheckoutMetrics checkoutMetrics;
+    private final IdempotencyTable purchaseRequests;
 
     public UsersController(UserRepository userRepository,
                            ReservationRepository reservationRepository,
@@ -61,7 +83,8 @@ public class UsersController {
                            AuthenticationController authenticationController,
                            ShoppingCartRepository shoppingCartRepository,
                            PermissionsController permissionsController,
-                           NotificationController notificationController, StoreRepository storeRepository) {
+                           NotificationController notificationController, StoreRepository storeRepository,
+                           OutboxRepository outboxRepository) {
         this.userRepository = userRepository;
         this.paymentService = paymentService;
         this.shoppingCartFactory = shoppingCartFactory;
@@ -72,17 +95,24 @@ public class UsersController {
         this.shoppingCartRepository = shoppingCartRepository;
         this.permissionsController = permissionsController;
 
-        guests = new HashMap<>();
-        onlineRegisteredUsers = new HashMap<>();
-        guestCarts = new HashMap<>();
-        lock = new ReadWriteLock();
+        guests = new ConcurrentHashMap<>();
+        onlineRegisteredUsers = new ConcurrentHashMap<>();
+        guestCarts = new ConcurrentHashMap<>();
+        userLocks = new StripedLock(USER_LOCK_STRIPES);
+        guestPool = new GuestPool(shoppingCartFactory::get, GUEST_POOL_CAPACITY);
+        usersInCheckout = ConcurrentHashMap.newKeySet();
+        paymentExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        checkoutMetrics = new CheckoutMetrics();
+        purchaseRequests = new IdempotencyTable(IDEMPOTENCY_CAPACITY, IDEMPOTENCY_TTL);
         this.notificationController = notificationController;
         this.storeRepository = storeRepository;
+        this.outboxRepository = outboxRepository;
     }
 
     //generate admin user
     @EventListener
     public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        guestPool.start();
         try {
             String adminId = ConfigurationValues.getProperty("ADMIN_ID");
             //String adminId = "admin";
@@ -136,22 +166,29 @@ public class UsersController {
             throw new UserException("Invalid birth date.");
         }
 
+        // the password is hashed first, a registration refused by a busy hasher leaves nothing behind
+        try{
+            authenticationController.createUser(new UserCredentials(userId, password));
+        } catch (ThrottledException e) {
+            log.debug("Registration of user with id: {} was refused: {}", userId, e.getMessage());
+            throw new UserException("Too many registrations, try again in " + Math.max(1, e.getRetryAfter().toSeconds()) + " seconds");
+        }
         RegisteredUser newRegisteredUser = new RegisteredUser(userId,email, birthDate);
         userRepository.saveUser(newRegisteredUser);
         shoppingCartRepository.saveCart(shoppingCartFactory.get(userId));
-        authenticationController.createUser(new UserCredentials(userId, password));
         permissionsController.registerUser(userId);
         log.debug("User with id: {} registered successfully", userId);
     }
 
     public String enterAsGuest() {
-        try{
-            String guestInitialId = UUID.randomUUID().toString();
-            Guest newGuest = new Guest(guestInitialId);
+        GuestPool.PreparedGuest newGuest = guestPool.take();
+        String guestInitialId = newGuest.guest().getUserId();
 
+        ReadWriteLock lock = userLocks.get(guestInitialId);
+        try{
             lock.acquireWrite();
-            guests.put(guestInitialId,newGuest);
-            guestCarts.put(guestInitialId,shoppingCartFactory.get(guestInitialId));
+            guests.put(guestInitialId,newGuest.guest());
+            guestCarts.put(guestInitialId,newGuest.cart());
             authenticationController.createGuest(guestInitialId);
             permissionsController.registerGuest(guestInitialId);
             log.debug("Guest with id: {} entered the market", guestInitialId);
@@ -173,8 +210,9 @@ public class UsersController {
 
         User loggedInUser = userRepository.getUser(userId);
         ShoppingCart cartOfGuest;
+        List<ReadWriteLock> locks = userLocks.getAll(guestInitialId, userId);
         try{
-            lock.acquireWrite();
+            locks.forEach(ReadWriteLock::acquireWrite);
             //remove guest from system
             guests.remove(guestInitialId);
             authenticationController.revokeAuthentication(guestInitialId);
@@ -186,7 +224,7 @@ public class UsersController {
             onlineRegisteredUsers.put(userId,loggedInUser);
             log.debug("User with id: {} logged in successfully", userId);
         } finally {
-            lock.releaseWrite();
+            locks.reversed().forEach(ReadWriteLock::releaseWrite);
         }
 
         ShoppingCart cartOfUser = shoppingCartRepository.getCart(userId);
@@ -198,15 +236,14 @@ public class UsersController {
     public void logout(String userId) throws UserException {
         userId = userId.toLowerCase();
 
-        if(!onlineRegisteredUsers.containsKey(userId)){
-            log.debug("User with id: {} is not online", userId);
-            throw new UserException("User with id: " + userId + " is not online");
-        }
-
-        authenticationController.revokeAuthentication(userId);
-
+        ReadWriteLock lock = userLocks.get(userId);
         try{
             lock.acquireWrite();
+            if(!onlineRegisteredUsers.containsKey(userId)){
+                log.debug("User with id: {} is not online", userId);
+                throw new UserException("User with id: " + userId + " is not online");
+            }
+            authenticationController.revokeAuthentication(userId);
             onlineRegisteredUsers.remove(userId);
             log.debug("User with id: {} logged out successfully", userId);
         }
@@ -216,16 +253,17 @@ public class UsersController {
     }
 
     public void logoutAsGuest(String guestInitialId) throws UserException {
-        if(!guests.containsKey(guestInitialId)){
-            log.debug("Guest with id: {} is not in the market", guestInitialId);
-            throw new UserException("Guest with id: " + guestInitialId + " is not in the market");
-        }
-        authenticationController.revokeAuthentication(guestInitialId);
-        authenticationController.removeGuest(guestInitialId);
-        permissionsController.removeGuest(guestInitialId);
-
+        ReadWriteLock lock = userLocks.get(guestInitialId);
         try{
             lock.acquireWrite();
+            if(!guests.containsKey(guestInitialId)){
+                log.debug("Guest with id: {} is not in the market", guestInitialId);
+                throw new UserException("Guest with id: " + guestInitialId + " is not in the market");
+            }
+            authenticationController.revokeAuthentication(guestInitialId);
+            authenticationController.removeGuest(guestInitialId);
+            permissionsController.removeGuest(guestInitialId);
+
             //the guest exits the system, therefore his cart removes from the system
             guestCarts.remove(guestInitialId);
             guests.remove(guestInitialId);
@@ -242,14 +280,9 @@ public class UsersController {
         if(userRepository.userIdExists(userId)){
             return userRepository.getUser(userId);
         }
-        try{
-            lock.acquireRead();
-            if(guests.containsKey(userId)){
-                return guests.get(userId);
-            }
-        }
-        finally {
-            lock.releaseRead();
+        Guest guest = guests.get(userId);
+        if(guest != null){
+            return guest;
         }
         log.debug("User with id: {} does not exist", userId);
         throw new UserException("The user does not exists");
@@ -305,66 +338,77 @@ public class UsersController {
         log.debug("Cart of user with id: {} reserved successfully", userId);
     }
 
-    public void payForPurchase(String userId) throws PurchaseFailedException, UserException {
-        userId = userId.toLowerCase();
-        try{
-            lock.acquireWrite();
-
-            List<Reservation> reservations = reservationRepository.getReservations(userId);
-            if(reservations.isEmpty()){
-                log.debug("No reservations to pay for user with id: {}", userId);
-                throw new PurchaseFailedException("No reservations to pay for");
-            }
-
-            // charge the user
-            ShoppingCart cart = getCartWithValidation(userId);
-            User user = userRepository.getUser(userId);
-            if(! paymentService.charge(user.getPaymentMethod(), cart.getTotalPrice())){
-                final String finalUserId = userId;
-                reservations.forEach(r -> {
-                    r.cancelReservation();
-                    reservationRepository.removeReservation(finalUserId,r);
-                });
-                log.debug("Payment failed");
-                throw new PurchaseFailedException("Payment failed");
-            }
+    /**
+     * Starts the purchase once per idempotency key, a retry with the same key gets the outcome of the first call
+     * @param idempotencyKey the client key of the call, or null to start the purchase unconditionally
+     */
+    public void startPurchase(String userId, String idempotencyKey) throws PurchaseFailedException, UserException {
+        if(idempotencyKey == null){
+            startPurchase(userId);
+            return;
+        }
+        purchaseRequests.runOnce("startpurchase:" + userId.toLowerCase() + ":" + idempotencyKey, () -> startPurchase(userId));
+    }
 
-            // mark the reservations as paid
-            reservations.forEach(Reservation::setPaid);
-            log.debug("Mark the reservation as paid successfully");
-
-            // document the transactions
-            LocalDateTime transactionTime = LocalDateTime.now();
-            for (var reservation : reservations) {
-                Transaction t = reservationToTransaction(userId, reservation, transactionTime);
-                transactionRepository.addNewTransaction(t);
-
-                // send notifications to owners of the store
-                Store store = storeRepository.getStore(reservation.storeId());
-                store.getOwners().forEach(ownerId -> {
-                    try {
-                        notificationController.sendNotification("New transactionId in your store: "+store.getStoreName(),
-                                "Transaction id: "+t.getTransactionId(),
-                                "Amazonas",
-                                ownerId);
-                    } catch (NotificationException e) {
-                        log.error("Failed to send transactionId notification to owner with id: {} in store {}", ownerId, store.getStoreName());
-                    }
-                });
-            }
-            log.debug("Documented the transactions successfully");
+    /**
+     * Pays for the purchase once per idempotency key, a retry with the same key gets the outcome of the first call
+     * @param idempotencyKey the client key of the call, or null to pay unconditionally
+     */
+    public void payForPurchase(String userId, String idempotencyKey) throws PurchaseFailedException, UserException {
+        if(idempotencyKey == null){
+            payForPurchase(userId);
+            return;
+        }
+        purchaseRequests.runOnce("payforpurchase:" + userId.toLowerCase() + ":" + idempotencyKey, () -> payForPurchase(userId));
+    }
 
-            for (Reservation r : reservations) {
-                reservationRepository.removeReservation(userId, r);
+    public void payForPurchase(String userId) throws PurchaseFailedException, UserException {
+        try {
+            checkout(userId).get();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case PurchaseFailedException cause -> throw cause;
+                case UserException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new PurchaseFailedException("The purchase failed");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PurchaseFailedException("The purchase was interrupted");
+        }
+    }
 
-            // give the user a new empty cart
-            shoppingCartRepository.saveCart(shoppingCartFactory.get(userId));
-            log.debug("The purchase completed");
+    /**
+     * Runs the checkout pipeline of the user: validate, charge and commit.
+     * <br/>
+     * No controller-wide lock is held by any stage. The payment gateway is called on a virtual thread,
+     * and the stages after it continue on that thread, so a slow gateway only delays the purchases that wait for it.
+     * The side effects of the purchase are written to the outbox together with the transactions
+     * and delivered by the {@link com.amazonas.backend.business.outbox.OutboxRelay}, so the pipeline does not wait for them.
+     */
+    public CompletableFuture<Void> checkout(String userId) {
+        final String finalUserId = userId.toLowerCase();
+        if(!usersInCheckout.add(finalUserId)){
+            log.debug("A purchase is already in progress for user with id: {}", finalUserId);
+            return CompletableFuture.failedFuture(new PurchaseFailedException("A purchase is already in progress"));
         }
-        finally{
-            lock.releaseWrite();
+        long start = System.nanoTime();
+        CompletableFuture<Void> pipeline;
+        try {
+            Checkout checkout = validateCheckout(finalUserId);
+            pipeline = CompletableFuture.supplyAsync(() -> chargeCheckout(checkout), paymentExecutor)
+                    .thenAccept(this::commitCheckout);
+        } catch (UserException | PurchaseFailedException e) {
+            pipeline = CompletableFuture.failedFuture(e);
         }
+        return pipeline.whenComplete((_, error) -> {
+            usersInCheckout.remove(finalUserId);
+            checkoutMetrics.record(start, System.nanoTime(), error == null);
+        });
+    }
+
+    public CheckoutMetrics.Snapshot getCheckoutMetrics() {
+        return checkoutMetrics.snapshot();
     }
 
     public boolean cancelPurchase(String userId) throws UserException {
@@ -374,9 +418,11 @@ public class UsersController {
             throw new UserException("Invalid userId");
         }
 
+        if(!usersInCheckout.add(userId)){
+            log.debug("Cannot cancel a purchase that is being paid for user with id: {}", userId);
+            return false;
+        }
         try{
-            lock.acquireWrite();
-
             List<Reservation> reservations = reservationRepository.getReservations(userId);
             if(reservations.isEmpty()){
                 log.debug("No reservations to cancel for user with id: {}", userId);
@@ -392,9 +438,67 @@ public class UsersController {
             log.debug("The purchase canceled for user with id: {}", userId);
             return true;
         } finally {
-            lock.releaseWrite();
+            usersInCheckout.remove(userId);
+        }
+    }
+
+    // =============================================================================== |
+    // ============================= CHECKOUT STAGES ================================= |
+    // =============================================================================== |
+
+    private Checkout validateCheckout(String userId) throws UserException, PurchaseFailedException {
+        ShoppingCart cart = getCartWithValidation(userId);
+        User user = userRepository.getUser(userId);
+        if(user == null){
+            throw new UserException("Invalid userId");
+        }
+
+        List<Reservation> reservations = reservationRepository.getReservations(userId);
+        if(reservations.isEmpty()){
+            log.debug("No reservations to pay for user with id: {}", userId);
+            throw new PurchaseFailedException("No reservations to pay for");
+        }
+        return new Checkout(userId, List.copyOf(reservations), user.getPaymentMethod(), cart.getTotalPrice());
+    }
+
+    private Checkout chargeCheckout(Checkout checkout) {
+        if(! paymentService.charge(checkout.paymentMethod(), checkout.amount())){
+            checkout.reservations().forEach(r -> {
+                r.cancelReservation();
+                reservationRepository.removeReservation(checkout.userId(),r);
+            });
+            log.debug("Payment failed");
+            throw new CompletionException(new PurchaseFailedException("Payment failed"));
         }
+        return checkout;
     }
+
+    private void commitCheckout(Checkout checkout) {
+        // mark the reservations as paid
+        checkout.reservations().forEach(Reservation::setPaid);
+        log.debug("Mark the reservation as paid successfully");
+
+        // document the transactions
+        LocalDateTime transactionTime = LocalDateTime.now();
+        // every transaction is committed with its own side effects, so a stored transaction always has them
+        for (var reservation : checkout.reservations()) {
+            Transaction t = reservationToTransaction(checkout.userId(), reservation, transactionTime);
+            outboxRepository.commit(() -> transactionRepository.addNewTransaction(t),
+                    List.of(OwnerNotificationHandler.message(t.getTransactionId(), t.getStoreId())));
+        }
+        log.debug("Documented the transactions successfully");
+
+        for (Reservation r : checkout.reservations()) {
+            reservationRepository.removeReservation(checkout.userId(), r);
+        }
+
+        // give the user a new empty cart
+        shoppingCartRepository.saveCart(shoppingCartFactory.get(checkout.userId()));
+        log.debug("The purchase completed");
+    }
+
+    private record Checkout(String userId, List<Reservation> reservations, PaymentMethod paymentMethod, double amount) { }
+
     // =============================================================================== |
     // ============================= HELPER METHODS ================================== |
     // =============================================================================== |
@@ -447,6 +551,10 @@ public class UsersController {
     // ================================ GETTERS ====================================== |
     // =============================================================================== |
 
+    public GuestPool getGuestPool() {
+        return guestPool;
+    }
+
     public Map<String, Guest> getGuests() {
         return guests;
     }
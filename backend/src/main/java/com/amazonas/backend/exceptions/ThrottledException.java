@@ -0,0 +1,27 @@
+package com.amazonas.backend.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is refused because too much of its kind is already in progress.
+ * It is unchecked because it is thrown through {@link org.springframework.security.provisioning.UserDetailsManager},
+ * whose methods cannot declare it.
+ * @apiNote  This exception does not create a stack trace.
+ */
+public class ThrottledException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * @param message the detail message
+     * @param retryAfter how long the caller should wait before trying again
+     */
+    public ThrottledException(String message, Duration retryAfter) {
+        super(message, null, true, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
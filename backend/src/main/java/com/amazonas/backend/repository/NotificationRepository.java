@@ -3,40 +3,64 @@ package com.amazonas.backend.repository;
 import com.amazonas.backend.repository.abstracts.AbstractCachingRepository;
 import com.amazonas.backend.repository.abstracts.MongoCollection;
 import com.amazonas.common.dtos.Notification;
+import com.amazonas.common.utils.ReadWriteLock;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Component("notificationRepository")
 public class NotificationRepository extends AbstractCachingRepository<Notification> {
 
     private final Map<String,Notification> notifications;//TODO: remove this when we have a real database
     private final Map<String, List<Notification>> receiverIdToNotifications;
+    private final ReadWriteLock lock;
 
     public NotificationRepository(MongoCollection<Notification> repo) {
         super(repo);
         notifications = new HashMap<>();
         receiverIdToNotifications = new HashMap<>();
+        lock = new ReadWriteLock();
     }
 
     //TODO: replace these methods with the real database calls
 
     public void insert(Notification notification) {
-        notifications.put(notification.notificationId(),notification);
-        receiverIdToNotifications.computeIfAbsent(notification.receiverId(), k -> new LinkedList<>()).add(notification);
+        insertAll(List.of(notification));
+    }
+
+    /**
+     * Inserts all the notifications under a single acquisition of the lock
+     */
+    public void insertAll(Collection<Notification> toInsert) {
+        lock.acquireWrite();
+        try {
+            for (Notification notification : toInsert) {
+                notifications.put(notification.notificationId(),notification);
+                receiverIdToNotifications.computeIfAbsent(notification.receiverId(), k -> new LinkedList<>()).add(notification);
+            }
+        } finally {
+            lock.releaseWrite();
+        }
     }
 
     public Notification findById(String notificationId) {
-        return notifications.get(notificationId);
+        lock.acquireRead();
+        try {
+            return notifications.get(notificationId);
+        } finally {
+            lock.releaseRead();
+        }
     }
 
     public List<Notification> findUnreadByReceiverId(String receiverId) {
-        return receiverIdToNotifications.getOrDefault(receiverId, List.of()).stream()
-                .filter(n -> !n.read())
-                .toList();
+        lock.acquireRead();
+        try {
+            return receiverIdToNotifications.getOrDefault(receiverId, List.of()).stream()
+                    .filter(n -> !n.read())
+                    .toList();
+        } finally {
+            lock.releaseRead();
+        }
     }
 
     public List<Notification> findByReceiverId(String receiverId, Integer limit) {
@@ -44,14 +68,24 @@ public class NotificationRepository extends AbstractCachingRepository<Notificati
     }
 
     public List<Notification> findByReceiverId(String receiverId, Integer limit, Integer offset) {
-        return receiverIdToNotifications.getOrDefault(receiverId, List.of()).stream()
-                .skip(offset)
-                .limit(limit)
-                .toList();
+        lock.acquireRead();
+        try {
+            return receiverIdToNotifications.getOrDefault(receiverId, List.of()).stream()
+                    .skip(offset)
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.releaseRead();
+        }
     }
 
     public void delete(String notificationId) {
-        Notification n = notifications.remove(notificationId);
-        receiverIdToNotifications.get(n.receiverId()).remove(n);
+        lock.acquireWrite();
+        try {
+            Notification n = notifications.remove(notificationId);
+            receiverIdToNotifications.get(n.receiverId()).remove(n);
+        } finally {
+            lock.releaseWrite();
+        }
     }
 }
@@ -0,0 +1,136 @@
+package com.amazonas.backend.repository;
+
+import com.amazonas.backend.business.outbox.OutboxMessage;
+import com.amazonas.common.utils.ReadWriteLock;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * The side effects of committed state changes, in the order they were committed.
+ * <br/>
+ * A message stays pending until the relay reports it as delivered, then it is dropped,
+ * as failed, then it is kept with its next attempt time, or as dead after it kept failing for too long,
+ * then it is moved aside.
+ */
+@Component("outboxRepository")
+public class OutboxRepository {
+
+    private long nextSequence;
+    private final NavigableMap<Long, OutboxMessage> pending;
+    private final List<OutboxMessage> dead;
+    private final ReadWriteLock lock;
+
+    public OutboxRepository() {
+        pending = new TreeMap<>();
+        dead = new LinkedList<>();
+        lock = new ReadWriteLock();
+    }
+
+    /**
+     * Runs the state change and appends the messages under the same lock.
+     * The relay sees the messages only after the change completed, and never sees them if it failed,
+     * so every state change has to be committed with its own messages.
+     */
+    public void commit(Runnable stateChange, Collection<OutboxMessage> messages) {
+        lock.acquireWrite();
+        try {
+            stateChange.run();
+            for (OutboxMessage message : messages) {
+                OutboxMessage appended = message.withSequence(nextSequence++);
+                pending.put(appended.sequence(), appended);
+            }
+        } finally {
+            lock.releaseWrite();
+        }
+    }
+
+    public void append(Collection<OutboxMessage> messages) {
+        commit(() -> {}, messages);
+    }
+
+    /**
+     * @return up to <code>max</code> pending messages that come after <code>afterSequence</code>, in order
+     */
+    public List<OutboxMessage> nextPending(long afterSequence, int max) {
+        lock.acquireRead();
+        try {
+            List<OutboxMessage> ret = new ArrayList<>(Math.min(max, pending.size()));
+            for (OutboxMessage message : pending.tailMap(afterSequence, false).values()) {
+                if (ret.size() == max) {
+                    break;
+                }
+                ret.add(message);
+            }
+            return ret;
+        } finally {
+            lock.releaseRead();
+        }
+    }
+
+    /**
+     * Drops the delivered messages, the relay never asks for them again
+     */
+    public void markDelivered(Collection<Long> sequences) {
+        lock.acquireWrite();
+        try {
+            sequences.forEach(pending::remove);
+        } finally {
+            lock.releaseWrite();
+        }
+    }
+
+    /**
+     * Replaces the pending message with its failed copy, unless it is no longer pending
+     */
+    public void markFailed(OutboxMessage failed) {
+        lock.acquireWrite();
+        try {
+            pending.computeIfPresent(failed.sequence(), (_, _) -> failed);
+        } finally {
+            lock.releaseWrite();
+        }
+    }
+
+    public void markDead(long sequence) {
+        lock.acquireWrite();
+        try {
+            OutboxMessage message = pending.remove(sequence);
+            if (message != null) {
+                dead.add(message);
+            }
+        } finally {
+            lock.releaseWrite();
+        }
+    }
+
+    public int getPendingCount() {
+        lock.acquireRead();
+        try {
+            return pending.size();
+        } finally {
+            lock.releaseRead();
+        }
+    }
+
+    public List<OutboxMessage> getDeadMessages() {
+        lock.acquireRead();
+        try {
+            return List.copyOf(dead);
+        } finally {
+            lock.releaseRead();
+        }
+    }
+
+    /**
+     * @return the number of messages that were ever appended
+     */
+    public long getAppendedCount() {
+        lock.acquireRead();
+        try {
+            return nextSequence;
+        } finally {
+            lock.releaseRead();
+        }
+    }
+}
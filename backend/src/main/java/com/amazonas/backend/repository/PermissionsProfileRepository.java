@@ -3,68 +3,40 @@ package com.amazonas.backend.repository;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.backend.repository.abstracts.AbstractCachingRepository;
 import com.amazonas.backend.repository.mongoCollections.PermissionProfileMongoCollection;
-import com.amazonas.common.utils.ReadWriteLock;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component("permissionsProfileRepository")
 public class PermissionsProfileRepository extends AbstractCachingRepository<PermissionsProfile> {
 
+    // read on every permission check, so reads must not lock
     private final Map<String, PermissionsProfile> userIdToPermissionsProfile;
 
-    private final ReadWriteLock permissionsProfileLock;
-
     public PermissionsProfileRepository(PermissionProfileMongoCollection repo) {
         super(repo);
-        userIdToPermissionsProfile = new HashMap<>();
-        permissionsProfileLock = new ReadWriteLock();
+        userIdToPermissionsProfile = new ConcurrentHashMap<>();
     }
 
     public PermissionsProfile getPermissionsProfile(String profileId) {
-        permissionsProfileLock.acquireRead();
-        try {
-            return userIdToPermissionsProfile.get(profileId);
-        } finally {
-            permissionsProfileLock.releaseRead();
-        }
+        return userIdToPermissionsProfile.get(profileId);
     }
 
     public void savePermissionsProfile(PermissionsProfile profile) {
-        permissionsProfileLock.acquireWrite();
-        try {
-            userIdToPermissionsProfile.put(profile.getUserId(), profile);
-        } finally {
-            permissionsProfileLock.releaseWrite();
-        }
+        userIdToPermissionsProfile.put(profile.getUserId(), profile);
     }
 
     public void saveAllPermissionsProfiles(Collection<PermissionsProfile> profiles) {
-        permissionsProfileLock.acquireWrite();
-        try {
-            profiles.forEach(profile -> userIdToPermissionsProfile.put(profile.getUserId(), profile));
-        } finally {
-            permissionsProfileLock.releaseWrite();
-        }
+        profiles.forEach(profile -> userIdToPermissionsProfile.put(profile.getUserId(), profile));
     }
 
     public void addUser(String userId, PermissionsProfile profile) {
-        permissionsProfileLock.acquireWrite();
-        try {
-            userIdToPermissionsProfile.put(userId, profile);
-        } finally {
-            permissionsProfileLock.releaseWrite();
-        }
+        userIdToPermissionsProfile.put(userId, profile);
     }
 
     public Object removeUser(String userId) {
-        permissionsProfileLock.acquireWrite();
-        try {
-            return userIdToPermissionsProfile.remove(userId);
-        } finally {
-            permissionsProfileLock.releaseWrite();
-        }
+        return userIdToPermissionsProfile.remove(userId);
     }
-}
\ No newline at end of file
+}
@@ -77,7 +77,7 @@ public class TransactionRepository extends AbstractCachingRepository<Transaction
         try {
             lock.acquireRead();
             log.debug("Getting transactions for store {}", storeId);
-            return storeIdToTransactions.getOrDefault(storeId, new LinkedList<>());
+            return new ArrayList<>(storeIdToTransactions.getOrDefault(storeId, List.of()));
         } finally {
             lock.releaseRead();
         }
@@ -2,10 +2,12 @@ package com.amazonas.backend.service;
 
 import com.amazonas.backend.business.authentication.AuthenticationController;
 import com.amazonas.backend.business.authentication.AuthenticationResponse;
+import com.amazonas.backend.business.authentication.SecurityConfig.JWTAuthentication;
 import com.amazonas.common.requests.Request;
 import com.amazonas.common.requests.auth.AuthenticationRequest;
 import com.amazonas.common.utils.JsonUtils;
 import com.amazonas.common.utils.Response;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 @Component("authenticationService")
@@ -18,11 +20,17 @@ public class AuthenticationService {
     }
 
     public String authenticateUser(String json) {
+        return authenticateUser(json, null);
+    }
+
+    public String authenticateUser(String json, String clientAddress) {
         Request request = Request.from(json);
         AuthenticationRequest authReq = JsonUtils.deserialize(request.payload(), AuthenticationRequest.class);
-        AuthenticationResponse authResp = controller.authenticateUser(authReq.userId(), authReq.password());
+        AuthenticationResponse authResp = controller.authenticateUser(authReq.userId(), authReq.password(), clientAddress);
         String data = authResp.success() ? authResp.token() : null;
-        String message = authResp.success() ? "Authentication successful" : "Authentication failed";
+        String message = authResp.success() ? "Authentication successful"
+                : authResp.retryAfter() != null ? "Too many login attempts, try again in " + Math.max(1, authResp.retryAfter().toSeconds()) + " seconds"
+                : "Authentication failed";
         return new Response(message,authResp.success(), data).toJson();
     }
 
@@ -34,4 +42,17 @@ public class AuthenticationService {
         String message = authResp.success() ? "Authentication successful" : "Authentication failed";
         return new Response(message,authResp.success(), data).toJson();
     }
+
+    /**
+     * Checks the user and token of a request that is not handled by a single proxy, like a batch.
+     * The token the request filter already verified is not parsed again.
+     */
+    public boolean validateToken(String userId, String token) {
+        if (userId == null || token == null) {
+            return false;
+        }
+        return SecurityContextHolder.getContext().getAuthentication() instanceof JWTAuthentication jwt && jwt.getCredentials().equals(token)
+                ? controller.validatePrincipalOwnership(userId, jwt.getPrincipal())
+                : controller.validateTokenOwnership(userId, token);
+    }
 }
@@ -3,6 +3,7 @@ package com.amazonas.backend.service;
 import com.amazonas.backend.business.permissions.proxies.ExternalServicesProxy;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
 import com.amazonas.backend.exceptions.NoPermissionException;
+import com.amazonas.backend.exceptions.StoreException;
 import com.amazonas.backend.service.requests.payment.PaymentServiceManagementRequest;
 import com.amazonas.backend.service.requests.shipping.ShippingServiceManagementRequest;
 import com.amazonas.common.requests.Request;
@@ -31,6 +32,17 @@ public class ExternalServicesService {
         }
     }
 
+    public String dispatchPendingShipments(String json) {
+        Request request = Request.from(json);
+        try{
+            ShipmentRequest shipmentRequest = ShipmentRequest.from(request.payload());
+            int queued = proxy.dispatchPendingShipments(shipmentRequest.serviceId(), shipmentRequest.storeId(), request.userId(), request.token());
+            return Response.getOk(queued);
+        } catch (AuthenticationFailedException | NoPermissionException | StoreException e) {
+            return Response.getError(e);
+        }
+    }
+
     public String addShippingService(String json) {
         Request request = Request.from(json);
         try{
@@ -96,4 +108,13 @@ public class ExternalServicesService {
             return Response.getError(e);
         }
     }
+
+    public String getGatewayMetrics(String json) {
+        Request request = Request.from(json);
+        try{
+            return Response.getOk(proxy.getGatewayMetrics(request.userId(), request.token()));
+        } catch (AuthenticationFailedException | NoPermissionException e) {
+            return Response.getError(e);
+        }
+    }
 }
@@ -35,4 +35,13 @@ public class MarketService {
             return Response.getError(e);
         }
     }
+
+    public String getHashingMetrics(String json) {
+        Request request = Request.from(json);
+        try {
+            return Response.getOk(proxy.getHashingMetrics(request.userId(), request.token()));
+        } catch (AuthenticationFailedException | NoPermissionException e) {
+            return Response.getError(e);
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package com.amazonas.backend.service;
 
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.backend.business.permissions.proxies.PermissionsProxy;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
 import com.amazonas.common.requests.Request;
+import com.amazonas.common.utils.JsonUtils;
 import com.amazonas.common.utils.Response;
+import com.google.gson.JsonSyntaxException;
 import org.springframework.stereotype.Component;
 
 @Component("permissionsService")
@@ -36,6 +39,21 @@ public class PermissionsService {
         }
     }
 
+    /**
+     * The payload is the version of the matrix the caller already holds, if any.
+     * When it is still current, the response carries a matrix that is not modified instead of the masks.
+     */
+    public String getPermissionsMatrix(String json){
+        try{
+            Request request = Request.from(json);
+            PermissionsMatrix matrix = proxy.getPermissionsMatrix(request.userId(), request.token());
+            Long knownVersion = request.payload() == null ? null : JsonUtils.deserialize(request.payload(), Long.class);
+            return Response.getOk(matrix.revalidate(knownVersion));
+        } catch (IllegalArgumentException | JsonSyntaxException | AuthenticationFailedException e){
+            return Response.getError(e);
+        }
+    }
+
     public String isAdmin(String json){
         try{
             Request request = Request.from(json);
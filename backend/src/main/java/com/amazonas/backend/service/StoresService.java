@@ -4,9 +4,11 @@ import com.amazonas.common.exceptions.DiscountPolicyException;
 import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
 import com.amazonas.common.PurchaseRuleDTO.PurchaseRuleDTO;
 
+import com.amazonas.common.dtos.DiscountSimulationResult;
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.backend.business.permissions.proxies.StoreProxy;
+import com.amazonas.common.dtos.StoreAppointment;
 import com.amazonas.common.dtos.StorePosition;
 import com.amazonas.common.dtos.Transaction;
 import com.amazonas.backend.exceptions.AuthenticationFailedException;
@@ -275,6 +277,16 @@ public class StoresService {
         }
     }
 
+    public String getUserStores(String json){
+        Request request = Request.from(json);
+        try {
+            List<StoreAppointment> result = proxy.getUserStores(request.userId(), request.token());
+            return Response.getOk(result);
+        } catch (AuthenticationFailedException e) {
+            return Response.getError(e);
+        }
+    }
+
     public String getStoreTransactionHistory(String json){
         Request request = Request.from(json);
         try {
@@ -319,6 +331,19 @@ public class StoresService {
         }
     }
 
+    public String simulateDiscountRule(String json) {
+        Request request = Request.from(json);
+        try {
+            DiscountSimulationRequest simulationRequest = DiscountSimulationRequest.from(request.payload());
+            DiscountSimulationResult result = simulationRequest.discountComponentDTO() != null ?
+                    proxy.simulateDiscountRuleByDTO(simulationRequest.StoreID(), simulationRequest.discountComponentDTO(), request.userId(), request.token()) :
+                    proxy.simulateDiscountRuleByCFG(simulationRequest.StoreID(), simulationRequest.cfg(), request.userId(), request.token());
+            return Response.getOk(result);
+        } catch (AuthenticationFailedException | DiscountPolicyException | StoreException | NoPermissionException e) {
+            return Response.getError(e);
+        }
+    }
+
     public String getDiscountRuleDTO(String json) {
         Request request = Request.from(json);
         try {
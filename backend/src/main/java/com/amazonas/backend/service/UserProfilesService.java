@@ -8,6 +8,7 @@ import com.amazonas.common.dtos.UserInformation;
 import com.amazonas.common.requests.Request;
 import com.amazonas.common.requests.users.CartRequest;
 import com.amazonas.common.requests.users.LoginRequest;
+import com.amazonas.common.requests.users.PurchaseRequest;
 import com.amazonas.common.requests.users.RegisterRequest;
 import com.amazonas.common.utils.JsonUtils;
 import com.amazonas.common.utils.Response;
@@ -129,7 +130,12 @@ public class UserProfilesService {
     public String startPurchase(String json){
         Request request = Request.from(json);
         try{
-            proxy.startPurchase(request.userId(), request.token());
+            String idempotencyKey = idempotencyKey(request);
+            if(idempotencyKey == null){
+                proxy.startPurchase(request.userId(), request.token());
+            } else {
+                proxy.startPurchase(request.userId(), request.token(), idempotencyKey);
+            }
             return Response.getOk();
         } catch (AuthenticationFailedException | NoPermissionException | PurchaseFailedException | UserException e){
             return Response.getError(e);
@@ -139,7 +145,12 @@ public class UserProfilesService {
     public String payForPurchase(String json){
         Request request = Request.from(json);
         try{
-            proxy.payForPurchase(request.userId(), request.token());
+            String idempotencyKey = idempotencyKey(request);
+            if(idempotencyKey == null){
+                proxy.payForPurchase(request.userId(), request.token());
+            } else {
+                proxy.payForPurchase(request.userId(), request.token(), idempotencyKey);
+            }
             return Response.getOk();
         } catch (AuthenticationFailedException | NoPermissionException | PurchaseFailedException | UserException e){
             return Response.getError(e);
@@ -164,4 +175,13 @@ public class UserProfilesService {
             return Response.getError(e);
         }
     }
+
+    // the key is optional, a request without a payload is not deduplicated
+    private static String idempotencyKey(Request request) {
+        if(request.payload() == null || request.payload().isBlank()){
+            return null;
+        }
+        PurchaseRequest purchaseRequest = PurchaseRequest.from(request.payload());
+        return purchaseRequest == null ? null : purchaseRequest.idempotencyKey();
+    }
 }
@@ -77,7 +77,8 @@ public class ActionsOfAMarketAdministrator {
                 shoppingCartRepository,
                 permissionsController,
                 notificationController,
-                storeRepository
+                storeRepository,
+                new OutboxRepository()
         );
     }
 
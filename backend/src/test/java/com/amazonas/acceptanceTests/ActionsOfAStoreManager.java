@@ -5,6 +5,7 @@ import com.amazonas.backend.business.permissions.PermissionsController;
 import com.amazonas.backend.business.permissions.proxies.StoreProxy;
 import com.amazonas.backend.business.stores.StoresController;
 import com.amazonas.backend.business.stores.factories.StoreFactory;
+import com.amazonas.backend.business.stores.storePositions.StoreRoleIndex;
 import com.amazonas.backend.exceptions.NoPermissionException;
 import com.amazonas.backend.repository.*;
 import com.amazonas.common.dtos.Product;
@@ -39,7 +40,7 @@ public class ActionsOfAStoreManager {
     public void setUp() {
         PermissionsController permissionsController = new PermissionsController(defaultRegisteredUserPermissionsProfile, guestPermissionsProfile,adminPermissionsProfile, permissionsProfileRepository);
         AuthenticationController authenticationController = new AuthenticationController(userCredentialsRepository);
-        StoresController storesController = new StoresController(storeFactory, storeRepository, transactionRepository, productRepository, permissionsController);
+        StoresController storesController = new StoresController(storeFactory, storeRepository, transactionRepository, productRepository, permissionsController, new StoreRoleIndex());
         storeProxy = new StoreProxy(storesController, permissionsController, authenticationController);
     }
 
@@ -87,7 +87,8 @@ public class ActionsOfAStoreOwner {
                 shoppingCartRepository,
                 permissionsController,
                 notificationController,
-                storeRepository
+                storeRepository,
+                new OutboxRepository()
         );
     }
 
@@ -0,0 +1,184 @@
+package com.amazonas.backend.api;
+
+import com.amazonas.backend.business.permissions.proxies.NotificationProxy;
+import com.amazonas.backend.business.permissions.proxies.PermissionsProxy;
+import com.amazonas.backend.business.permissions.proxies.StoreProxy;
+import com.amazonas.backend.business.permissions.proxies.UserProxy;
+import com.amazonas.backend.exceptions.AuthenticationFailedException;
+import com.amazonas.backend.service.*;
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.requests.Request;
+import com.amazonas.common.requests.RequestBuilder;
+import com.amazonas.common.requests.TypedRequest;
+import com.amazonas.common.requests.batch.BatchOperation;
+import com.amazonas.common.requests.batch.BatchRequest;
+import com.amazonas.common.requests.stores.ProductSearchRequest;
+import com.amazonas.common.requests.stores.SearchInStoreRequest;
+import com.amazonas.common.utils.Rating;
+import com.amazonas.common.utils.Response;
+import com.amazonas.common.utils.TypedResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class APITest {
+
+    private static final String USER_ID = "user1";
+    private static final String TOKEN = "token";
+    private static final String STORE_ID = "store1";
+
+    private StoresService storesService;
+    private AuthenticationService authenticationService;
+    private StoreProxy storeProxy;
+    private API api;
+
+    @BeforeEach
+    void setUp() {
+        storesService = mock(StoresService.class);
+        storeProxy = mock(StoreProxy.class);
+        authenticationService = mock(AuthenticationService.class);
+        TypedRoutes typedRoutes = new TypedRoutes(storeProxy, mock(UserProxy.class), mock(NotificationProxy.class), mock(PermissionsProxy.class));
+        api = new API(authenticationService,
+                mock(ExternalServicesService.class),
+                mock(MarketService.class),
+                mock(NotificationsService.class),
+                storesService,
+                mock(UserProfilesService.class),
+                mock(PermissionsService.class),
+                typedRoutes);
+    }
+
+    @Test
+    void postIsDispatchedByServiceAndEndpoint() {
+        when(storesService.getStoreDetails("body")).thenReturn("details");
+
+        assertEquals("details", api.forwardPost("Stores", "GetStoreDetails", "body", new MockHttpServletRequest()));
+        assertEquals("Invalid endpoint", api.forwardPost("stores", "nothing", "body", new MockHttpServletRequest()));
+        assertEquals("Invalid service", api.forwardPost("nothing", "getstoredetails", "body", new MockHttpServletRequest()));
+    }
+
+    @Test
+    void typedPostReadsThePayloadOnceAndStreamsOneDocument() throws Exception {
+        ProductSearchRequest search = new ProductSearchRequest("laptop", List.of(), 0, 200, "Technologies", Rating.FIVE_STARS);
+        List<Product> products = List.of(
+                new Product("product1", "laptop", 100.0, "Technologies", "PC", Rating.FIVE_STARS, STORE_ID),
+                new Product("product2", "laptop", 150.0, "Technologies", "PC", Rating.FOUR_STARS, STORE_ID));
+        when(storeProxy.searchProductsInStore(eq(STORE_ID), eq(search), eq(USER_ID), eq(TOKEN))).thenReturn(products);
+
+        MockHttpServletResponse response = typedPost("searchproductsinstore",
+                new TypedRequest<>(USER_ID, TOKEN, new SearchInStoreRequest(STORE_ID, search)).toJson());
+
+        // the payload holds the products themselves, not JSON strings of them
+        assertTrue(response.getContentAsString().contains("\"payload\":[{"));
+        TypedResponse<Product> read = TypedResponse.fromJson(response.getContentAsString(), Product.class);
+        assertTrue(read.success());
+        assertEquals(products, read.payload());
+        assertEquals(150.0, read.payload().get(1).getPrice());
+    }
+
+    @Test
+    void typedPostReportsErrorsAndUnknownEndpoints() throws Exception {
+        when(storeProxy.getStoreDetails(any(), any(), any())).thenThrow(new AuthenticationFailedException("Invalid token"));
+
+        TypedResponse<Object> failed = TypedResponse.fromJson(
+                typedPost("getstoredetails", new TypedRequest<>(USER_ID, TOKEN, STORE_ID).toJson()).getContentAsString(), Object.class);
+        assertFalse(failed.success());
+        assertEquals("Invalid token", failed.message());
+
+        TypedResponse<Object> unknown = TypedResponse.fromJson(typedPost("addstore", "{}").getContentAsString(), Object.class);
+        assertFalse(unknown.success());
+        assertEquals("Invalid endpoint", unknown.message());
+    }
+
+    @Test
+    void batchAuthenticatesOnceAndAnswersEveryOperationByIndex() {
+        when(authenticationService.validateToken(USER_ID, TOKEN)).thenReturn(true);
+        when(storesService.getStoreDetails(any())).thenAnswer(invocation -> Response.getOk(Request.from(invocation.getArgument(0)).payload()));
+        when(storesService.getStoreProducts(any())).thenReturn(Response.getOk("products"));
+
+        Response response = Response.fromJson(batch(
+                new BatchOperation("stores", "getstoredetails", STORE_ID, List.of()),
+                new BatchOperation("stores", "getstoreproducts", STORE_ID, List.of(0)),
+                new BatchOperation("stores", "nothing", STORE_ID, null)));
+
+        assertTrue(response.success());
+        List<Response> results = response.payload(Response.class);
+        assertEquals(3, results.size());
+        assertEquals(List.of(STORE_ID), results.get(0).payload(String.class));
+        assertEquals(List.of("products"), results.get(1).payload(String.class));
+        assertFalse(results.get(2).success());
+        verify(authenticationService, times(1)).validateToken(USER_ID, TOKEN);
+    }
+
+    @Test
+    void batchDoesNotRunOperationsAfterAFailedOne() {
+        when(authenticationService.validateToken(USER_ID, TOKEN)).thenReturn(true);
+        when(storesService.openStore(any())).thenReturn(Response.getError("No permission"));
+        when(storesService.getStoreDetails(any())).thenReturn(Response.getOk("details"));
+
+        List<Response> results = Response.fromJson(batch(
+                new BatchOperation("stores", "openstore", STORE_ID, List.of()),
+                new BatchOperation("stores", "getstoreproducts", STORE_ID, List.of(0)),
+                new BatchOperation("stores", "getstoredetails", STORE_ID, List.of()))).payload(Response.class);
+
+        assertEquals("No permission", results.get(0).message());
+        assertFalse(results.get(1).success());
+        assertTrue(results.get(2).success());
+        verify(storesService, never()).getStoreProducts(any());
+    }
+
+    @Test
+    void batchIsRejectedAsAWhole() {
+        when(authenticationService.validateToken(USER_ID, TOKEN)).thenReturn(true);
+        // an operation can only come after an earlier one
+        assertFalse(Response.fromJson(batch(new BatchOperation("stores", "getstoredetails", STORE_ID, List.of(0)))).success());
+        // authentication is never part of a batch
+        assertFalse(Response.fromJson(batch(new BatchOperation("auth", "user", "{}", null)))
+                .<Response>payload(Response.class).getFirst().success());
+
+        when(authenticationService.validateToken(USER_ID, TOKEN)).thenReturn(false);
+        assertFalse(Response.fromJson(batch(new BatchOperation("stores", "getstoredetails", STORE_ID, null))).success());
+        verifyNoInteractions(storesService);
+    }
+
+    @Test
+    void loginTakesTheClientAddressFromTheFrontendOnly() {
+        MockHttpServletRequest fromFrontend = new MockHttpServletRequest();
+        fromFrontend.setRemoteAddr("127.0.0.1");
+        fromFrontend.addHeader("X-Forwarded-For", "10.0.0.9, 203.0.113.7");
+        api.forwardPost("auth", "user", "{}", fromFrontend);
+        verify(authenticationService).authenticateUser("{}", "203.0.113.7");
+
+        MockHttpServletRequest fromClient = new MockHttpServletRequest();
+        fromClient.setRemoteAddr("198.51.100.4");
+        fromClient.addHeader("X-Forwarded-For", "203.0.113.7");
+        api.forwardPost("auth", "user", "{}", fromClient);
+        verify(authenticationService).authenticateUser("{}", "198.51.100.4");
+    }
+
+    private String batch(BatchOperation... operations) {
+        String body = RequestBuilder.create()
+                .withUserId(USER_ID)
+                .withToken(TOKEN)
+                .withPayload(new BatchRequest(List.of(operations)))
+                .build()
+                .toJson();
+        return api.forwardBatch(body, new MockHttpServletRequest());
+    }
+
+    private MockHttpServletResponse typedPost(String endpoint, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/typed/stores/" + endpoint);
+        request.setContent(body.getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        api.forwardTypedPost("stores", endpoint, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,144 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.common.utils.APIFetcher;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One POST to a local HTTPS server through the shared client of {@link APIFetcher},
+ * and through a new SSL context and client for every request like the fetcher used to make.
+ * The server has a throwaway certificate made with keytool and answers every request with a small response.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class APIFetcherBenchmark {
+
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+    private static final String BODY = "{\"userId\":\"user1\",\"token\":\"token\",\"payload\":\"store1\"}";
+    private static final byte[] ANSWER = "{\"success\":true,\"payload\":[\"details\"]}".getBytes(StandardCharsets.UTF_8);
+
+    private Path folder;
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    private TrustManager[] trustManagers;
+    private String uri;
+
+    @Setup
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("api-fetcher-benchmark");
+        KeyStore keyStore = createKeyStore(folder.resolve("keystore.p12"));
+
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(keyStore);
+        trustManagers = trust.getTrustManagers();
+
+        // without it the small answers wait for delayed acks and both sides measure the same 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, ANSWER.length);
+            exchange.getResponseBody().write(ANSWER);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+        uri = "https://127.0.0.1:" + server.getAddress().getPort() + "/stores/getstoredetails";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        try (var files = Files.list(folder)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Benchmark
+    public String sharedClient() throws IOException, InterruptedException {
+        return APIFetcher.create()
+                .withUri(uri)
+                .withBody(BODY)
+                .withPost()
+                .fetch();
+    }
+
+    @Benchmark
+    public String clientPerRequest() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagers, new SecureRandom());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .POST(HttpRequest.BodyPublishers.ofString(BODY))
+                .build();
+        try (HttpClient client = HttpClient.newBuilder().sslContext(sslContext).build()) {
+            return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        }
+    }
+
+    private static KeyStore createKeyStore(Path file) throws Exception {
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "benchmark", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", file.toString(),
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(keytool.getInputStream().readAllBytes());
+        if (keytool.waitFor() != 0) {
+            throw new IOException("keytool failed: " + output);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(APIFetcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
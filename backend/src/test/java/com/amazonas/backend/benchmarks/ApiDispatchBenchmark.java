@@ -0,0 +1,107 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.api.API;
+import com.amazonas.backend.api.TypedRoutes;
+import com.amazonas.backend.business.permissions.proxies.NotificationProxy;
+import com.amazonas.backend.business.permissions.proxies.PermissionsProxy;
+import com.amazonas.backend.business.permissions.proxies.StoreProxy;
+import com.amazonas.backend.business.permissions.proxies.UserProxy;
+import com.amazonas.backend.service.*;
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.requests.RequestBuilder;
+import com.amazonas.common.requests.TypedRequest;
+import com.amazonas.common.requests.stores.ProductSearchRequest;
+import com.amazonas.common.requests.stores.SearchInStoreRequest;
+import com.amazonas.common.utils.Rating;
+import com.amazonas.common.utils.Response;
+import com.amazonas.common.utils.TypedResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A search in a store that answers <code>products</code> products, through the string API and through the typed API.
+ * Both sides include the client, which builds the request and reads the products out of the response.
+ * The proxies are stubs, so only the JSON handling and the dispatch are measured, the typed side also builds the mock servlet request and response.
+ * Run with <code>main</code> from the test classpath, <code>-prof gc</code> shows the allocations per search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiDispatchBenchmark {
+
+    private static final String USER_ID = "user1";
+    private static final String TOKEN = "token";
+    private static final String STORE_ID = "store1";
+
+    @Param({"1", "50"})
+    public int products;
+
+    private API api;
+    private SearchInStoreRequest search;
+
+    @Setup
+    public void setUp() throws Exception {
+        StoreProxy storeProxy = stub(StoreProxy.class);
+        List<Product> found = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            found.add(new Product("product" + i, "laptop " + i, 100.0 + i, "Technologies", "A laptop for work and play", Rating.FIVE_STARS, STORE_ID));
+        }
+        when(storeProxy.searchProductsInStore(any(), any(), any(), any())).thenReturn(found);
+        api = new API(stub(AuthenticationService.class),
+                stub(ExternalServicesService.class),
+                stub(MarketService.class),
+                stub(NotificationsService.class),
+                new StoresService(storeProxy),
+                stub(UserProfilesService.class),
+                stub(PermissionsService.class),
+                new TypedRoutes(storeProxy, stub(UserProxy.class), stub(NotificationProxy.class), stub(PermissionsProxy.class)));
+        search = new SearchInStoreRequest(STORE_ID, new ProductSearchRequest("laptop", List.of(), 0, 1000, "Technologies", Rating.FIVE_STARS));
+    }
+
+    @Benchmark
+    public List<Product> stringApi() {
+        String body = RequestBuilder.create()
+                .withUserId(USER_ID)
+                .withToken(TOKEN)
+                .withPayload(search)
+                .build()
+                .toJson();
+        String answer = api.forwardPost("stores", "searchproductsinstore", body, null);
+        return Response.fromJson(answer).payload(Product.class);
+    }
+
+    @Benchmark
+    public List<Product> typedApi() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(new TypedRequest<>(USER_ID, TOKEN, search).toJson().getBytes(StandardCharsets.UTF_8));
+        request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        api.forwardTypedPost("stores", "searchproductsinstore", request, response);
+        return TypedResponse.<Product>fromJson(response.getContentAsString(), Product.class).payload();
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ApiDispatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
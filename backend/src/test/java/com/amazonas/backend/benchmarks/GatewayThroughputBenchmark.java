@@ -0,0 +1,56 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.gateway.GatewaySimulator;
+import com.amazonas.backend.business.payment.CreditCard;
+import com.amazonas.backend.business.payment.PaymentMethod;
+import com.amazonas.backend.business.payment.PaymentService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charges per second through the shared gateway client against a local {@link GatewaySimulator},
+ * so the numbers do not depend on the network or on the public gateway.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class GatewayThroughputBenchmark {
+
+    @Param({"0", "20"})
+    public long minLatencyMillis;
+
+    private GatewaySimulator simulator;
+    private PaymentService paymentService;
+    private PaymentMethod paymentMethod;
+
+    @Setup
+    public void setUp() throws IOException {
+        simulator = new GatewaySimulator(new GatewaySimulator.Settings(minLatencyMillis, minLatencyMillis / 2.0, 0.01, 0, 0, 42));
+        paymentService = new PaymentService(simulator.start(0));
+        paymentMethod = new CreditCard("USD", "4580000000000000", "12", "2030", "holder", "123", "123456789");
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulator.stop();
+    }
+
+    @Benchmark
+    public boolean charge() {
+        return paymentService.charge(paymentMethod, 99.90);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GatewayThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
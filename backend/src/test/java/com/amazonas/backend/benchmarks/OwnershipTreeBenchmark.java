@@ -0,0 +1,120 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.stores.storePositions.AppointmentSystem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A franchise store with a 100k member appointment hierarchy, every owner appoints
+ * <code>fanOut</code> owners and two managers until the store is full.
+ * A fan out of 1 is a chain of owners, and a fan out as large as the store has the founder appoint everyone.
+ * <code>buildHierarchy</code> makes all the appointments,
+ * <code>removeRegionalOwner</code> removes one of the founder's owners with its whole branch,
+ * the lookups ask about that owner's branch and the deepest owner in it.
+ * Run with <code>main</code> from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnershipTreeBenchmark {
+
+    private static final String FOUNDER = "founder";
+    // the first owner the founder appoints
+    private static final String REGIONAL_OWNER = "owner1";
+
+    @State(Scope.Thread)
+    public static class Hierarchy {
+
+        @Param({"100000"})
+        public int members;
+
+        @Param({"1", "4", "16", "100000"})
+        public int fanOut;
+
+        AppointmentSystem appointmentSystem;
+        String deepestOwner;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            build();
+        }
+
+        void build() {
+            appointmentSystem = new AppointmentSystem(FOUNDER);
+            Deque<Owner> owners = new ArrayDeque<>();
+            owners.add(new Owner(FOUNDER, false));
+            int count = 1;
+            while (count < members) {
+                Owner owner = owners.poll();
+                for (int i = 0; i < fanOut && count < members; i++, count++) {
+                    // numbered rather than named after the appointer, the ids of a chain would grow with its depth
+                    String appointed = "owner" + count;
+                    boolean regional = owner.regional() || appointed.equals(REGIONAL_OWNER);
+                    appointmentSystem.addOwner(owner.id(), appointed);
+                    owners.add(new Owner(appointed, regional));
+                    if (regional) {
+                        deepestOwner = appointed;
+                    }
+                }
+                for (int i = 0; i < 2 && count < members; i++, count++) {
+                    appointmentSystem.addManager(owner.id(), "manager" + count);
+                }
+            }
+        }
+
+        private record Owner(String id, boolean regional) { }
+    }
+
+    // removing a branch destroys the hierarchy, so every removal gets a fresh one
+    @State(Scope.Thread)
+    public static class FreshHierarchy extends Hierarchy {
+
+        @Setup(Level.Invocation)
+        public void rebuild() {
+            build();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = 1)
+    @Measurement(iterations = 20, batchSize = 1)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AppointmentSystem buildHierarchy(Hierarchy hierarchy) {
+        hierarchy.build();
+        return hierarchy.appointmentSystem;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = 1)
+    @Measurement(iterations = 20, batchSize = 1)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean removeRegionalOwner(FreshHierarchy hierarchy) {
+        return hierarchy.appointmentSystem.removeOwner(FOUNDER, REGIONAL_OWNER);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isAppointedUnder(Hierarchy hierarchy) {
+        return hierarchy.appointmentSystem.isAppointedUnder(REGIONAL_OWNER, hierarchy.deepestOwner);
+    }
+
+    @Benchmark
+    public List<String> appointedUnderRegionalOwner(Hierarchy hierarchy) {
+        return hierarchy.appointmentSystem.getAppointedUnder(REGIONAL_OWNER);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OwnershipTreeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
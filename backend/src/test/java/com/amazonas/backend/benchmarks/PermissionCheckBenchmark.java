@@ -0,0 +1,68 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.permissions.PermissionsController;
+import com.amazonas.backend.repository.PermissionsProfileRepository;
+import com.amazonas.common.permissions.actions.MarketActions;
+import com.amazonas.common.permissions.actions.StoreActions;
+import com.amazonas.common.permissions.actions.UserActions;
+import com.amazonas.common.permissions.profiles.AdminPermissionsProfile;
+import com.amazonas.common.permissions.profiles.DefaultPermissionsProfile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The permission checks every proxied call makes, from many threads at once.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int STORES = 10;
+
+    private PermissionsController permissionsController;
+
+    @Setup
+    public void setUp() {
+        DefaultPermissionsProfile registered = new DefaultPermissionsProfile("default_registered_user");
+        registered.addUserActionPermission(UserActions.VIEW_SHOPPING_CART);
+        registered.addMarketActionPermission(MarketActions.SEARCH_PRODUCTS);
+        permissionsController = new PermissionsController(registered,
+                new DefaultPermissionsProfile("guest"),
+                new AdminPermissionsProfile(),
+                new PermissionsProfileRepository(null));
+        for (int i = 0; i < USERS; i++) {
+            String userId = "user" + i;
+            permissionsController.registerUser(userId);
+            for (int j = 0; j < STORES; j++) {
+                permissionsController.addPermission(userId, "store" + j, StoreActions.values()[1 + (i + j) % (StoreActions.values().length - 1)]);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean storeCheck() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return permissionsController.checkPermission("user" + random.nextInt(USERS), "store" + random.nextInt(STORES), StoreActions.ADD_PRODUCT);
+    }
+
+    @Benchmark
+    public boolean marketCheck() {
+        return permissionsController.checkPermission("user" + ThreadLocalRandom.current().nextInt(USERS), MarketActions.CREATE_STORE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionCheckBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.stores.discountPolicies.DiscountManager;
+import com.amazonas.backend.business.stores.discountPolicies.PricedBasket;
+import com.amazonas.backend.business.stores.discountPolicies.ProductAfterDiscount;
+import com.amazonas.backend.business.stores.discountPolicies.ProductWithQuantitiy;
+import com.amazonas.common.DiscountDTOs.*;
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.utils.Rating;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing a basket through the cents kernel against the old path that priced it as doubles.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"5", "50"})
+    public int basketSize;
+
+    private DiscountManager discountManager;
+    private List<ProductWithQuantitiy> products;
+
+    @Setup
+    public void setUp() throws Exception {
+        discountManager = new DiscountManager();
+        products = new ArrayList<>(basketSize);
+        for (int i = 0; i < basketSize; i++) {
+            Product product = new Product(String.valueOf(i), "product" + i, 9.99 + i, "category" + i % 3, "", Rating.FIVE_STARS);
+            products.add(new ProductWithQuantitiy(product, 1 + i % 4));
+        }
+        List<DiscountComponentDTO> discounts = new ArrayList<>();
+        discounts.add(new SimpleDiscountDTO(HierarchyLevel.CategoryLevel, "category1", 15));
+        discounts.add(new SimpleDiscountDTO(HierarchyLevel.StoreLevel, "", 5));
+        DiscountConditionDTO condition = new UnaryConditionDTO(UnaryConditionType.AT_LEAST_SOME_PRICE, 50, "");
+        DiscountComponentDTO addition = new MultipleDiscountDTO(MultipleDiscountType.ADDITION, discounts);
+        discountManager.changeDiscountPolicy(new ComplexDiscountDTO(condition, addition));
+    }
+
+    @Benchmark
+    public long kernelInCents() {
+        return discountManager.calculatePriceInCents(PricedBasket.of(products));
+    }
+
+    @Benchmark
+    public double discountedProducts() throws Exception {
+        double total = 0;
+        for (ProductAfterDiscount product : discountManager.applyDiscountPolicy(products)) {
+            total += product.priceAfterDiscount() * product.quantity();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
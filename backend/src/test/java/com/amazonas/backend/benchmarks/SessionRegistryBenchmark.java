@@ -0,0 +1,68 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.authentication.AuthenticationController;
+import com.amazonas.backend.repository.UserCredentialsRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Requests against the session registry of the {@link AuthenticationController}: 95% validate a token, 5% log in again.
+ * A login replaces the session of its user, so the tokens in use keep changing the way they do in the market.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class SessionRegistryBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int LOGIN_PERCENT = 5;
+
+    private AuthenticationController authenticationController;
+    private AtomicReferenceArray<String> tokens;
+
+    @Setup
+    public void setUp() {
+        UserCredentialsRepository repository = mock(UserCredentialsRepository.class, withSettings().stubOnly());
+        when(repository.existsById(anyString())).thenReturn(true);
+        authenticationController = new AuthenticationController(repository);
+        tokens = new AtomicReferenceArray<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            tokens.set(i, authenticationController.authenticateGuest(userId(i)).token());
+        }
+    }
+
+    @Benchmark
+    public boolean request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(USERS);
+        if (random.nextInt(100) < LOGIN_PERCENT) {
+            tokens.set(user, authenticationController.authenticateGuest(userId(user)).token());
+            return true;
+        }
+        return authenticationController.validateTokenOwnership(userId(user), tokens.get(user));
+    }
+
+    private static String userId(int i) {
+        return "user" + i;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SessionRegistryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
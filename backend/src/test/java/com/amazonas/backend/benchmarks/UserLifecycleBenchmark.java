@@ -0,0 +1,118 @@
+package com.amazonas.backend.benchmarks;
+
+import com.amazonas.backend.business.authentication.AuthenticationController;
+import com.amazonas.backend.business.notifications.NotificationController;
+import com.amazonas.backend.business.payment.PaymentService;
+import com.amazonas.backend.business.permissions.PermissionsController;
+import com.amazonas.backend.business.userProfiles.RegisteredUser;
+import com.amazonas.backend.business.userProfiles.ShoppingCart;
+import com.amazonas.backend.business.userProfiles.ShoppingCartFactory;
+import com.amazonas.backend.business.userProfiles.UsersController;
+import com.amazonas.backend.repository.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 10k simulated users on virtual threads, each enters as a guest, logs in to its registered user and logs out.
+ * The collaborators of the controller are stubs, so the benchmark measures the controller's own locking.
+ * <code>guestEntry</code> measures how many guests per second enter and leave through the pre-warmed guest pool.
+ * Run with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLifecycleBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    private UsersController usersController;
+
+    @Setup
+    public void setUp() {
+        UserRepository userRepository = stub(UserRepository.class);
+        ShoppingCartRepository shoppingCartRepository = stub(ShoppingCartRepository.class);
+        ShoppingCartFactory shoppingCartFactory = stub(ShoppingCartFactory.class);
+        ShoppingCart cart = stub(ShoppingCart.class);
+        when(userRepository.userIdExists(anyString())).thenReturn(true);
+        when(userRepository.getUser(anyString())).thenAnswer(i -> new RegisteredUser(i.getArgument(0), "user@amazonas.com", LocalDate.now().minusYears(22)));
+        when(shoppingCartFactory.get(anyString())).thenReturn(cart);
+        when(shoppingCartRepository.getCart(anyString())).thenReturn(cart);
+        when(cart.mergeGuestCartWithRegisteredCart(cart)).thenReturn(cart);
+        usersController = new UsersController(userRepository,
+                stub(ReservationRepository.class),
+                stub(TransactionRepository.class),
+                stub(ProductRepository.class),
+                stub(PaymentService.class),
+                shoppingCartFactory,
+                stub(AuthenticationController.class),
+                shoppingCartRepository,
+                stub(PermissionsController.class),
+                stub(NotificationController.class),
+                stub(StoreRepository.class),
+                new OutboxRepository());
+        usersController.getGuestPool().start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        usersController.getGuestPool().stop();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String guestEntry() throws Exception {
+        String guestId = usersController.enterAsGuest();
+        usersController.logoutAsGuest(guestId);
+        return guestId;
+    }
+
+    @Benchmark
+    public int guestLoginLogout() throws Exception {
+        List<Future<?>> sessions = new ArrayList<>(users);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                String userId = "user" + i;
+                sessions.add(executor.submit(() -> {
+                    String guestId = usersController.enterAsGuest();
+                    usersController.loginToRegistered(guestId, userId);
+                    usersController.logout(userId);
+                    return null;
+                }));
+            }
+            for (Future<?> session : sessions) {
+                session.get();
+            }
+        }
+        return usersController.getOnlineRegisteredUsers().size();
+    }
+
+    // stubs do not record their invocations, millions of calls would fill the heap
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserLifecycleBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -4,12 +4,15 @@ import com.amazonas.backend.repository.UserCredentialsRepository;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.MacAlgorithm;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 class AuthenticationControllerTest {
     private static final MacAlgorithm alg = Jwts.SIG.HS512;
@@ -19,9 +22,10 @@ class AuthenticationControllerTest {
     private String password;
     private String hashedPassword;
     private PasswordEncoder encoder;
+    private UserCredentialsRepository ucr;
 
     public AuthenticationControllerTest() {
-        UserCredentialsRepository ucr = mock(UserCredentialsRepository.class);
+        ucr = mock(UserCredentialsRepository.class);
         userId = "testUser";
         password = "testPassword";
         encoder = new BCryptPasswordEncoder();
@@ -95,6 +99,22 @@ class AuthenticationControllerTest {
         assertFalse(authenticationController.validateTokenOwnership(userId, token));
     }
 
+    @Test
+    void tokenFromBeforeLogoutIsRejectedAfterLoggingInAgain() {
+        String oldToken = authenticationController.authenticateUser(userId, password).token();
+        when(ucr.existsById(userId.toLowerCase())).thenReturn(true);
+        VerifiedToken oldPrincipal = authenticationController.resolveToken(oldToken);
+        assertNotNull(oldPrincipal);
+
+        assertTrue(authenticationController.revokeAuthentication(userId));
+        String newToken = authenticationController.authenticateUser(userId, password).token();
+
+        assertFalse(authenticationController.validateTokenOwnership(userId, oldToken));
+        assertFalse(authenticationController.validatePrincipalOwnership(userId, oldPrincipal));
+        assertNull(authenticationController.resolveToken(oldToken));
+        assertTrue(authenticationController.validateTokenOwnership(userId, newToken));
+    }
+
     @Test
     void resetSecretKeySuccess() {
         AuthenticationResponse response = authenticationController.authenticateUser(userId, password);
@@ -105,4 +125,82 @@ class AuthenticationControllerTest {
         authenticationController.resetSecretKey();
         assertFalse(authenticationController.validateTokenOwnership(userId, token));
     }
-}
\ No newline at end of file
+
+    @Test
+    void guestCredentialsMatchNoPassword() {
+        String guestId = "guest";
+        authenticationController.createGuest(guestId);
+
+        ArgumentCaptor<String> credentials = ArgumentCaptor.forClass(String.class);
+        verify(ucr).saveGuest(eq(guestId), credentials.capture());
+        when(ucr.getHashedPassword(guestId)).thenReturn(credentials.getValue());
+        when(ucr.existsById(guestId)).thenReturn(true);
+
+        assertFalse(authenticationController.authenticateUser(guestId, credentials.getValue()).success());
+        assertFalse(authenticationController.authenticateUser(guestId, "").success());
+        assertTrue(authenticationController.authenticateGuest(guestId).success());
+    }
+
+    @Test
+    void resolvedTokenIsReusedUntilRevoked() {
+        String token = authenticationController.authenticateUser(userId, password).token();
+        when(ucr.existsById(userId.toLowerCase())).thenReturn(true);
+
+        VerifiedToken principal = authenticationController.resolveToken(token);
+        assertNotNull(principal);
+        assertEquals(userId.toLowerCase(), principal.userId());
+        assertSame(principal, authenticationController.resolveToken(token));
+        assertTrue(authenticationController.validatePrincipalOwnership(userId, principal));
+        assertFalse(authenticationController.validatePrincipalOwnership("someoneElse", principal));
+
+        authenticationController.revokeAuthentication(userId);
+        assertNull(authenticationController.resolveToken(token));
+        assertFalse(authenticationController.validatePrincipalOwnership(userId, principal));
+    }
+
+    @Test
+    void resolvedTokenIsStaleAfterSecretKeyReset() {
+        String token = authenticationController.authenticateUser(userId, password).token();
+        when(ucr.existsById(userId.toLowerCase())).thenReturn(true);
+        VerifiedToken principal = authenticationController.resolveToken(token);
+        assertNotNull(principal);
+
+        authenticationController.resetSecretKey();
+        authenticationController.authenticateUser(userId, password);
+
+        assertFalse(authenticationController.validatePrincipalOwnership(userId, principal));
+        assertNull(authenticationController.resolveToken(token));
+        assertFalse(authenticationController.validateTokenOwnership(userId, token));
+    }
+
+    @Test
+    void loginAfterSecretKeyResetStartsAFreshSession() {
+        authenticationController.authenticateUser(userId, password);
+        authenticationController.resetSecretKey();
+        assertFalse(authenticationController.revokeAuthentication(userId));
+
+        String token = authenticationController.authenticateUser(userId, password).token();
+        assertTrue(authenticationController.validateTokenOwnership(userId, token));
+        assertTrue(authenticationController.revokeAuthentication(userId));
+        assertFalse(authenticationController.validateTokenOwnership(userId, token));
+    }
+
+    @Test
+    void repeatedFailuresSlowDownOnlyTheirUserAndAddress() {
+        for (int i = 0; i < 5; i++) {
+            AuthenticationResponse response = authenticationController.authenticateUser(userId, "wrongPassword", "10.0.0.1");
+            assertFalse(response.success());
+            assertNull(response.retryAfter());
+        }
+
+        AuthenticationResponse delayed = authenticationController.authenticateUser(userId, password, "10.0.0.1");
+        assertFalse(delayed.success());
+        assertNotNull(delayed.retryAfter());
+        assertTrue(delayed.retryAfter().compareTo(Duration.ofSeconds(1)) <= 0);
+        assertNotNull(authenticationController.authenticateUser("otherUser", "password", "10.0.0.1").retryAfter());
+
+        // the failures of another address do not keep the user out
+        assertTrue(authenticationController.authenticateUser(userId, password, "10.0.0.2").success());
+        assertNull(authenticationController.authenticateUser("otherUser", "password", "10.0.0.3").retryAfter());
+    }
+}
@@ -0,0 +1,90 @@
+package com.amazonas.backend.business.authentication;
+
+import com.amazonas.backend.exceptions.ThrottledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hasher.shutdown();
+    }
+
+    @Test
+    void hashesAreComputedOnTheHasherThreads() {
+        release.countDown();
+        hasher = new PasswordHasher(blockingEncoder, 2, 4, Duration.ofSeconds(5));
+
+        assertEquals("hashed:password", hasher.encode("password"));
+        assertTrue(hasher.matches("password", "hashed:password"));
+        assertFalse(hasher.matches("other", "hashed:password"));
+
+        PasswordHasher.Snapshot metrics = hasher.snapshot();
+        assertEquals(3, metrics.completed());
+        assertEquals(0, metrics.rejected());
+    }
+
+    @Test
+    void fullQueueFailsFastWithARetryHint() throws Exception {
+        hasher = new PasswordHasher(blockingEncoder, 1, 2, Duration.ofSeconds(5));
+        List<Future<String>> waiting = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // one hash runs and two wait in the queue
+            for (int i = 0; i < 3; i++) {
+                String password = "password" + i;
+                waiting.add(callers.submit(() -> hasher.encode(password)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (hasher.snapshot().queueDepth() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, hasher.snapshot().queueDepth());
+
+            ThrottledException e = assertThrows(ThrottledException.class, () -> hasher.encode("one too many"));
+            assertFalse(e.getRetryAfter().isNegative());
+            assertEquals(1, hasher.snapshot().rejected());
+
+            release.countDown();
+            for (Future<String> future : waiting) {
+                assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("hashed:"));
+            }
+        }
+    }
+
+    @Test
+    void slowHashTimesOut() {
+        hasher = new PasswordHasher(blockingEncoder, 1, 1, Duration.ofMillis(50));
+
+        assertThrows(ThrottledException.class, () -> hasher.encode("password"));
+        assertEquals(1, hasher.snapshot().rejected());
+    }
+}
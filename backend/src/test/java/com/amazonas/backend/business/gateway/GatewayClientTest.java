@@ -0,0 +1,162 @@
+package com.amazonas.backend.business.gateway;
+
+import com.amazonas.backend.business.payment.PaymentMethod;
+import com.amazonas.backend.business.payment.PaymentService;
+import com.amazonas.backend.exceptions.GatewayException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GatewayClientTest {
+    private HttpServer server;
+    private String url;
+    private final Map<String, AtomicInteger> actions = new ConcurrentHashMap<>();
+    private volatile int status;
+    private volatile long delayMillis;
+    private volatile String reply;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        status = 200;
+        delayMillis = 0;
+        reply = null;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::answer);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void handshakeIsCachedBetweenCharges() {
+        PaymentService paymentService = new PaymentService(url);
+        PaymentMethod paymentMethod = mock(PaymentMethod.class);
+        when(paymentMethod.getCurrency()).thenReturn("USD");
+
+        assertTrue(paymentService.charge(paymentMethod, 10.0));
+        assertTrue(paymentService.charge(paymentMethod, 12.5));
+
+        assertEquals(1, calls("handshake"));
+        assertEquals(2, calls("pay"));
+        assertEquals(1, GatewayClient.of("payment", url).getMetrics().handshakesSkipped());
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        status = 500;
+        GatewayClient client = client(Duration.ofSeconds(2), 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(GatewayException.class, () -> client.post(GatewayClient.form("pay")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        // an open circuit answers without reaching the gateway
+        status = 200;
+        int reached = calls("pay");
+        assertThrows(GatewayException.class, () -> client.post(GatewayClient.form("pay")));
+        assertEquals(reached, calls("pay"));
+        GatewayMetrics.Snapshot metrics = client.getMetrics();
+        assertEquals(3, metrics.calls());
+        assertEquals(3, metrics.errors());
+        assertEquals(1, metrics.rejected());
+    }
+
+    @Test
+    void slowGatewayTimesOut() {
+        delayMillis = 2000;
+        GatewayClient client = client(Duration.ofMillis(200), 5);
+
+        long start = System.nanoTime();
+        assertEquals(-1, client.postForInt(GatewayClient.form("pay")));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(1500).toNanos());
+        assertEquals(1, client.getMetrics().errors());
+    }
+
+    @Test
+    void failedCallForcesNewHandshake() {
+        GatewayClient client = client(Duration.ofSeconds(2), 5);
+        assertTrue(client.handshake());
+        assertTrue(client.handshake());
+        status = 500;
+        assertEquals(-1, client.postForInt(GatewayClient.form("pay")));
+        status = 200;
+        assertTrue(client.handshake());
+        assertEquals(2, calls("handshake"));
+    }
+
+    @Test
+    void blankAnswerIsAFailedAction() {
+        GatewayClient client = client(Duration.ofSeconds(2), 5);
+        reply = "  ";
+        assertEquals(-1, client.postForInt(GatewayClient.form("pay")));
+        reply = " 42\n";
+        assertEquals(42, client.postForInt(GatewayClient.form("pay")));
+    }
+
+    @Test
+    void servicesAtTheSameUrlHaveTheirOwnClients() {
+        GatewayClient payment = GatewayClient.of("payment", url);
+        GatewayClient shipping = GatewayClient.of("shipping", url);
+        assertNotSame(payment, shipping);
+        assertSame(payment, GatewayClient.of("payment", url));
+
+        status = 500;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(-1, shipping.postForInt(GatewayClient.form("supply")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, shipping.getCircuitState());
+        assertEquals(CircuitBreaker.State.CLOSED, payment.getCircuitState());
+
+        Map<String, GatewayMetrics.Snapshot> metrics = GatewayClient.allMetrics();
+        assertEquals(5, metrics.get("shipping@" + url).errors());
+        assertEquals(0, metrics.get("payment@" + url).errors());
+    }
+
+    private GatewayClient client(Duration readTimeout, int failureThreshold) {
+        return new GatewayClient("test", url, readTimeout, Duration.ofMinutes(1), new CircuitBreaker(failureThreshold, Duration.ofMinutes(1)));
+    }
+
+    private int calls(String action) {
+        return actions.getOrDefault(action, new AtomicInteger()).get();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        String body = URLDecoder.decode(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        String action = body.replaceAll(".*action_type=([a-z_]+).*", "$1");
+        actions.computeIfAbsent(action, _ -> new AtomicInteger()).incrementAndGet();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String answer = "handshake".equals(action) ? "OK" : reply != null ? reply : "12345";
+        byte[] response = answer.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
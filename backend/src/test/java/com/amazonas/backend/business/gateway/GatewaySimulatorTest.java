@@ -0,0 +1,89 @@
+package com.amazonas.backend.business.gateway;
+
+import com.amazonas.backend.business.payment.PaymentMethod;
+import com.amazonas.backend.business.payment.PaymentService;
+import com.amazonas.backend.exceptions.GatewayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GatewaySimulatorTest {
+
+    private GatewaySimulator simulator;
+
+    @AfterEach
+    void tearDown() {
+        simulator.stop();
+    }
+
+    @Test
+    void speaksTheGatewayProtocol() throws IOException {
+        String url = start(GatewaySimulator.Settings.instant());
+        PaymentService paymentService = new PaymentService(url);
+
+        assertTrue(paymentService.charge(paymentMethod(), 25.0));
+        assertTrue(paymentService.cancel_pay(10_000) >= 0);
+        assertEquals(1, simulator.getRequestCounts().get("pay"));
+        assertEquals(1, simulator.getRequestCounts().get("cancel_pay"));
+    }
+
+    @Test
+    void refusesPaymentsAtTheErrorRate() throws IOException {
+        String url = start(new GatewaySimulator.Settings(0, 0, 1, 0, 0, 1));
+
+        assertFalse(new PaymentService(url).charge(paymentMethod(), 25.0));
+        assertEquals(1, simulator.getRefusedCount());
+    }
+
+    @Test
+    void outagesAnswerUnavailable() throws IOException {
+        // requests 2 and 3 of every 4 fall in an outage
+        String url = start(new GatewaySimulator.Settings(0, 0, 0, 4, 2, 1));
+        GatewayClient client = new GatewayClient("simulated", url, Duration.ofSeconds(2), Duration.ofMinutes(1), new CircuitBreaker(10, Duration.ofMinutes(1)));
+
+        assertDoesNotThrow(() -> client.post(GatewayClient.form("pay")));
+        assertDoesNotThrow(() -> client.post(GatewayClient.form("pay")));
+        assertThrows(GatewayException.class, () -> client.post(GatewayClient.form("pay")));
+        assertThrows(GatewayException.class, () -> client.post(GatewayClient.form("pay")));
+        assertDoesNotThrow(() -> client.post(GatewayClient.form("pay")));
+        assertEquals(2, simulator.getUnavailableCount());
+    }
+
+    @Test
+    void latencyFollowsTheSettingsAndTheSeed() {
+        simulator = new GatewaySimulator(new GatewaySimulator.Settings(5, 10, 0, 0, 0, 7));
+        long total = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long latency = simulator.latencyMillis(new SplittableRandom(i));
+            assertTrue(latency >= 5);
+            assertEquals(latency, simulator.latencyMillis(new SplittableRandom(i)));
+            total += latency;
+        }
+        assertEquals(15, total / 10_000.0, 0.5);
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        simulator = new GatewaySimulator(GatewaySimulator.Settings.instant());
+        assertThrows(IllegalArgumentException.class, () -> new GatewaySimulator.Settings(0, 0, 2, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new GatewaySimulator.Settings(0, 0, 0, 2, 3, 0));
+    }
+
+    private String start(GatewaySimulator.Settings settings) throws IOException {
+        simulator = new GatewaySimulator(settings);
+        return simulator.start(0);
+    }
+
+    private static PaymentMethod paymentMethod() {
+        PaymentMethod paymentMethod = mock(PaymentMethod.class);
+        when(paymentMethod.getCurrency()).thenReturn("USD");
+        return paymentMethod;
+    }
+}
@@ -0,0 +1,103 @@
+package com.amazonas.backend.business.notifications;
+
+import com.amazonas.backend.business.stores.Store;
+import com.amazonas.backend.repository.NotificationRepository;
+import com.amazonas.backend.repository.StoreRepository;
+import com.amazonas.backend.repository.UserRepository;
+import com.amazonas.backend.repository.abstracts.MongoCollection;
+import com.amazonas.common.dtos.Notification;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationFanOutTest {
+
+    private NotificationRepository notificationRepository;
+    private UserRepository userRepository;
+    private StoreRepository storeRepository;
+    private NotificationFanOut fanOut;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        notificationRepository = spy(new NotificationRepository(mock(MongoCollection.class)));
+        userRepository = mock(UserRepository.class);
+        when(userRepository.userIdExists(any())).thenReturn(true);
+        storeRepository = mock(StoreRepository.class);
+        fanOut = new NotificationFanOut(storeRepository, new NotificationController(notificationRepository, userRepository));
+    }
+
+    @Test
+    void eventIsSentToEveryOwnerOfTheStore() throws Exception {
+        store("store1", List.of("owner1", "owner2", "owner3"));
+
+        assertTrue(fanOut.publish(new StoreEvent("store1", "title", "message")));
+        awaitSent(3);
+
+        for (String ownerId : List.of("owner1", "owner2", "owner3")) {
+            List<Notification> received = notificationRepository.findByReceiverId(ownerId, 10);
+            assertEquals(1, received.size());
+            assertEquals("message", received.getFirst().message());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsAreInsertedInBatches() throws Exception {
+        store("store1", List.of("owner1", "owner2"));
+        // hold the worker in its first insert so the other events queue up behind it
+        CountDownLatch published = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            published.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(notificationRepository).insertAll(any());
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(fanOut.publish(new StoreEvent("store1", "title", "message" + i)));
+        }
+        published.countDown();
+        awaitSent(400);
+
+        ArgumentCaptor<Collection<Notification>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(notificationRepository, atMost(2)).insertAll(inserted.capture());
+        assertEquals(400, inserted.getAllValues().stream().mapToInt(Collection::size).sum());
+        assertTrue(inserted.getAllValues().stream().anyMatch(batch -> batch.size() >= 200));
+        assertEquals(200, notificationRepository.findByReceiverId("owner1", 1000).size());
+    }
+
+    @Test
+    void missingReceiversAndStoresAreSkipped() throws Exception {
+        store("store1", List.of("owner1", "gone"));
+        when(userRepository.userIdExists("gone")).thenReturn(false);
+
+        fanOut.publish(new StoreEvent("no such store", "title", "message"));
+        fanOut.publish(new StoreEvent("store1", "title", "message"));
+        awaitSent(1);
+
+        assertEquals(1, notificationRepository.findByReceiverId("owner1", 10).size());
+        assertTrue(notificationRepository.findByReceiverId("gone", 10).isEmpty());
+    }
+
+    private void store(String storeId, List<String> owners) {
+        Store store = mock(Store.class);
+        when(store.getOwners()).thenReturn(owners);
+        when(storeRepository.getStore(storeId)).thenReturn(store);
+    }
+
+    private void awaitSent(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fanOut.getSentCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, fanOut.getSentCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.amazonas.backend.business.outbox;
+
+import com.amazonas.backend.exceptions.OutboxException;
+import com.amazonas.backend.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxRelayTest {
+
+    private static final String TYPE = "test";
+
+    private OutboxRepository outboxRepository;
+    private List<String> delivered;
+    private AtomicInteger failuresLeft;
+    private MutableClock clock;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = new OutboxRepository();
+        delivered = new LinkedList<>();
+        failuresLeft = new AtomicInteger();
+        clock = new MutableClock(LocalDateTime.now());
+        relay = new OutboxRelay(outboxRepository, List.of(new OutboxHandler() {
+            @Override
+            public String type() {
+                return TYPE;
+            }
+
+            @Override
+            public void handle(OutboxMessage message) throws OutboxException {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new OutboxException("handler is down");
+                }
+                delivered.add(message.key());
+            }
+        }), clock);
+    }
+
+    @Test
+    void messagesAreDeliveredInOrderAcrossBatches() {
+        List<OutboxMessage> messages = new LinkedList<>();
+        for (int i = 0; i < 250; i++) {
+            messages.add(OutboxMessage.of(TYPE, "m" + i, ""));
+        }
+        outboxRepository.append(messages);
+
+        assertEquals(250, relay.relay());
+        assertEquals(250, delivered.size());
+        assertEquals("m0", delivered.getFirst());
+        assertEquals("m249", delivered.getLast());
+        assertEquals(0, outboxRepository.getPendingCount());
+        assertEquals(250, outboxRepository.getAppendedCount());
+        // delivered messages are dropped, a later pass has nothing to do
+        assertTrue(outboxRepository.nextPending(-1, 1000).isEmpty());
+    }
+
+    @Test
+    void failedMessageIsDeliveredOnALaterPass() {
+        outboxRepository.append(List.of(OutboxMessage.of(TYPE, "m0", "")));
+        failuresLeft.set(1);
+
+        assertEquals(0, relay.relay());
+        assertEquals(1, outboxRepository.getPendingCount());
+        // the message waits for its next attempt time instead of being retried on every pass
+        assertEquals(0, relay.relay());
+        assertTrue(delivered.isEmpty());
+        clock.advance(Duration.ofMillis(200));
+        assertEquals(1, relay.relay());
+        assertEquals(List.of("m0"), delivered);
+    }
+
+    @Test
+    void retryDelayGrowsWithEveryFailure() {
+        outboxRepository.append(List.of(OutboxMessage.of(TYPE, "m0", "")));
+        failuresLeft.set(Integer.MAX_VALUE);
+
+        relay.relay();
+        clock.advance(Duration.ofMillis(200));
+        relay.relay();
+        OutboxMessage failed = outboxRepository.nextPending(-1, 1).getFirst();
+        assertEquals(2, failed.failedAttempts());
+        assertEquals(LocalDateTime.now(clock).plus(Duration.ofMillis(400)), failed.nextAttemptAt());
+    }
+
+    @Test
+    void shortOutageDoesNotMoveTheMessageAside() {
+        outboxRepository.append(List.of(OutboxMessage.of(TYPE, "m0", "")));
+        failuresLeft.set(Integer.MAX_VALUE);
+
+        // a few seconds of 100ms polls
+        for (int i = 0; i < 50; i++) {
+            relay.relay();
+            clock.advance(Duration.ofMillis(100));
+        }
+        assertEquals(1, outboxRepository.getPendingCount());
+        assertTrue(outboxRepository.getDeadMessages().isEmpty());
+
+        failuresLeft.set(0);
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(1, relay.relay());
+        assertEquals(List.of("m0"), delivered);
+    }
+
+    @Test
+    void messageThatKeepsFailingIsMovedAsideAfterTheGiveUpTime() {
+        outboxRepository.append(List.of(OutboxMessage.of(TYPE, "m0", "")));
+        failuresLeft.set(Integer.MAX_VALUE);
+
+        relay.relay();
+        clock.advance(Duration.ofMinutes(59));
+        relay.relay();
+        assertEquals(1, outboxRepository.getPendingCount());
+        clock.advance(Duration.ofMinutes(2));
+        relay.relay();
+        assertEquals(0, outboxRepository.getPendingCount());
+        assertEquals(1, outboxRepository.getDeadMessages().size());
+    }
+
+    @Test
+    void failedStateChangeAppendsNothing() {
+        assertThrows(IllegalStateException.class, () -> outboxRepository.commit(() -> {
+            throw new IllegalStateException("commit failed");
+        }, List.of(OutboxMessage.of(TYPE, "m0", ""))));
+
+        assertEquals(0, relay.relay());
+        assertEquals(0, outboxRepository.getAppendedCount());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(LocalDateTime dateTime) {
+            instant = dateTime.atZone(getZone()).toInstant();
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -4,11 +4,15 @@ import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 import com.amazonas.common.permissions.profiles.DefaultPermissionsProfile;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.common.permissions.profiles.UserPermissionsProfile;
+import com.amazonas.common.utils.JsonUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class UserPermissionsProfileTest {
@@ -98,4 +102,68 @@ class UserPermissionsProfileTest {
     void getUserId() {
         assertEquals(USER_ID, profile.getUserId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void allStoreActionsGrantsEveryActionOfThatStoreOnly() {
+        assertTrue(profile.addStorePermission(STORE_ID, StoreActions.ALL));
+        assertTrue(profile.hasPermission(STORE_ID, StoreActions.EDIT_DISCOUNT));
+        assertFalse(profile.hasPermission("store2", StoreActions.EDIT_DISCOUNT));
+    }
+
+    @Test
+    void storePermissionsAreListedInDeclarationOrder() {
+        assertTrue(profile.addStorePermission(STORE_ID, StoreActions.EDIT_POLICY));
+        assertTrue(profile.addStorePermission(STORE_ID, STORE_ACTION));
+        assertFalse(profile.addStorePermission(STORE_ID, STORE_ACTION));
+        assertEquals(List.of(STORE_ACTION, StoreActions.EDIT_POLICY), profile.getStorePermissions(STORE_ID));
+        assertEquals(List.of(STORE_ID), profile.getStoreIds());
+
+        assertTrue(profile.removeStorePermission(STORE_ID, STORE_ACTION));
+        assertTrue(profile.removeStorePermission(STORE_ID, StoreActions.EDIT_POLICY));
+        assertTrue(profile.getStoreIds().isEmpty());
+    }
+
+    @Test
+    void profileSurvivesJsonRoundTrip() {
+        profile.addStorePermission(STORE_ID, STORE_ACTION);
+        profile.addUserActionPermission(USER_ACTION);
+        profile.addMarketActionPermission(MARKET_ACTION);
+
+        PermissionsProfile copy = JsonUtils.deserialize(JsonUtils.serialize(profile), UserPermissionsProfile.class);
+
+        assertTrue(copy.hasPermission(STORE_ID, STORE_ACTION));
+        assertTrue(copy.hasPermission(USER_ACTION));
+        assertTrue(copy.hasPermission(MARKET_ACTION));
+        assertFalse(copy.hasPermission(STORE_ID, StoreActions.REMOVE_OWNER));
+        assertEquals(USER_ID, copy.getUserId());
+    }
+
+    @Test
+    void matrixHoldsEveryStoreAndAdvancesOnChange() {
+        profile.addStorePermission(STORE_ID, STORE_ACTION);
+        profile.addStorePermission("store2", StoreActions.ALL);
+        profile.addMarketActionPermission(MARKET_ACTION);
+        PermissionsMatrix before = profile.getPermissionsMatrix();
+
+        assertTrue(before.hasPermission(STORE_ID, STORE_ACTION));
+        assertFalse(before.hasPermission(STORE_ID, StoreActions.EDIT_POLICY));
+        assertTrue(before.hasPermission("store2", StoreActions.EDIT_POLICY));
+        assertTrue(before.hasPermission(MARKET_ACTION));
+        assertEquals(2, before.storeActions().size());
+
+        assertFalse(profile.addStorePermission(STORE_ID, STORE_ACTION));
+        assertEquals(before.version(), profile.getPermissionsMatrix().version());
+
+        assertTrue(profile.removeStorePermission(STORE_ID, STORE_ACTION));
+        PermissionsMatrix after = JsonUtils.deserialize(JsonUtils.serialize(profile.getPermissionsMatrix()), PermissionsMatrix.class);
+        assertTrue(after.version() > before.version());
+        assertFalse(after.hasPermission(STORE_ID, STORE_ACTION));
+    }
+
+    @Test
+    void matrixVersionsAreNotReusedByANewProfile() {
+        long old = profile.getPermissionsMatrix().version();
+        PermissionsProfile replacement = new UserPermissionsProfile(USER_ID, new DefaultPermissionsProfile("default_registered_user"));
+        assertNotEquals(old, replacement.getPermissionsMatrix().version());
+    }
+}
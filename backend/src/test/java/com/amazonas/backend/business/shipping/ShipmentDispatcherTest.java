@@ -0,0 +1,197 @@
+package com.amazonas.backend.business.shipping;
+
+import com.amazonas.common.dtos.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ShipmentDispatcherTest {
+
+    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+    private final List<Integer> recordedBatchSizes = new CopyOnWriteArrayList<>();
+    private final ShippingService shippingService = mock(ShippingService.class);
+    private ShipmentDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void pendingOrdersAreShippedAndRecordedInBatches() throws Exception {
+        when(shippingService.ship(any())).thenReturn(true);
+        dispatcher = dispatcher(2, 25, 3);
+
+        List<CompletableFuture<Boolean>> results = new LinkedList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(dispatcher.submit(transaction("t" + i).getTransactionId(), "service1"));
+        }
+
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(100, recordedBatchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(recordedBatchSizes.stream().allMatch(size -> size <= 25));
+        assertTrue(recordedBatchSizes.size() < 100);
+    }
+
+    @Test
+    void refusedShipmentIsRetriedWithBackoff() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(shippingService.ship(any())).thenAnswer(_ -> attempts.incrementAndGet() >= 3);
+        dispatcher = dispatcher(1, 10, 5);
+
+        assertTrue(dispatcher.submit(transaction("t1").getTransactionId(), "service1").get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void shipmentFailsAfterLastAttempt() throws Exception {
+        when(shippingService.ship(any())).thenThrow(new RuntimeException("gateway is down"));
+        dispatcher = dispatcher(1, 10, 3);
+
+        assertFalse(dispatcher.submit(transaction("t1").getTransactionId(), "service1").get(5, TimeUnit.SECONDS));
+        assertTrue(recordedBatchSizes.isEmpty());
+    }
+
+    @Test
+    void unknownServiceOrTransactionFailsImmediately() throws Exception {
+        when(shippingService.ship(any())).thenReturn(true);
+        dispatcher = dispatcher(1, 10, 3);
+        transaction("t1");
+
+        assertFalse(dispatcher.submit("t1", "no such service").get(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.submit("no such transaction", "service1").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void transactionInFlightIsNotShippedTwice() throws Exception {
+        CountDownLatch shipping = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(shippingService.ship(any())).thenAnswer(_ -> {
+            shipping.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        dispatcher = dispatcher(2, 1, 3);
+        transaction("t1");
+
+        CompletableFuture<Boolean> first = dispatcher.submit("t1", "service1");
+        assertTrue(shipping.await(5, TimeUnit.SECONDS));
+        // the first batch is being shipped, the second one and the direct path get its result
+        CompletableFuture<Boolean> second = dispatcher.submit("t1", "service1");
+        CompletableFuture<Boolean> direct = dispatcher.shipNow("t1", () -> fail("shipped twice"));
+        assertSame(first, second);
+        assertSame(first, direct);
+        release.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        verify(shippingService, times(1)).ship(any());
+        // once recorded the transaction is no longer in flight, and it is no longer pending either
+        assertFalse(dispatcher.submit("t1", "service1").get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1), recordedBatchSizes);
+    }
+
+    @Test
+    void shutdownLetsRunningBatchesFinishAndFailsTheRest() throws Exception {
+        CountDownLatch refused = new CountDownLatch(1);
+        CountDownLatch shipping = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(shippingService.ship(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if (!"t1".equals(transaction.getTransactionId())) {
+                refused.countDown();
+                return false;
+            }
+            shipping.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        dispatcher = new ShipmentDispatcher(serviceId -> "service1".equals(serviceId) ? shippingService : null,
+                transactions::get,
+                this::record,
+                1,
+                1,
+                3,
+                Duration.ofMinutes(1),
+                Duration.ofMinutes(1));
+        transaction("t1");
+        transaction("t2");
+        transaction("t3");
+
+        // t3 is refused once and waits a minute for its retry, t2 is queued behind the running t1
+        CompletableFuture<Boolean> retrying = dispatcher.submit("t3", "service1");
+        assertTrue(refused.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> running = dispatcher.submit("t1", "service1");
+        assertTrue(shipping.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = dispatcher.submit("t2", "service1");
+        CompletableFuture.runAsync(() -> {
+            sleep(100);
+            release.countDown();
+        });
+
+        dispatcher.shutdown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertFalse(queued.get(5, TimeUnit.SECONDS));
+        assertFalse(retrying.get(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.submit("t4", "service1").get(5, TimeUnit.SECONDS));
+        verify(shippingService, times(2)).ship(any());
+    }
+
+    @Test
+    void backoffGrowsUpToTheCap() {
+        dispatcher = dispatcher(1, 10, 3);
+        assertEquals(10, dispatcher.backoffMillis(1));
+        assertEquals(20, dispatcher.backoffMillis(2));
+        assertEquals(40, dispatcher.backoffMillis(3));
+        assertEquals(100, dispatcher.backoffMillis(20));
+    }
+
+    private ShipmentDispatcher dispatcher(int workers, int batchSize, int maxAttempts) {
+        return new ShipmentDispatcher(serviceId -> "service1".equals(serviceId) ? shippingService : null,
+                transactions::get,
+                this::record,
+                workers,
+                batchSize,
+                maxAttempts,
+                Duration.ofMillis(10),
+                Duration.ofMillis(100));
+    }
+
+    private Set<String> record(Collection<Transaction> shipped) {
+        recordedBatchSizes.add(shipped.size());
+        Set<String> ids = new HashSet<>();
+        shipped.forEach(transaction -> {
+            transaction.setShipped();
+            ids.add(transaction.getTransactionId());
+        });
+        return ids;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+        private Transaction transaction(String id) {
+        Transaction transaction = new Transaction(id, "store1", "user1", LocalDateTime.now(), new HashMap<>());
+        transactions.put(id, transaction);
+        return transaction;
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -446,4 +447,56 @@ class DiscountManagerTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void calculatePriceInCentsMatchesDiscountedPrices() {
+        try {
+            DiscountComponentDTO categoryDiscount = new SimpleDiscountDTO(HierarchyLevel.CategoryLevel, "category1", 50);
+            discountManager.changeDiscountPolicy(categoryDiscount);
+            assertEquals(217000L, discountManager.calculatePriceInCents(PricedBasket.of(cart)));
+        }
+        catch (Exception e) {
+            fail("Exception occurred while applying discount policy");
+        }
+    }
+
+    @Test
+    void discountedPricesAreRoundedToWholeCents() {
+        try {
+            Product cheap = new Product("7", "", 0.15, "category3", "", Rating.FIVE_STARS);
+            DiscountComponentDTO globalDiscount = new SimpleDiscountDTO(HierarchyLevel.StoreLevel, "", 10);
+            discountManager.changeDiscountPolicy(globalDiscount);
+            ProductAfterDiscount[] res = discountManager.applyDiscountPolicy(List.of(new ProductWithQuantitiy(cheap, 3)));
+            assertEquals(0.14, res[0].priceAfterDiscount());
+            assertEquals(42L, discountManager.calculatePriceInCents(PricedBasket.of(List.of(new ProductWithQuantitiy(cheap, 3)))));
+        }
+        catch (Exception e) {
+            fail("Exception occurred while applying discount policy");
+        }
+    }
+
+    @Test
+    void readersSeeWholePoliciesWhileTheyAreReplaced() throws InterruptedException {
+        DiscountComponentDTO globalDiscount = new SimpleDiscountDTO(HierarchyLevel.StoreLevel, "", 50);
+        DiscountComponentDTO categoryDiscount = new SimpleDiscountDTO(HierarchyLevel.CategoryLevel, "category1", 50);
+        PricedBasket basket = PricedBasket.of(cart);
+        AtomicBoolean unexpectedPrice = new AtomicBoolean(false);
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                long price = discountManager.calculatePriceInCents(basket);
+                if (price != 232000L && price != 116000L && price != 217000L) {
+                    unexpectedPrice.set(true);
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                discountManager.changeDiscountPolicy(i % 2 == 0 ? globalDiscount : categoryDiscount);
+            }
+        } catch (Exception e) {
+            fail("Exception occurred while changing discount policy");
+        }
+        reader.join();
+        assertFalse(unexpectedPrice.get());
+    }
+}
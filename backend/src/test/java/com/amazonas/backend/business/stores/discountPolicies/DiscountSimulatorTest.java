@@ -0,0 +1,90 @@
+package com.amazonas.backend.business.stores.discountPolicies;
+
+import com.amazonas.common.DiscountDTOs.HierarchyLevel;
+import com.amazonas.common.DiscountDTOs.SimpleDiscountDTO;
+import com.amazonas.common.dtos.DiscountSimulationResult;
+import com.amazonas.common.dtos.Product;
+import com.amazonas.common.dtos.Transaction;
+import com.amazonas.common.utils.Rating;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscountSimulatorTest {
+    private Product book;
+    private Product pen;
+    private DiscountManager candidate;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        book = new Product("book", "Book", 40.0, "books", "", Rating.FIVE_STARS);
+        pen = new Product("pen", "Pen", 2.5, "office", "", Rating.FIVE_STARS);
+        candidate = new DiscountManager();
+        candidate.changeDiscountPolicy(new SimpleDiscountDTO(HierarchyLevel.CategoryLevel, "books", 25));
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void reportsDiscountPerProductAndCategory() {
+        List<Transaction> history = List.of(
+                order("1", Map.of(book, 2, pen, 1)),
+                order("2", Map.of(pen, 4)),
+                order("3", Map.of(book, 1)));
+
+        DiscountSimulationResult result = new DiscountSimulator(candidate, pool).simulate(history);
+
+        assertEquals(3, result.totalOrders());
+        assertEquals(2, result.affectedOrders());
+        assertEquals(200.0 / 3, result.affectedOrdersPercentage(), 0.0001);
+        assertEquals(30.0, result.totalDiscount());
+        assertEquals(Map.of("book", 30.0), result.discountPerProduct());
+        assertEquals(Map.of("books", 30.0), result.discountPerCategory());
+    }
+
+    @Test
+    void canceledOrdersAreNotReplayed() {
+        Transaction canceled = order("1", Map.of(book, 1));
+        canceled.setCancelled();
+
+        DiscountSimulationResult result = new DiscountSimulator(candidate, pool).simulate(List.of(canceled, order("2", Map.of(pen, 1))));
+
+        assertEquals(1, result.totalOrders());
+        assertEquals(0, result.affectedOrders());
+        assertEquals(0.0, result.totalDiscount());
+        assertTrue(result.discountPerProduct().isEmpty());
+    }
+
+    @Test
+    void mergesTheTalliesOfAllPartitions() {
+        List<Transaction> history = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            history.add(i % 2 == 0 ? order(String.valueOf(i), Map.of(book, 1)) : order(String.valueOf(i), Map.of(pen, 3)));
+        }
+
+        DiscountSimulationResult result = new DiscountSimulator(candidate, pool).simulate(history);
+
+        assertEquals(10_000, result.totalOrders());
+        assertEquals(5_000, result.affectedOrders());
+        assertEquals(50.0, result.affectedOrdersPercentage());
+        assertEquals(50_000.0, result.totalDiscount());
+        assertEquals(50_000.0, result.discountPerCategory().get("books"));
+    }
+
+    private Transaction order(String id, Map<Product, Integer> products) {
+        return new Transaction(id, "store", "user", LocalDateTime.now(), products);
+    }
+}
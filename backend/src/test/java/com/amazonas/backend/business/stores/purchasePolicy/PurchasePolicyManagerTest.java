@@ -10,8 +10,7 @@ import com.amazonas.common.utils.Rating;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.*;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -405,4 +404,98 @@ class PurchasePolicyManagerTest {
             fail("Exception occurred while applying empty discount policy");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void cheapRuleShortCircuitsBeforeBasketScan() {
+        try {
+            List<PurchaseRuleDTO> rules = new LinkedList<>();
+            ConditionLevelDTO cond = new ConditionLevelDTO(ConditionLevelType.CATEGORY_LEVEL, "category1", 1);
+            rules.add(new ConditionalPurchaseRuleDTO(cond, new NumericalPurchaseRuleDTO(NumericalPurchaseRuleType.MIN_UNIQUE_PRODUCTS, 1)));
+            rules.add(new NumericalPurchaseRuleDTO(NumericalPurchaseRuleType.AGE_RESTRICTION, 30));
+            MultiplePurchaseRuleDTO rule = new MultiplePurchaseRuleDTO(MultiplePurchaseRuleType.AND, rules);
+            purchasePolicyManager.changePurchasePolicy(rule);
+            // scanning this basket would fail, so the age rule must be evaluated first
+            List<ProductWithQuantitiy> unscannable = new ArrayList<>();
+            unscannable.add(new ProductWithQuantitiy(null, 1));
+            assertFalse(purchasePolicyManager.isSatisfied(unscannable, user));
+        }
+        catch (Exception e) {
+            fail("Exception occurred while applying purchase policy");
+        }
+    }
+
+    @Test
+    void nestedConditionalRulesShareBasketFacts() {
+        try {
+            ConditionLevelDTO productCond = new ConditionLevelDTO(ConditionLevelType.PRODUCT_LEVEL, "6", 2);
+            ConditionLevelDTO categoryCond = new ConditionLevelDTO(ConditionLevelType.CATEGORY_LEVEL, "category2", 4);
+            ConditionalPurchaseRuleDTO inner = new ConditionalPurchaseRuleDTO(productCond,
+                    new NumericalPurchaseRuleDTO(NumericalPurchaseRuleType.MAX_UNIQUE_PRODUCTS, 5));
+            List<PurchaseRuleDTO> rules = new LinkedList<>();
+            rules.add(new ConditionalPurchaseRuleDTO(categoryCond, inner));
+            rules.add(new NumericalPurchaseRuleDTO(NumericalPurchaseRuleType.MIN_UNIQUE_PRODUCTS, 1));
+            purchasePolicyManager.changePurchasePolicy(new MultiplePurchaseRuleDTO(MultiplePurchaseRuleType.AND, rules));
+            assertFalse(purchasePolicyManager.isSatisfied(cart, user));
+            cart.removeLast();
+            assertTrue(purchasePolicyManager.isSatisfied(cart, user));
+        }
+        catch (Exception e) {
+            fail("Exception occurred while applying purchase policy");
+        }
+    }
+
+    @Test
+    void hourRestrictionVerdictFlipsAtRangeEdges() {
+        try {
+            MutableClock clock = new MutableClock(LocalDateTime.of(2024, 6, 10, 9, 0));
+            purchasePolicyManager = new PurchasePolicyManager(clock);
+            List<PurchaseRuleDTO> rules = new LinkedList<>();
+            rules.add(new DatePurchaseRuleDTO(DatePurchaseRuleType.HOUR_RESTRICTION, LocalTime.of(10, 0), LocalTime.of(11, 0)));
+            rules.add(new DatePurchaseRuleDTO(DatePurchaseRuleType.DAY_RESTRICTION, LocalDate.of(2024, 6, 12), LocalDate.of(2024, 6, 12)));
+            purchasePolicyManager.changePurchasePolicy(new MultiplePurchaseRuleDTO(MultiplePurchaseRuleType.AND, rules));
+            assertTrue(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 10, 9, 59, 59));
+            assertTrue(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 10, 10, 0));
+            assertFalse(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 10, 11, 0));
+            assertFalse(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 10, 11, 0, 1));
+            assertTrue(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 12, 8, 0));
+            assertFalse(purchasePolicyManager.isSatisfied(cart, user));
+            clock.set(LocalDateTime.of(2024, 6, 13, 8, 0));
+            assertTrue(purchasePolicyManager.isSatisfied(cart, user));
+        }
+        catch (Exception e) {
+            fail("Exception occurred while applying purchase policy");
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(LocalDateTime dateTime) {
+            set(dateTime);
+        }
+
+        void set(LocalDateTime dateTime) {
+            instant = dateTime.atZone(getZone()).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
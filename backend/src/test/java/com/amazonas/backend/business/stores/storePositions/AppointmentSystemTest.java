@@ -4,6 +4,7 @@ import com.amazonas.common.dtos.StorePosition;
 import com.amazonas.common.dtos.StoreRole;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -646,6 +647,76 @@ class AppointmentSystemTest {
         assertTrue(result);
     }
 
+    /******************************************************************
+     *
+     * getVersion
+     *
+     *****************************************************************/
+
+    @org.junit.jupiter.api.Test
+    void givenAppointmentChangesWhenGetVersionThenVersionChangesOnlyOnSuccess() {
+        long version = appointmentSystem.getVersion();
+        assertTrue(appointmentSystem.addOwner("25489", "12345"));
+        assertNotEquals(version, appointmentSystem.getVersion());
+
+        version = appointmentSystem.getVersion();
+        assertFalse(appointmentSystem.addOwner("25489", "12345"));
+        assertEquals(version, appointmentSystem.getVersion());
 
+        assertTrue(appointmentSystem.removeOwner("25489", "12345"));
+        assertNotEquals(version, appointmentSystem.getVersion());
+    }
+
+    /******************************************************************
+     *
+     * StoreRoleIndex
+     *
+     *****************************************************************/
 
+    @org.junit.jupiter.api.Test
+    void givenTwoStoresWhenAppointmentsChangeThenIndexFollows() {
+        StoreRoleIndex index = new StoreRoleIndex();
+        AppointmentSystem store1 = new AppointmentSystem("25489", "store1", index);
+        AppointmentSystem store2 = new AppointmentSystem("12345", "store2", index);
+
+        assertTrue(store1.addOwner("25489", "12345"));
+        assertTrue(store1.addManager("12345", "39021"));
+        assertTrue(store2.addManager("12345", "39021"));
+        assertEquals(Map.of("store1", StoreRole.STORE_OWNER, "store2", StoreRole.STORE_FOUNDER), index.getRoles("12345"));
+        assertEquals(Map.of("store1", StoreRole.STORE_MANAGER, "store2", StoreRole.STORE_MANAGER), index.getRoles("39021"));
+
+        // removing the owner removes the manager it appointed as well
+        assertTrue(store1.removeOwner("25489", "12345"));
+        assertEquals(Map.of("store2", StoreRole.STORE_FOUNDER), index.getRoles("12345"));
+        assertEquals(StoreRole.NONE, index.getRole("39021", "store1"));
+        assertEquals(StoreRole.STORE_MANAGER, index.getRole("39021", "store2"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void givenCachedOwnersWhenTeamChangesThenOwnersAreRecomputed() {
+        assertTrue(appointmentSystem.addOwner("25489", "12345"));
+        List<String> owners = appointmentSystem.getOwnerIds();
+        assertEquals(List.of("12345"), owners);
+        assertSame(owners.getFirst(), appointmentSystem.getOwnerIds().getFirst());
+
+        assertTrue(appointmentSystem.addManager("12345", "39021"));
+        assertEquals(List.of("39021"), appointmentSystem.getManagerIds());
+        assertTrue(appointmentSystem.removeOwner("25489", "12345"));
+        assertTrue(appointmentSystem.getOwnerIds().isEmpty());
+        assertTrue(appointmentSystem.getManagerIds().isEmpty());
+    }
+
+    @org.junit.jupiter.api.Test
+    void givenHierarchyWhenGetAppointedUnderThenWholeBranch() {
+        assertTrue(appointmentSystem.addOwner("25489", "12345"));
+        assertTrue(appointmentSystem.addOwner("12345", "54321"));
+        assertTrue(appointmentSystem.addManager("54321", "39021"));
+        assertTrue(appointmentSystem.addManager("25489", "11111"));
+
+        assertEquals(List.of("54321", "39021"), appointmentSystem.getAppointedUnder("12345"));
+        assertTrue(appointmentSystem.isAppointedUnder("12345", "39021"));
+        assertFalse(appointmentSystem.isAppointedUnder("12345", "11111"));
+        assertFalse(appointmentSystem.removeManager("12345", "39021"));
+        assertEquals(StoreRole.STORE_MANAGER, appointmentSystem.getRoleOfUser("39021"));
+    }
 }
@@ -0,0 +1,106 @@
+package com.amazonas.backend.business.stores.storePositions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OwnershipTreeTest {
+
+    private static final String FOUNDER = "founder";
+    private OwnershipTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new OwnershipTree(FOUNDER);
+    }
+
+    @Test
+    void subtreeHoldsEveryoneAppointedUnderTheOwner() {
+        assertNotNull(tree.add(FOUNDER, "owner1", true));
+        assertNotNull(tree.add(FOUNDER, "owner2", true));
+        assertNotNull(tree.add("owner1", "owner3", true));
+        assertNotNull(tree.add("owner3", "manager1", false));
+        assertNotNull(tree.add("owner2", "manager2", false));
+
+        assertEquals(List.of("owner1", "owner3", "manager1"), tree.subtree(tree.get("owner1")));
+        assertTrue(tree.isUnder(tree.get("owner1"), tree.get("manager1")));
+        assertFalse(tree.isUnder(tree.get("owner1"), tree.get("manager2")));
+        assertFalse(tree.isUnder(tree.get("owner1"), tree.get("owner1")));
+    }
+
+    @Test
+    void managersAndMembersCannotBeAppointedAgain() {
+        assertNotNull(tree.add(FOUNDER, "manager1", false));
+        assertNull(tree.add("manager1", "owner1", true));
+        assertNull(tree.add(FOUNDER, "manager1", true));
+        assertNull(tree.add("unknown", "owner1", true));
+    }
+
+    @Test
+    void removeTakesTheWholeRangeOnly() {
+        tree.add(FOUNDER, "owner1", true);
+        tree.add("owner1", "owner2", true);
+        tree.add("owner2", "manager1", false);
+        tree.add(FOUNDER, "owner3", true);
+
+        assertEquals(List.of("owner1", "owner2", "manager1"), tree.remove(tree.get("owner1")));
+        assertEquals(2, tree.size());
+        assertNull(tree.get("manager1"));
+        assertEquals(List.of(FOUNDER, "owner3"), tree.subtree(tree.getRoot()));
+        assertThrows(IllegalArgumentException.class, () -> tree.remove(tree.getRoot()));
+    }
+
+    @Test
+    void deepChainOutlivesTheLabelGaps() {
+        // every appointment lands at the same spot of the tour, so its groups are split and relabeled over and over
+        String appointer = FOUNDER;
+        for (int i = 0; i < 1000; i++) {
+            String owner = "owner" + i;
+            assertNotNull(tree.add(appointer, owner, true));
+            tree.add(appointer, "manager" + i, false);
+            appointer = owner;
+        }
+
+        OwnershipTree.Member top = tree.get("owner0");
+        assertTrue(tree.isUnder(top, tree.get("owner999")));
+        assertTrue(tree.isUnder(tree.get("owner500"), tree.get("manager999")));
+        assertFalse(tree.isUnder(tree.get("owner500"), tree.get("manager500")));
+        assertEquals(1999, tree.subtree(top).size());
+        assertEquals(999, tree.remove(tree.get("owner500")).size());
+        assertEquals(1002, tree.size());
+    }
+
+    @Test
+    void wideHierarchyMatchesItsAppointers() {
+        Random random = new Random(7);
+        List<String> ids = new ArrayList<>(List.of(FOUNDER));
+        for (int i = 0; i < 20_000; i++) {
+            // mostly the founder, so most inserts land right before the founder's exit
+            String appointer = random.nextInt(4) == 0 ? ids.get(random.nextInt(ids.size())) : FOUNDER;
+            if (tree.add(appointer, "owner" + i, true) != null) {
+                ids.add("owner" + i);
+            }
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            OwnershipTree.Member ancestor = tree.get(ids.get(random.nextInt(ids.size())));
+            OwnershipTree.Member member = tree.get(ids.get(random.nextInt(ids.size())));
+            assertEquals(appointedUnder(ancestor, member), tree.isUnder(ancestor, member));
+        }
+        assertEquals(ids.size(), tree.subtree(tree.getRoot()).size());
+    }
+
+    private static boolean appointedUnder(OwnershipTree.Member ancestor, OwnershipTree.Member member) {
+        for (OwnershipTree.Member m = member.getAppointer(); m != null; m = m.getAppointer()) {
+            if (m == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazonas.backend.business.userProfiles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class GuestPoolTest {
+
+    private final GuestPool pool = new GuestPool(_ -> mock(ShoppingCart.class), 8);
+
+    @AfterEach
+    void tearDown() {
+        pool.stop();
+    }
+
+    @Test
+    void emptyPoolAllocatesOnTheCallersThread() {
+        GuestPool.PreparedGuest guest = pool.take();
+
+        assertNotNull(guest.guest().getUserId());
+        assertNotNull(guest.cart());
+        assertEquals(1, pool.getMisses());
+        assertEquals(0, pool.getHits());
+    }
+
+    @Test
+    void filledPoolHandsOutDistinctGuests() {
+        assertEquals(8, pool.fill());
+        assertEquals(0, pool.fill());
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(pool.take().guest().getUserId());
+        }
+        assertEquals(8, ids.size());
+        assertEquals(8, pool.getHits());
+        assertEquals(0, pool.getReadyCount());
+    }
+
+    @Test
+    void refillerTopsThePoolUp() throws InterruptedException {
+        pool.start();
+        waitForReady(8);
+        for (int i = 0; i < 6; i++) {
+            pool.take();
+        }
+        waitForReady(8);
+        assertEquals(8, pool.getReadyCount());
+    }
+
+    private void waitForReady(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getReadyCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
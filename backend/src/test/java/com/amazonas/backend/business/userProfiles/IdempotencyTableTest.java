@@ -0,0 +1,117 @@
+package com.amazonas.backend.business.userProfiles;
+
+import com.amazonas.backend.exceptions.PurchaseFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyTableTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void retryReturnsTheRecordedSuccess() throws Exception {
+        IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1));
+
+        table.runOnce("key", runs::incrementAndGet);
+        table.runOnce("key", runs::incrementAndGet);
+        table.runOnce("other", runs::incrementAndGet);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void retryReturnsTheRecordedFailure() {
+        IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1));
+        IdempotencyTable.PurchaseAction failing = () -> {
+            runs.incrementAndGet();
+            throw new PurchaseFailedException("Payment failed");
+        };
+
+        assertThrows(PurchaseFailedException.class, () -> table.runOnce("key", failing));
+        PurchaseFailedException replayed = assertThrows(PurchaseFailedException.class, () -> table.runOnce("key", failing));
+        assertEquals("Payment failed", replayed.getMessage());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheRunningCall() throws Exception {
+        IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = executor.submit(() -> {
+                table.runOnce("key", () -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    awaitQuietly(release);
+                });
+                return null;
+            });
+            started.await();
+            Future<?> duplicate = executor.submit(() -> {
+                table.runOnce("key", runs::incrementAndGet);
+                return null;
+            });
+
+            assertThrows(TimeoutException.class, () -> duplicate.get(100, TimeUnit.MILLISECONDS));
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            duplicate.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void duplicatesOfAnActionThatThrewAnErrorDoNotWait() {
+        IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1));
+
+        assertThrows(StackOverflowError.class, () -> table.runOnce("key", () -> {
+            runs.incrementAndGet();
+            throw new StackOverflowError();
+        }));
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(PurchaseFailedException.class, () -> table.runOnce("key", runs::incrementAndGet)));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void expiredKeysRunAgain() throws Exception {
+        IdempotencyTable table = new IdempotencyTable(10, Duration.ofMillis(20));
+
+        table.runOnce("key", runs::incrementAndGet);
+        Thread.sleep(50);
+        table.runOnce("key", runs::incrementAndGet);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void tableIsBoundedByCapacity() throws Exception {
+        IdempotencyTable table = new IdempotencyTable(3, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 10; i++) {
+            table.runOnce("key" + i, runs::incrementAndGet);
+        }
+        assertEquals(3, table.size());
+
+        // the eldest keys were dropped, the newest are still remembered
+        table.runOnce("key9", runs::incrementAndGet);
+        assertEquals(10, runs.get());
+        table.runOnce("key0", runs::incrementAndGet);
+        assertEquals(11, runs.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.amazonas.backend.business.userProfiles;
 
+import com.amazonas.backend.business.stores.factories.StoreCallbackFactory;
 import com.amazonas.backend.business.stores.reservations.Reservation;
+import com.amazonas.backend.business.stores.reservations.ReservationFactory;
 import com.amazonas.backend.exceptions.PurchaseFailedException;
 import com.amazonas.backend.exceptions.ShoppingCartException;
+import com.amazonas.backend.repository.ShoppingCartRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.mock;
@@ -40,7 +46,7 @@ class ShoppingCartTest {
         when(storeBasketFactory.get(STORE_ID,USER_ID)).thenReturn(storeBasket);
         doNothing().when(storeBasket).addProduct(PRODUCT_ID, 1);
         cart.addProduct(STORE_ID, PRODUCT_ID, 1);
-        when(storeBasket.getTotalPrice()).thenReturn(100.0);
+        when(storeBasket.getTotalPriceInCents()).thenReturn(10000L);
         assertEquals(100.0, cart.getTotalPrice());
     }
 
@@ -76,7 +82,73 @@ class ShoppingCartTest {
         assertThrows(PurchaseFailedException.class, () -> cart.reserveCart());
     }
 
+    @Test
+    void reserveCartReservesStoresInParallel() throws ShoppingCartException, PurchaseFailedException {
+        for (int i = 0; i < 5; i++) {
+            StoreBasket basket = mock(StoreBasket.class);
+            when(storeBasketFactory.get(STORE_ID + i, USER_ID)).thenReturn(basket);
+            when(basket.reserveBasket()).thenAnswer(_ -> {
+                Thread.sleep(300);
+                return mock(Reservation.class);
+            });
+            cart.addProduct(STORE_ID + i, PRODUCT_ID, 1);
+        }
+
+        long start = System.nanoTime();
+        assertEquals(5, cart.reserveCart().size());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + "ms");
+        assertEquals(5, cart.getLastReservationTimings().size());
+        cart.getLastReservationTimings().values().forEach(d -> assertTrue(d.toMillis() >= 300));
+    }
+
+    @Test
+    void reserveCartRollsBackWhenAStoreFails() throws ShoppingCartException {
+        StoreBasket failing = mock(StoreBasket.class);
+        Reservation reservation = mock(Reservation.class);
+        when(storeBasketFactory.get(STORE_ID, USER_ID)).thenReturn(storeBasket);
+        when(storeBasketFactory.get("otherStore", USER_ID)).thenReturn(failing);
+        when(storeBasket.reserveBasket()).thenReturn(reservation);
+        when(failing.reserveBasket()).thenReturn(null);
+        cart.addProduct(STORE_ID, PRODUCT_ID, 1);
+        cart.addProduct("otherStore", PRODUCT_ID, 1);
+
+        assertThrows(PurchaseFailedException.class, () -> cart.reserveCart());
+        verify(reservation, timeout(1000)).cancelReservation();
+    }
+
+    @Test
+    void failedReservationIsRolledBackWithoutDeadlock() throws ShoppingCartException {
+        StoreCallbackFactory storeCallbackFactory = mock(StoreCallbackFactory.class);
+        when(storeCallbackFactory.cancelReservation(STORE_ID)).thenReturn(_ -> true);
+        ShoppingCartRepository shoppingCartRepository = mock(ShoppingCartRepository.class);
+        when(shoppingCartRepository.getCart(USER_ID)).thenReturn(cart);
+        ReservationFactory reservationFactory = new ReservationFactory(storeCallbackFactory, shoppingCartRepository);
 
+        StoreBasket reserved = new StoreBasket(
+                products -> reservationFactory.get(USER_ID, STORE_ID, products, LocalDateTime.now().plusMinutes(5)),
+                _ -> 0L);
+        // fails only after the other reservation is done, so its rollback runs on the calling thread
+        StoreBasket failing = new StoreBasket(_ -> {
+            sleepQuietly(100);
+            return null;
+        }, _ -> 0L);
+        when(storeBasketFactory.get(STORE_ID, USER_ID)).thenReturn(reserved);
+        when(storeBasketFactory.get("otherStore", USER_ID)).thenReturn(failing);
+        cart.addProduct(STORE_ID, PRODUCT_ID, 1);
+        cart.addProduct("otherStore", PRODUCT_ID, 1);
 
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(PurchaseFailedException.class, () -> cart.reserveCart()));
+        assertFalse(reserved.isReserved());
+    }
 
-}
\ No newline at end of file
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
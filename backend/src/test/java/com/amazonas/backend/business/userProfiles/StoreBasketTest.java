@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -15,13 +16,13 @@ import static org.mockito.Mockito.mock;
 class StoreBasketTest {
     private final String PRODUCT_ID = "productId";
     private Function<Map<String,Integer>, Reservation> makeReservation;
-    private Function<Map<String,Integer>, Double> calculatePrice;
+    private ToLongFunction<Map<String,Integer>> calculatePrice;
     private StoreBasket storeBasket;
 
     @BeforeEach
     void setUp() {
         makeReservation = mock(Function.class);
-        calculatePrice = mock(Function.class);
+        calculatePrice = mock(ToLongFunction.class);
         storeBasket = new StoreBasket(makeReservation, calculatePrice);
     }
 
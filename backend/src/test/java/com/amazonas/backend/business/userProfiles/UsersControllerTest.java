@@ -5,6 +5,7 @@ import com.amazonas.backend.business.notifications.NotificationController;
 import com.amazonas.backend.business.payment.PaymentMethod;
 import com.amazonas.backend.business.payment.PaymentService;
 import com.amazonas.backend.business.permissions.PermissionsController;
+import com.amazonas.backend.business.stores.Store;
 import com.amazonas.backend.business.stores.reservations.Reservation;
 import com.amazonas.backend.exceptions.PurchaseFailedException;
 import com.amazonas.backend.exceptions.UserException;
@@ -16,6 +17,7 @@ import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -23,6 +25,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class UsersControllerTest {
@@ -70,10 +73,12 @@ class UsersControllerTest {
                 shoppingCartRepository,
                 permissionsController,
                 notificationController,
-                storeRepository
+                storeRepository,
+                new OutboxRepository()
                 );
 
         cart = mock(ShoppingCart.class);
+        when(shoppingCartFactory.get(anyString())).thenAnswer(_ -> mock(ShoppingCart.class));
     }
 
     @Test
@@ -221,7 +226,7 @@ class UsersControllerTest {
     void testConcurrentStartPurchase() throws InterruptedException, NoSuchFieldException, IllegalAccessException {
 
         ShoppingCart cart = new ShoppingCart(storeBasketFactory, USER_ID);
-        StoreBasket basket = new StoreBasket(_->mock(Reservation.class), _->0.0);
+        StoreBasket basket = new StoreBasket(_->mock(Reservation.class), _->0L);
         Field basketsField = ShoppingCart.class.getDeclaredField("baskets");
         basketsField.setAccessible(true);
         Map<String,StoreBasket> baskets = (Map<String,StoreBasket>) basketsField.get(cart);
@@ -253,6 +258,115 @@ class UsersControllerTest {
         assertEquals(1, counter.get());
     }
 
+    @Test
+    void testConcurrentCheckoutsWithSlowGateway() throws InterruptedException {
+        final int users = 20;
+        User user = mock(User.class);
+        Store store = mock(Store.class);
+        Reservation reservation = mock(Reservation.class);
+        when(reservation.productIdToQuantity()).thenReturn(Map.of());
+        when(reservation.storeId()).thenReturn("storeId");
+        when(reservationRepository.getReservations(anyString())).thenReturn(List.of(reservation));
+        when(userRepository.getUser(anyString())).thenReturn(user);
+        when(shoppingCartRepository.getCart(anyString())).thenReturn(cart);
+        when(storeRepository.getStore("storeId")).thenReturn(store);
+        when(store.getOwners()).thenReturn(List.of());
+        when(cart.getTotalPrice()).thenReturn(10.0);
+        // simulated gateway that takes 500 ms to answer
+        when(paymentService.charge(any(),any())).thenAnswer(_ -> {
+            Thread.sleep(500);
+            return true;
+        });
+
+        ExecutorService service = Executors.newFixedThreadPool(users);
+        AtomicInteger failures = new AtomicInteger(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            final String userId = "user" + i;
+            service.submit(() -> {
+                try {
+                    usersController.payForPurchase(userId);
+                } catch (UserException | PurchaseFailedException e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // the payments overlap instead of being serialized behind one another
+        assertEquals(0, failures.get());
+        assertTrue(elapsedMillis < users * 500 / 4, "checkouts took " + elapsedMillis + " ms");
+        CheckoutMetrics.Snapshot metrics = usersController.getCheckoutMetrics();
+        assertEquals(users, metrics.succeeded());
+        assertTrue(metrics.p50Millis() >= 500);
+        assertTrue(metrics.p99Millis() >= metrics.p50Millis());
+        assertTrue(metrics.checkoutsPerSecond() > 2);
+    }
+
+    @Test
+    void testSecondCheckoutOfSameUserIsRejected() throws InterruptedException {
+        User user = mock(User.class);
+        Reservation reservation = mock(Reservation.class);
+        when(reservationRepository.getReservations(USER_ID)).thenReturn(List.of(reservation));
+        when(userRepository.getUser(USER_ID)).thenReturn(user);
+        when(shoppingCartRepository.getCart(USER_ID)).thenReturn(cart);
+        CountDownLatch charging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.charge(any(),any())).thenAnswer(_ -> {
+            charging.countDown();
+            release.await();
+            return false;
+        });
+
+        var first = usersController.checkout(USER_ID);
+        assertTrue(charging.await(1, TimeUnit.SECONDS));
+        assertThrows(PurchaseFailedException.class, () -> usersController.payForPurchase(USER_ID));
+        release.countDown();
+        assertThrows(Exception.class, first::join);
+    }
+
+    @Test
+    void testGuestsComeAndGoWhileAPaymentIsPending() throws Exception {
+        User user = mock(User.class);
+        when(reservationRepository.getReservations(USER_ID)).thenReturn(List.of(mock(Reservation.class)));
+        when(userRepository.getUser(USER_ID)).thenReturn(user);
+        when(shoppingCartRepository.getCart(USER_ID)).thenReturn(cart);
+        CountDownLatch charging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.charge(any(),any())).thenAnswer(_ -> {
+            charging.countDown();
+            release.await();
+            return false;
+        });
+
+        var pending = usersController.checkout(USER_ID);
+        assertTrue(charging.await(1, TimeUnit.SECONDS));
+
+        int guests = 1000;
+        AtomicInteger failures = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < guests; i++) {
+                executor.submit(() -> {
+                    try {
+                        String guestId = usersController.enterAsGuest();
+                        usersController.getUser(guestId);
+                        usersController.logoutAsGuest(guestId);
+                    } catch (UserException e) {
+                        failures.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        assertEquals(0, failures.get());
+        assertTrue(usersController.getGuests().isEmpty());
+        verify(authenticationController, times(guests)).createGuest(anyString());
+        release.countDown();
+        assertThrows(Exception.class, pending::join);
+    }
+
 //    @SuppressWarnings("unchecked")
 //    @Test
 //    void testConcurrentCancelPurchase() throws IllegalAccessException, NoSuchFieldException, InterruptedException {
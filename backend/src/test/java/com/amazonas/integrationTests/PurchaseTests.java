@@ -135,7 +135,8 @@ public class PurchaseTests {
                 shoppingCartRepository,
                 permissionsController,
                 notificationController,
-                storeRepository);
+                storeRepository,
+                new OutboxRepository());
 
         // ========= ShippingServiceController setup ========= |
         shippingService = mock(ShippingService.class);
@@ -0,0 +1,15 @@
+package com.amazonas.common.dtos;
+
+import java.util.Map;
+
+/**
+ * What a candidate discount policy would have given away over the store's past orders.
+ * The discount amounts are measured against the catalog prices recorded in the orders.
+ */
+public record DiscountSimulationResult(int totalOrders,
+                                       int affectedOrders,
+                                       double affectedOrdersPercentage,
+                                       double totalDiscount,
+                                       Map<String, Double> discountPerProduct,
+                                       Map<String, Double> discountPerCategory) {
+}
@@ -0,0 +1,3 @@
+package com.amazonas.common.dtos;
+
+public record StoreAppointment(String storeId, StoreRole role) { }
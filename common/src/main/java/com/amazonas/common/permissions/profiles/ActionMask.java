@@ -0,0 +1,34 @@
+package com.amazonas.common.permissions.profiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of actions of one enum packed into the bits of a long, bit i stands for the action with ordinal i
+ */
+final class ActionMask {
+
+    private ActionMask() { }
+
+    static long bit(Enum<?> action) {
+        int ordinal = action.ordinal();
+        if (ordinal >= Long.SIZE) {
+            throw new IllegalArgumentException("Action " + action + " does not fit in a mask");
+        }
+        return 1L << ordinal;
+    }
+
+    static boolean contains(long mask, Enum<?> action) {
+        return (mask & bit(action)) != 0;
+    }
+
+    static <E extends Enum<E>> List<E> toList(long mask, Class<E> type) {
+        List<E> ret = new ArrayList<>(Long.bitCount(mask));
+        for (E action : type.getEnumConstants()) {
+            if (contains(mask, action)) {
+                ret.add(action);
+            }
+        }
+        return ret;
+    }
+}
@@ -5,11 +5,14 @@ import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 
 import java.util.List;
+import java.util.Map;
 
 public class AdminPermissionsProfile implements PermissionsProfile {
 
     private static final String USER_ID = "admin";
 
+    private final long version = VersionStamp.next();
+
     @Override
     public boolean addStorePermission(String storeId, StoreActions action) {
         return false;
@@ -60,6 +63,11 @@ public class AdminPermissionsProfile implements PermissionsProfile {
         return List.of();
     }
 
+    @Override
+    public PermissionsMatrix getPermissionsMatrix() {
+        return new PermissionsMatrix(version, true, true, 0, 0, Map.of());
+    }
+
     @Override
     public String getUserId() {
         return USER_ID;
@@ -4,21 +4,23 @@ import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
-@SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
+/**
+ * The permissions every user of a kind has. It is checked on every request of every such user,
+ * so the actions are kept as bitmasks that are read without locking.
+ */
 public class DefaultPermissionsProfile implements PermissionsProfile {
 
-    private final Set<UserActions> allowedUserActions;
-    private final Set<MarketActions> allowedMarketActions;
+    private volatile long allowedUserActions;
+    private volatile long allowedMarketActions;
+    private volatile long version;
     private final String userId;
 
     public DefaultPermissionsProfile(String userId) {
         this.userId = userId;
-        allowedUserActions = new HashSet<>();
-        allowedMarketActions = new HashSet<>();
+        version = VersionStamp.next();
     }
 
     @Override
@@ -32,33 +34,41 @@ public class DefaultPermissionsProfile implements PermissionsProfile {
     }
 
     @Override
-    public boolean addUserActionPermission(UserActions action) {
-        return allowedUserActions.add(action);
+    public synchronized boolean addUserActionPermission(UserActions action) {
+        long before = allowedUserActions;
+        allowedUserActions = before | ActionMask.bit(action);
+        return changed(allowedUserActions != before);
     }
 
     @Override
-    public boolean removeUserActionPermission(UserActions action) {
-        return allowedUserActions.remove(action);
+    public synchronized boolean removeUserActionPermission(UserActions action) {
+        long before = allowedUserActions;
+        allowedUserActions = before & ~ActionMask.bit(action);
+        return changed(allowedUserActions != before);
     }
 
     @Override
-    public boolean addMarketActionPermission(MarketActions action) {
-        return allowedMarketActions.add(action);
+    public synchronized boolean addMarketActionPermission(MarketActions action) {
+        long before = allowedMarketActions;
+        allowedMarketActions = before | ActionMask.bit(action);
+        return changed(allowedMarketActions != before);
     }
 
     @Override
-    public boolean removeMarketActionPermission(MarketActions action) {
-        return allowedMarketActions.remove(action);
+    public synchronized boolean removeMarketActionPermission(MarketActions action) {
+        long before = allowedMarketActions;
+        allowedMarketActions = before & ~ActionMask.bit(action);
+        return changed(allowedMarketActions != before);
     }
 
     @Override
     public boolean hasPermission(UserActions action) {
-        return allowedUserActions.contains(action);
+        return ActionMask.contains(allowedUserActions, action);
     }
 
     @Override
     public boolean hasPermission(MarketActions action) {
-        return allowedMarketActions.contains(action);
+        return ActionMask.contains(allowedMarketActions, action);
     }
 
     @Override
@@ -71,8 +81,20 @@ public class DefaultPermissionsProfile implements PermissionsProfile {
         return List.of();
     }
 
+    @Override
+    public PermissionsMatrix getPermissionsMatrix() {
+        return new PermissionsMatrix(version, true, false, allowedUserActions, allowedMarketActions, Map.of());
+    }
+
     @Override
     public String getUserId(){
         return userId;
     }
+
+    private boolean changed(boolean changed) {
+        if (changed) {
+            version = VersionStamp.next();
+        }
+        return changed;
+    }
 }
@@ -0,0 +1,55 @@
+package com.amazonas.common.permissions.profiles;
+
+import com.amazonas.common.permissions.actions.MarketActions;
+import com.amazonas.common.permissions.actions.StoreActions;
+import com.amazonas.common.permissions.actions.UserActions;
+
+import java.util.Map;
+
+/**
+ * Every action a user holds, as bitmasks where bit i stands for the action with ordinal i.
+ * <br/>
+ * The version changes whenever the permissions change. A client that already holds this version
+ * receives a matrix that is not modified and carries no masks.
+ *
+ * @param storeActions the {@link StoreActions} mask of every store the user holds an action in
+ * @param admin true if the user may perform every action, the masks are empty in that case
+ */
+public record PermissionsMatrix(long version,
+                                boolean modified,
+                                boolean admin,
+                                long userActions,
+                                long marketActions,
+                                Map<String, Long> storeActions) {
+
+    private static final long ALL_USER_ACTIONS = ActionMask.bit(UserActions.ALL);
+    private static final long ALL_STORE_ACTIONS = ActionMask.bit(StoreActions.ALL);
+
+    public static PermissionsMatrix notModified(long version) {
+        return new PermissionsMatrix(version, false, false, 0, 0, Map.of());
+    }
+
+    /**
+     * @param knownVersion the version the client holds, or null
+     * @return this matrix, or a matrix that is not modified if the client already holds this version
+     */
+    public PermissionsMatrix revalidate(Long knownVersion) {
+        return knownVersion != null && knownVersion == version ? notModified(version) : this;
+    }
+
+    public boolean hasPermission(UserActions action) {
+        return admin || (userActions & (ActionMask.bit(action) | ALL_USER_ACTIONS)) != 0;
+    }
+
+    public boolean hasPermission(MarketActions action) {
+        return admin || ActionMask.contains(marketActions, action);
+    }
+
+    public boolean hasPermission(String storeId, StoreActions action) {
+        if (admin) {
+            return true;
+        }
+        Long mask = storeActions == null ? null : storeActions.get(storeId);
+        return mask != null && (mask & (ActionMask.bit(action) | ALL_STORE_ACTIONS)) != 0;
+    }
+}
@@ -5,7 +5,6 @@ import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
 
 import java.util.List;
-import java.util.Set;
 
 public interface PermissionsProfile {
 
@@ -33,5 +32,7 @@ public interface PermissionsProfile {
 
     List<String> getStoreIds();
 
+    PermissionsMatrix getPermissionsMatrix();
+
     String getUserId();
 }
@@ -3,53 +3,39 @@ package com.amazonas.common.permissions.profiles;
 import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.permissions.actions.StoreActions;
 import com.amazonas.common.permissions.actions.UserActions;
-import com.amazonas.common.utils.ReadWriteLock;
 
 import java.util.*;
+import java.util.function.LongUnaryOperator;
 
+/**
+ * The permissions of a registered user, kept as bitmasks of actions in an immutable snapshot.
+ * <br/>
+ * Checks read the current snapshot without locking. Changes are rare, they build a new snapshot and swap it in.
+ */
 public class UserPermissionsProfile implements PermissionsProfile {
 
+    private static final long ALL_USER_ACTIONS = ActionMask.bit(UserActions.ALL);
+    private static final long ALL_STORE_ACTIONS = ActionMask.bit(StoreActions.ALL);
+
     private final String userId;
     private final DefaultPermissionsProfile defaultProfile;
-    private Map<String,Set<StoreActions>> storeIdToAllowedStoreActions;
-    private final Set<UserActions> allowedUserActions;
-    private final Set<MarketActions> allowedMarketActions;
-    private final ReadWriteLock lock;
+    private volatile Snapshot snapshot;
 
 
     public UserPermissionsProfile(String userId, DefaultPermissionsProfile defaultProfile) {
         this.defaultProfile = defaultProfile;
         this.userId = userId;
-        storeIdToAllowedStoreActions = new HashMap<>();
-        allowedUserActions = new HashSet<>();
-        allowedMarketActions = new HashSet<>();
-        lock = new ReadWriteLock();
+        snapshot = new Snapshot(Map.of(), 0, 0, VersionStamp.next());
     }
 
     @Override
     public boolean addStorePermission(String storeId, StoreActions action) {
-        lock.acquireWrite();
-        Set<StoreActions> allowedActions = storeIdToAllowedStoreActions.computeIfAbsent(storeId, _ -> new HashSet<>());
-        boolean output = allowedActions.add(action);
-        lock.releaseWrite();
-        return output;
+        return updateStore(storeId, mask -> mask | ActionMask.bit(action));
     }
 
     @Override
     public boolean removeStorePermission(String storeId, StoreActions action) {
-        boolean result;
-        lock.acquireWrite();
-        Set<StoreActions> allowedActions = storeIdToAllowedStoreActions.get(storeId);
-        if (allowedActions != null) {
-            result = allowedActions.remove(action);
-            if (allowedActions.isEmpty()) {
-                storeIdToAllowedStoreActions.remove(storeId);
-            }
-        } else {
-            result = false;
-        }
-        lock.releaseWrite();
-        return result;
+        return updateStore(storeId, mask -> mask & ~ActionMask.bit(action));
     }
 
     @Override
@@ -57,10 +43,14 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return false;
         }
-        lock.acquireWrite();
-        boolean result = allowedUserActions.add(action);
-        lock.releaseWrite();
-        return result;
+        synchronized (this) {
+            Snapshot current = snapshot();
+            long updated = current.userActions() | ActionMask.bit(action);
+            if(updated != current.userActions()) {
+                snapshot = new Snapshot(current.stores(), updated, current.marketActions(), VersionStamp.next());
+            }
+            return updated != current.userActions();
+        }
     }
 
     @Override
@@ -68,10 +58,14 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return false;
         }
-        lock.acquireWrite();
-        boolean result = allowedUserActions.remove(action);
-        lock.releaseWrite();
-        return result;
+        synchronized (this) {
+            Snapshot current = snapshot();
+            long updated = current.userActions() & ~ActionMask.bit(action);
+            if(updated != current.userActions()) {
+                snapshot = new Snapshot(current.stores(), updated, current.marketActions(), VersionStamp.next());
+            }
+            return updated != current.userActions();
+        }
     }
 
     @Override
@@ -79,10 +73,14 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return false;
         }
-        lock.acquireWrite();
-        boolean result = allowedMarketActions.add(action);
-        lock.releaseWrite();
-        return result;
+        synchronized (this) {
+            Snapshot current = snapshot();
+            long updated = current.marketActions() | ActionMask.bit(action);
+            if(updated != current.marketActions()) {
+                snapshot = new Snapshot(current.stores(), current.userActions(), updated, VersionStamp.next());
+            }
+            return updated != current.marketActions();
+        }
     }
 
     @Override
@@ -90,10 +88,14 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return false;
         }
-        lock.acquireWrite();
-        boolean result = allowedMarketActions.remove(action) || allowedMarketActions.contains(MarketActions.ALL);
-        lock.releaseWrite();
-        return result;
+        synchronized (this) {
+            Snapshot current = snapshot();
+            long updated = current.marketActions() & ~ActionMask.bit(action);
+            if(updated != current.marketActions()) {
+                snapshot = new Snapshot(current.stores(), current.userActions(), updated, VersionStamp.next());
+            }
+            return updated != current.marketActions() || ActionMask.contains(updated, MarketActions.ALL);
+        }
     }
 
     @Override
@@ -101,10 +103,7 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return true;
         }
-        lock.acquireRead();
-        boolean result = allowedUserActions.contains(action) || allowedUserActions.contains(UserActions.ALL);
-        lock.releaseRead();
-        return result;
+        return (snapshot().userActions() & (ActionMask.bit(action) | ALL_USER_ACTIONS)) != 0;
     }
 
     @Override
@@ -112,33 +111,35 @@ public class UserPermissionsProfile implements PermissionsProfile {
         if(defaultProfile.hasPermission(action)) {
             return true;
         }
-        lock.acquireRead();
-        boolean result = allowedMarketActions.contains(action);
-        lock.releaseRead();
-        return result;
-
+        return ActionMask.contains(snapshot().marketActions(), action);
     }
 
     @Override
     public boolean hasPermission(String storeId, StoreActions action) {
-        lock.acquireRead();
-        Set<StoreActions> allowedActions = storeIdToAllowedStoreActions.get(storeId);
-        boolean result = allowedActions != null && (allowedActions.contains(StoreActions.ALL) || allowedActions.contains(action));
-        lock.releaseRead();
-        return result;
+        Long mask = snapshot().stores().get(storeId);
+        return mask != null && (mask & (ActionMask.bit(action) | ALL_STORE_ACTIONS)) != 0;
     }
 
     @Override
     public List<StoreActions> getStorePermissions(String storeId){
-        if(storeIdToAllowedStoreActions == null) {
-            storeIdToAllowedStoreActions = new HashMap<>();
-        }
-        return storeIdToAllowedStoreActions.getOrDefault(storeId, Set.of()).stream().toList();
+        return ActionMask.toList(snapshot().stores().getOrDefault(storeId, 0L), StoreActions.class);
     }
 
     @Override
     public List<String> getStoreIds() {
-        return new ArrayList<>(storeIdToAllowedStoreActions.keySet());
+        return new ArrayList<>(snapshot().stores().keySet());
+    }
+
+    @Override
+    public PermissionsMatrix getPermissionsMatrix() {
+        Snapshot current = snapshot();
+        PermissionsMatrix defaults = defaultProfile.getPermissionsMatrix();
+        return new PermissionsMatrix(Math.max(current.version(), defaults.version()),
+                true,
+                false,
+                current.userActions() | defaults.userActions(),
+                current.marketActions() | defaults.marketActions(),
+                current.stores());
     }
 
     @Override
@@ -146,4 +147,34 @@ public class UserPermissionsProfile implements PermissionsProfile {
         return userId;
     }
 
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private synchronized boolean updateStore(String storeId, LongUnaryOperator change) {
+        Snapshot current = snapshot();
+        long mask = current.stores().getOrDefault(storeId, 0L);
+        long updated = change.applyAsLong(mask);
+        if(updated == mask) {
+            return false;
+        }
+        Map<String, Long> stores = new HashMap<>(current.stores());
+        if(updated == 0) {
+            stores.remove(storeId);
+        } else {
+            stores.put(storeId, updated);
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(stores), current.userActions(), current.marketActions(), VersionStamp.next());
+        return true;
+    }
+
+    // a profile that was deserialized from an older format has no snapshot
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null && current.stores() != null ? current : Snapshot.EMPTY;
+    }
+
+    private record Snapshot(Map<String, Long> stores, long userActions, long marketActions, long version) {
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), 0, 0, 0);
+    }
 }
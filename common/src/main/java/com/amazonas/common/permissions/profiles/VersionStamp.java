@@ -0,0 +1,18 @@
+package com.amazonas.common.permissions.profiles;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of permissions profiles come from one counter, so a stamp is never reused,
+ * not even by a profile that replaced another profile of the same user
+ */
+final class VersionStamp {
+
+    private static final AtomicLong counter = new AtomicLong();
+
+    private VersionStamp() { }
+
+    static long next() {
+        return counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,14 @@
+package com.amazonas.common.requests;
+
+import com.amazonas.common.utils.JsonUtils;
+
+/**
+ * A request of the typed API, the payload is a JSON value of the request document
+ * instead of a JSON string inside it, so it is parsed once
+ */
+public record TypedRequest<P>(String userId, String token, P payload) {
+
+    public String toJson(){
+        return JsonUtils.serialize(this);
+    }
+}
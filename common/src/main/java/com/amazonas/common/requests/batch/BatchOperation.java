@@ -0,0 +1,12 @@
+package com.amazonas.common.requests.batch;
+
+import java.util.List;
+
+/**
+ * One operation of a {@link BatchRequest}, sent to <code>service/endpoint</code> with the user and token of the batch
+ *
+ * @param payload the payload of the request, as it is sent to the endpoint on its own
+ * @param after the indices of the earlier operations of the batch that must succeed before this one starts
+ */
+public record BatchOperation(String service, String endpoint, String payload, List<Integer> after) {
+}
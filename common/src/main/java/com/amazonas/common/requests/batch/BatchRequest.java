@@ -0,0 +1,14 @@
+package com.amazonas.common.requests.batch;
+
+import com.amazonas.common.utils.JsonUtils;
+
+import java.util.List;
+
+/**
+ * Operations that are sent in one request. The response holds the response of every operation, by its index.
+ */
+public record BatchRequest(List<BatchOperation> operations) {
+    public static BatchRequest from(String json) {
+        return JsonUtils.deserialize(json, BatchRequest.class);
+    }
+}
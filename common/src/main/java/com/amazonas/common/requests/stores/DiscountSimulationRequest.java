@@ -0,0 +1,14 @@
+package com.amazonas.common.requests.stores;
+
+import com.amazonas.common.DiscountDTOs.DiscountComponentDTO;
+import com.amazonas.common.utils.JsonUtils;
+
+/**
+ * A candidate discount policy to replay over the store's transaction history.
+ * Exactly one of <code>cfg</code> and <code>discountComponentDTO</code> is expected, the dto wins if both are given.
+ */
+public record DiscountSimulationRequest(String StoreID, String cfg, DiscountComponentDTO discountComponentDTO) {
+    public static DiscountSimulationRequest from(String payload) {
+        return JsonUtils.deserialize(payload,DiscountSimulationRequest.class);
+    }
+}
@@ -0,0 +1,12 @@
+package com.amazonas.common.requests.users;
+
+import com.amazonas.common.utils.JsonUtils;
+
+/**
+ * @param idempotencyKey a client generated key, a retry of the same purchase step sends the same key
+ */
+public record PurchaseRequest(String idempotencyKey) {
+    public static PurchaseRequest from(String json) {
+        return JsonUtils.deserialize(json, PurchaseRequest.class);
+    }
+}
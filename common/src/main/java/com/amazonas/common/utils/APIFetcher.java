@@ -14,18 +14,48 @@ import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Every fetcher sends its request through one {@link HttpClient} that is shared by the whole process,
+ * so the TLS handshake is done once per connection and the connections are kept alive and reused.
+ * The client asks for HTTP/2, which sends all the requests to a host over one connection,
+ * and falls back to pooled HTTP/1.1 connections when the server does not support it.
+ * <br/>
+ * The size of the HTTP/1.1 pool and how long an idle connection is kept are set by the
+ * <code>jdk.httpclient.connectionPoolSize</code> and <code>jdk.httpclient.keepalive.timeout</code> system properties.
+ */
 @SuppressWarnings("UnusedReturnValue")
 public class APIFetcher {
 
+    /**
+     * @param requestTimeout how long to wait for the response of a request, unless the fetcher sets its own
+     */
+    public record Settings(Duration connectTimeout, Duration requestTimeout, HttpClient.Version version) {
+
+        /**
+         * The settings of the shared client until {@link #configure(Settings)} is called, read from the
+         * <code>APIFETCHER_CONNECT_TIMEOUT_MS</code> and <code>APIFETCHER_REQUEST_TIMEOUT_MS</code> system properties
+         */
+        public static final Settings DEFAULT = new Settings(
+                Duration.ofMillis(Long.getLong("APIFETCHER_CONNECT_TIMEOUT_MS", 5000)),
+                Duration.ofMillis(Long.getLong("APIFETCHER_REQUEST_TIMEOUT_MS", 30000)),
+                HttpClient.Version.HTTP_2);
+    }
+
+    private static volatile Settings settings = Settings.DEFAULT;
+    private static volatile HttpClient sharedHttpClient;
+
     private String uri;
     private final Map<String, String> headers;
     private final Map<String, String> params;
     private String body;
     private boolean isPost;
+    private Duration timeout;
 
     private APIFetcher() {
         headers = new HashMap<>();
@@ -33,37 +63,26 @@ public class APIFetcher {
         body = "";
     }
 
+    /**
+     * @throws java.net.http.HttpTimeoutException if the response did not arrive in time
+     */
     public String fetch() throws IOException, InterruptedException {
+        return httpClient().send(buildRequest(), HttpResponse.BodyHandlers.ofString()).body();
+    }
 
-        assert uri != null : "URI is required";
-
-        // build full URI
-        String fullUri = params.entrySet().stream()
-                .reduce(uri,
-                        (acc, entry) -> "%s%s%s=%s".formatted(
-                                acc,
-                                (acc.contains("?") ? "&" : "?"),
-                                entry.getKey(),
-                                entry.getValue()),
-                        (acc, _) -> acc);
-
-        // build request
-        var builder = HttpRequest.newBuilder()
-                .uri(URI.create(fullUri));
-        if (isPost) {
-            builder.POST(HttpRequest.BodyPublishers.ofString(body));
-        } else {
-            builder.GET();
-        }
-        headers.forEach(builder::header);
-        HttpRequest request = builder.build();
+    /**
+     * Same as {@link #fetch()} without blocking the calling thread
+     */
+    public CompletableFuture<String> fetchAsync() {
+        return httpClient().sendAsync(buildRequest(), HttpResponse.BodyHandlers.ofString()).thenApply(HttpResponse::body);
+    }
 
-        // send request
-        HttpResponse<String> response;
-        try (HttpClient client = createHttpClient()) {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        }
-        return response.body();
+    /**
+     * Set how long to wait for the response, instead of the request timeout of the shared client
+     */
+    public APIFetcher withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
     }
 
     /**
@@ -125,13 +144,71 @@ public class APIFetcher {
         return new APIFetcher();
     }
 
-    private HttpClient createHttpClient(){
+    /**
+     * Replaces the shared client, the requests the current client is sending are completed first
+     */
+    public static synchronized void configure(Settings settings) {
+        APIFetcher.settings = settings;
+        HttpClient previous = sharedHttpClient;
+        sharedHttpClient = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    // =============================================================================== |
+    // ================================ HELPERS ====================================== |
+    // =============================================================================== |
+
+    private HttpRequest buildRequest() {
+
+        assert uri != null : "URI is required";
+
+        // build full URI
+        String fullUri = params.entrySet().stream()
+                .reduce(uri,
+                        (acc, entry) -> "%s%s%s=%s".formatted(
+                                acc,
+                                (acc.contains("?") ? "&" : "?"),
+                                entry.getKey(),
+                                entry.getValue()),
+                        (acc, _) -> acc);
+
+        // build request
+        var builder = HttpRequest.newBuilder()
+                .uri(URI.create(fullUri))
+                .timeout(timeout != null ? timeout : settings.requestTimeout());
+        if (isPost) {
+            builder.POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            builder.GET();
+        }
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static HttpClient httpClient() {
+        HttpClient client = sharedHttpClient;
+        if (client == null) {
+            synchronized (APIFetcher.class) {
+                client = sharedHttpClient;
+                if (client == null) {
+                    client = sharedHttpClient = createHttpClient(settings);
+                }
+            }
+        }
+        return client;
+    }
+
+    private static HttpClient createHttpClient(Settings settings){
         try {
             SSLContext sslContext = SSLContext.getInstance("TLS");
             TrustManager[] trustAllCerts = new TrustManager[]{new TrustAllCertificates()};
             sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
             return HttpClient.newBuilder()
                     .sslContext(sslContext)
+                    .version(settings.version())
+                    .connectTimeout(settings.connectTimeout())
                     .build();
         } catch (NoSuchAlgorithmException | KeyManagementException e) {
             throw new RuntimeException(e);
@@ -1,7 +1,11 @@
 package com.amazonas.common.utils;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -59,5 +63,27 @@ public class JsonUtils {
     public static <T> T deserialize(String json, Type TypeOfT) {
         return gson.fromJson(json, TypeOfT);
     }
+
+    /**
+     * Reads the value straight from the reader, without holding the whole document in a string
+     */
+    public static <T> T deserialize(Reader json, Type TypeOfT) {
+        return gson.fromJson(json, TypeOfT);
+    }
+
+    public static JsonWriter newJsonWriter(Writer out) throws IOException {
+        return gson.newJsonWriter(out);
+    }
+
+    /**
+     * Writes the object as the next value of the writer. Unlike {@link #serialize(Object)}, a string is written as a JSON string.
+     */
+    public static void serialize(Object obj, JsonWriter writer) throws IOException {
+        if(obj == null) {
+            writer.nullValue();
+            return;
+        }
+        gson.toJson(obj, obj.getClass(), writer);
+    }
 }
 
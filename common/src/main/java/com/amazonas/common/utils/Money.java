@@ -0,0 +1,36 @@
+package com.amazonas.common.utils;
+
+/**
+ * Conversions between prices given as doubles and exact amounts of minor units (cents).
+ * Prices are expected to carry at most two decimal digits.
+ */
+public class Money {
+
+    public static final int CENTS_PER_UNIT = 100;
+
+    private Money() {}
+
+    public static long toCents(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * @return the price after taking off <code>percent</code> percents, rounded half-up to a whole cent
+     */
+    public static long applyPercentOff(long cents, int percent) {
+        return (cents * (100 - percent) + 50) / 100;
+    }
+
+    /**
+     * @return the amount as a plain decimal string with exactly two fraction digits, e.g. "1234.50"
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % CENTS_PER_UNIT;
+        return (cents < 0 ? "-" : "") + abs / CENTS_PER_UNIT + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -1,7 +1,12 @@
 package com.amazonas.common.utils;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class Response {
@@ -115,4 +120,36 @@ public class Response {
     public static String getError(String error) {
         return new Response(error,false, List.of()).toJson();
     }
+
+    /**
+     * Streams an ok response of the typed API as a single JSON document, read it with {@link TypedResponse}.
+     * A collection payload is written element by element, like {@link #getOk(List)}.
+     */
+    public static void writeOk(Object payload, Writer out) throws IOException {
+        JsonWriter writer = JsonUtils.newJsonWriter(out);
+        writer.beginObject();
+        writer.name("success").value(true);
+        Collection<?> elements = payload instanceof Collection<?> c ? c : payload == null ? List.of() : List.of(payload);
+        if(!elements.isEmpty()) {
+            writer.name("payload").beginArray();
+            for (Object element : elements) {
+                JsonUtils.serialize(element, writer);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Streams an error response of the typed API, it carries the message only
+     */
+    public static void writeError(String error, Writer out) throws IOException {
+        JsonWriter writer = JsonUtils.newJsonWriter(out);
+        writer.beginObject();
+        writer.name("message").value(error);
+        writer.name("success").value(false);
+        writer.endObject();
+        writer.flush();
+    }
 }
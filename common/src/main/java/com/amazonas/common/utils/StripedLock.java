@@ -0,0 +1,60 @@
+package com.amazonas.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A fixed set of {@link ReadWriteLock}s, each key is guarded by one of them.
+ * Two keys that map to different stripes never wait for each other.
+ * The same key always maps to the same stripe, so operations on one key are serialized.
+ */
+public class StripedLock {
+
+    private final ReadWriteLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        size = size < stripes ? size << 1 : size;
+        this.stripes = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReadWriteLock();
+        }
+        mask = size - 1;
+    }
+
+    public ReadWriteLock get(String key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * @return the distinct stripes of the keys, in stripe order.
+     * Acquiring them in this order cannot deadlock with another caller that does the same.
+     */
+    public List<ReadWriteLock> getAll(String... keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String key : keys) {
+            indexes.add(indexOf(key));
+        }
+        List<ReadWriteLock> ret = new ArrayList<>(indexes.size());
+        indexes.forEach(i -> ret.add(stripes[i]));
+        return ret;
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        // spread the high bits, the low bits of string hashes are weak for similar keys
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,20 @@
+package com.amazonas.common.utils;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * A response of the typed API, written by {@link Response#writeOk(Object, java.io.Writer)}.
+ * The payload holds JSON values instead of JSON strings, so the whole response is parsed once.
+ */
+public record TypedResponse<T>(String message, boolean success, List<T> payload) {
+
+    /**
+     * @param payloadType the type of a single payload element
+     */
+    public static <T> TypedResponse<T> fromJson(String json, Type payloadType) {
+        return JsonUtils.deserialize(json, TypeToken.getParameterized(TypedResponse.class, payloadType).getType());
+    }
+}
@@ -3,17 +3,21 @@ package com.amazonas.frontend.control;
 
 import com.amazonas.common.permissions.profiles.AdminPermissionsProfile;
 import com.amazonas.common.permissions.profiles.DefaultPermissionsProfile;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.common.permissions.profiles.UserPermissionsProfile;
 
 import com.amazonas.common.requests.RequestBuilder;
+import com.amazonas.common.requests.TypedRequest;
 import com.amazonas.common.requests.auth.AuthenticationRequest;
 import com.amazonas.common.requests.users.LoginRequest;
 import com.amazonas.common.requests.users.RegisterRequest;
 import com.amazonas.common.utils.APIFetcher;
 import com.amazonas.common.utils.Response;
+import com.amazonas.common.utils.TypedResponse;
 import com.amazonas.frontend.exceptions.ApplicationException;
 import com.google.gson.JsonSyntaxException;
+import com.vaadin.flow.server.VaadinRequest;
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.server.WrappedSession;
 import org.apache.catalina.session.StandardSession;
@@ -24,8 +28,10 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -70,10 +76,23 @@ public class AppController {
         return get(endpoint.location(), endpoint.returnType());
     }
 
+    /**
+     * The endpoints the backend serves through its typed API are posted there, the response is parsed in one pass
+     */
     public <T> List<T> postByEndpoint(Endpoints endpoint, Object payload) throws ApplicationException {
+        if (endpoint.typed()) {
+            return postTyped(endpoint, payload);
+        }
         return post(endpoint.location(), endpoint.returnType(), payload);
     }
 
+    /**
+     * @return calls to send to the backend together, see {@link Batch}
+     */
+    public Batch batch() {
+        return new Batch(this);
+    }
+
     private <T> List<T> get(String location, Type clazz) throws ApplicationException {
         ApplicationException fetchFailed = new ApplicationException("Failed to fetch data");
 
@@ -137,6 +156,33 @@ public class AppController {
         return response.payload(clazz);
     }
 
+    private <T> List<T> postTyped(Endpoints endpoint, Object payload) throws ApplicationException {
+        ApplicationException postFailed = new ApplicationException("Failed to send data");
+
+        String body = new TypedRequest<>(getCurrentUserId(), getToken(), payload).toJson();
+
+        TypedResponse<T> response;
+        try {
+            String fetched = APIFetcher.create()
+                    .withUri(BACKEND_URI + "typed/" + endpoint.location())
+                    .withHeader("Authorization", getBearerAuth())
+                    .withBody(body)
+                    .withPost()
+                    .fetch();
+            response = TypedResponse.fromJson(fetched, endpoint.returnType());
+        } catch (IOException | InterruptedException | JsonSyntaxException e) {
+            throw postFailed;
+        }
+
+        if (response == null) {
+            throw postFailed;
+        }
+        if (!response.success()) {
+            throw new ApplicationException(response.message());
+        }
+        return response.payload();
+    }
+
     private String getBearerAuth() {
         String token = getToken();
         if (token == null) {
@@ -281,6 +327,20 @@ public class AppController {
         return true;
     }
 
+    /**
+     * Revalidates the matrix cached in the session, the backend sends the masks again only when they changed
+     */
+    public PermissionsMatrix getPermissionsMatrix() throws ApplicationException {
+        PermissionsMatrix cached = getSessionAttribute("permissionsMatrix");
+        List<PermissionsMatrix> fetched = postByEndpoint(Endpoints.GET_PERMISSIONS_MATRIX, cached == null ? null : cached.version());
+        PermissionsMatrix matrix = fetched.getFirst();
+        if (!matrix.modified() && cached != null) {
+            return cached;
+        }
+        setSessionsAttribute("permissionsMatrix", matrix);
+        return matrix;
+    }
+
     // ==================================================================================== |
     // ===========================  SESSION FUNCTIONS ===================================== |
     // ==================================================================================== |
@@ -374,6 +434,8 @@ public class AppController {
 
     private void sessionCleaner() {
         while (true) {
+            // the logouts of the expired sessions are sent together over the shared connection
+            List<CompletableFuture<Void>> logouts = new ArrayList<>();
             for (var entry : sessions.entrySet()) {
                 SessionDetails s = entry.getValue();
                 if (!s.session().isValid()) {
@@ -382,27 +444,23 @@ public class AppController {
                             .withToken(s.token())
                             .build()
                             .toJson();
-                    APIFetcher fetcher = APIFetcher.create()
+                    Endpoints logout = s.isGuest() ? Endpoints.LOGOUT_AS_GUEST : Endpoints.LOGOUT;
+                    logouts.add(APIFetcher.create()
+                            .withUri(BACKEND_URI + logout.location())
                             .withHeader("Authorization", "Bearer " + s.token())
                             .withBody(request)
-                            .withPost();
-                    String fetched = "";
-                    try {
-                        if (s.isGuest()) {
-                            fetched = fetcher.withUri(BACKEND_URI + Endpoints.LOGOUT_AS_GUEST.location()).fetch();
-                        } else {
-                            fetched = fetcher.withUri(BACKEND_URI + Endpoints.LOGOUT.location()).fetch();
-                        }
-                        Response response = Response.fromJson(fetched);
-                        if (response == null || !response.success()) {
-                            continue;
-                        }
-                    } catch (Exception ignored) {
-                        continue;
-                    }
-                    sessions.remove(entry.getKey());
+                            .withPost()
+                            .fetchAsync()
+                            .thenAccept(fetched -> {
+                                Response response = Response.fromJson(fetched);
+                                if (response != null && response.success()) {
+                                    sessions.remove(entry.getKey());
+                                }
+                            })
+                            .exceptionally(_ -> null));
                 }
             }
+            CompletableFuture.allOf(logouts.toArray(CompletableFuture[]::new)).join();
             try {
                 Thread.sleep(10000);
             } catch (InterruptedException _) {
@@ -424,15 +482,20 @@ public class AppController {
                 .build()
                 .toJson();
 
+        APIFetcher fetcher = APIFetcher.create()
+                .withUri(BACKEND_URI + endpoint.location())
+                .withHeader("Authorization", auth)
+                .withBody(body)
+                .withPost();
+        // the backend sees only this server, it throttles failed logins by the address of the browser
+        String clientAddress = getClientAddress();
+        if (clientAddress != null) {
+            fetcher.withHeader("X-Forwarded-For", clientAddress);
+        }
+
         Response response;
         try {
-            String fetched = APIFetcher.create()
-                    .withUri(BACKEND_URI + endpoint.location())
-                    .withHeader("Authorization", auth)
-                    .withBody(body)
-                    .withPost()
-                    .fetch();
-            response = Response.fromJson(fetched);
+            response = Response.fromJson(fetcher.fetch());
         } catch (IOException | InterruptedException | JsonSyntaxException e) {
             throw postFailed;
         }
@@ -444,4 +507,9 @@ public class AppController {
         }
         return response.payload(endpoint.returnType());
     }
+
+    private static String getClientAddress() {
+        VaadinRequest request = VaadinRequest.getCurrent();
+        return request == null ? null : request.getRemoteAddr();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.amazonas.frontend.control;
+
+import com.amazonas.common.requests.batch.BatchOperation;
+import com.amazonas.common.requests.batch.BatchRequest;
+import com.amazonas.common.utils.JsonUtils;
+import com.amazonas.common.utils.Response;
+import com.amazonas.frontend.exceptions.ApplicationException;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calls to several endpoints that are sent to the backend in one request, created by {@link AppController#batch()}.
+ * <br/>
+ * Calls that do not come after another call run in parallel in the backend.
+ */
+public class Batch {
+
+    private final AppController appController;
+    private final List<Endpoints> endpoints;
+    private final List<BatchOperation> operations;
+
+    Batch(AppController appController) {
+        this.appController = appController;
+        endpoints = new ArrayList<>();
+        operations = new ArrayList<>();
+    }
+
+    /**
+     * @param after the indices of the calls that must succeed before this call is made
+     * @return the index of the call in the results
+     */
+    public int add(Endpoints endpoint, Object payload, Integer... after) {
+        String location = endpoint.location();
+        int split = location.indexOf('/');
+        operations.add(new BatchOperation(location.substring(0, split), location.substring(split + 1), JsonUtils.serialize(payload), Arrays.asList(after)));
+        endpoints.add(endpoint);
+        return operations.size() - 1;
+    }
+
+    public Results send() throws ApplicationException {
+        List<Response> responses = appController.postByEndpoint(Endpoints.BATCH, new BatchRequest(operations));
+        return new Results(List.copyOf(endpoints), responses);
+    }
+
+    public static class Results {
+
+        private final List<Endpoints> endpoints;
+        private final List<Response> responses;
+
+        private Results(List<Endpoints> endpoints, List<Response> responses) {
+            this.endpoints = endpoints;
+            this.responses = responses;
+        }
+
+        /**
+         * @return the payload of the call, like {@link AppController#postByEndpoint(Endpoints, Object)} returns it
+         * @throws ApplicationException if the call failed or was not made
+         */
+        public <T> List<T> get(int index) throws ApplicationException {
+            Response response = responses.get(index);
+            if (!response.success()) {
+                throw new ApplicationException(response.message());
+            }
+            Type type = endpoints.get(index).returnType();
+            if (type == Void.class) {
+                return null;
+            }
+            return response.payload(type);
+        }
+    }
+}
@@ -7,13 +7,17 @@ import com.amazonas.common.dtos.*;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.List;
 import com.amazonas.common.dtos.Notification;
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.permissions.profiles.DefaultPermissionsProfile;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.UserPermissionsProfile;
+import com.amazonas.common.utils.Response;
 
 
 @SuppressWarnings("SpellCheckingInspection")
@@ -43,6 +47,7 @@ public enum Endpoints {
 
     // External Services Endpoints
     SEND_SHIPMENT("external/sendshipment", Boolean.class),
+    DISPATCH_PENDING_SHIPMENTS("external/dispatchpendingshipments", Integer.class),
     ADD_SHIPPING_SERVICE("external/addshippingservice", Void.class),
     REMOVE_SHIPPING_SERVICE("external/removeshippingservice", Void.class),
     UPDATE_SHIPPING_SERVICE("external/updateshippingservice", Void.class),
@@ -82,6 +87,7 @@ public enum Endpoints {
     ADD_PERMISSION_TO_MANAGER("stores/addpermissiontomanager", Boolean.class),
     REMOVE_PERMISSION_FROM_MANAGER("stores/removepermissionfrommanager", Boolean.class),
     GET_STORE_ROLES_INFORMATION("stores/getstorerolesinformation", StorePosition.class),
+    GET_USER_STORES("stores/getuserstores", StoreAppointment.class),
     GET_STORE_TRANSACTION_HISTORY("stores/getstoretransactionhistory", Transaction.class),
     SET_PRODUCT_QUANTITY("stores/setproductquantity", Void.class),
     GET_PRODUCT_QUANTITY("stores/getproductquantity", Integer.class),
@@ -92,6 +98,7 @@ public enum Endpoints {
     GET_DISCOUNT_RULE_CFG("stores/getcfgdiscountrule", String.class),
     ADD_DISCOUNT_RULE_DTO("stores/adddiscountrulebydto", String.class),
     GET_DISCOUNT_RULE_DTO("stores/getdtodiscountrule", DiscountComponentDTO.class),
+    SIMULATE_DISCOUNT_RULE("stores/simulatediscountrule", DiscountSimulationResult.class),
     REMOVE_DISCOUNT_RULE("stores/removediscountrule", Boolean.class),
     ADD_PURCHASE_POLICY("stores/addpuchasepolicy", Void.class),
     GET_PURCHASE_POLICY("stores/getpurchasepolicy", MultiplePurchaseRuleDTO.class),
@@ -100,7 +107,19 @@ public enum Endpoints {
     //Permissions Endpoints
     GET_USER_PERMISSIONS("permissions/getuserpermissions", UserPermissionsProfile.class),
     GET_GUEST_PERMISSIONS("permissions/getguestpermissions", DefaultPermissionsProfile.class),
-    IS_ADMIN("permissions/isadmin", Boolean.class);
+    IS_ADMIN("permissions/isadmin", Boolean.class),
+    GET_PERMISSIONS_MATRIX("permissions/getpermissionsmatrix", PermissionsMatrix.class),
+
+    // Batch Endpoint, see Batch
+    BATCH("batch", Response.class);
+
+    // the endpoints the backend also serves through its typed API, see AppController#postByEndpoint
+    private static final Set<Endpoints> TYPED = EnumSet.of(
+            VIEW_CART,
+            GET_UNREAD_NOTIFICATIONS, GET_NOTIFICATIONS,
+            SEARCH_PRODUCTS_GLOBALLY, SEARCH_PRODUCTS_IN_STORE, GET_USER_STORES,
+            GET_STORE_PRODUCTS, GET_STORE_DETAILS, GET_PRODUCT,
+            GET_USER_PERMISSIONS, GET_PERMISSIONS_MATRIX);
 
     private final String location;
     private final Type returnType;
@@ -118,6 +137,10 @@ public enum Endpoints {
         return returnType;
     }
 
+    public boolean typed() {
+        return TYPED.contains(this);
+    }
+
     private static class Types {
         private static final Type GET_STORE_PRODUCTS_TYPE = new TypeToken<Map<Boolean, List<Product>>>() {}.getType();
     }
@@ -1,9 +1,11 @@
 package com.amazonas.frontend.view;
 
 import com.amazonas.common.permissions.actions.MarketActions;
+import com.amazonas.common.permissions.profiles.PermissionsMatrix;
 import com.amazonas.common.permissions.profiles.PermissionsProfile;
 import com.amazonas.common.utils.Pair;
 import com.amazonas.frontend.control.AppController;
+import com.amazonas.frontend.exceptions.ApplicationException;
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.applayout.AppLayout;
@@ -47,6 +49,8 @@ public abstract class BaseLayout extends AppLayout {
     protected SideNav nav1;
     protected SideNav nav2;
     PermissionsProfile permissionsProfile;
+    // what the views check, revalidated against the backend on every page
+    PermissionsMatrix permissions;
 
 
     public BaseLayout(AppController appController) {
@@ -70,6 +74,7 @@ public abstract class BaseLayout extends AppLayout {
             }
         }
         permissionsProfile = getPermissionsProfile();
+        permissions = loadPermissions();
 
         nav1 = new SideNav();
         nav1.addItem(new SideNavItem("Welcome", WelcomeView.class, VaadinIcon.HOME.create()));
@@ -123,7 +128,7 @@ public abstract class BaseLayout extends AppLayout {
             registerButton.getStyle().set("margin-right", "10px");
             addToNavbar(loginButton, registerButton);
         } else {
-            if(permissionsProfile.hasPermission(MarketActions.ALL)){
+            if(permissions.hasPermission(MarketActions.ALL)){
                 nav1.addItem(new SideNavItem("System Management", SystemManagement.class, VaadinIcon.NEWSPAPER.create()));
             }
             nav1.addItem(new SideNavItem("Create Store", CreateStore.class, VaadinIcon.STAR.create()));
@@ -179,6 +184,19 @@ public abstract class BaseLayout extends AppLayout {
         }
     }
 
+    /**
+     * falls back to the profile fetched at login if the backend can't be reached
+     */
+    private PermissionsMatrix loadPermissions() {
+        try {
+            return appController.getPermissionsMatrix();
+        } catch (ApplicationException e) {
+            return permissionsProfile == null
+                    ? PermissionsMatrix.notModified(0)
+                    : permissionsProfile.getPermissionsMatrix();
+        }
+    }
+
     /**
      * get the path of the view with the given parameters
      * @param mandatoryParams for pages with mandatory parameters that need to be included in the path
@@ -79,7 +79,7 @@ public class CloseAndReopenStore extends BaseLayout implements BeforeEnterObserv
     }
 
     private void closeStore() {
-        if (permissionsProfile.hasPermission(storeId, StoreActions.CLOSE_STORE) || permissionsProfile.hasPermission(MarketActions.ALL)) {
+        if (permissions.hasPermission(storeId, StoreActions.CLOSE_STORE) || permissions.hasPermission(MarketActions.ALL)) {
             try {
                 appController.postByEndpoint(Endpoints.CLOSE_STORE, storeId);
                 showNotification("Store is closed.");
@@ -93,7 +93,7 @@ public class CloseAndReopenStore extends BaseLayout implements BeforeEnterObserv
     }
 
     private void reopenStore() {
-        if (permissionsProfile.hasPermission(storeId, StoreActions.OPEN_STORE)) {
+        if (permissions.hasPermission(storeId, StoreActions.OPEN_STORE)) {
             try {
                 appController.postByEndpoint(Endpoints.OPEN_STORE, storeId);
                 showNotification("Store is reopened.");
@@ -107,7 +107,7 @@ public class ManageInventory extends BaseLayout implements BeforeEnterObserver {
                 quantityField.setValue(quantity.toString());
             }
             quantityField.addValueChangeListener(event -> {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.SET_PRODUCT_QUANTITY)) {
+                if (permissions.hasPermission(storeId, StoreActions.SET_PRODUCT_QUANTITY)) {
                     String value = event.getValue();
                     try {
                         int newQuantity = Integer.parseInt(value);
@@ -129,7 +129,7 @@ public class ManageInventory extends BaseLayout implements BeforeEnterObserver {
 
         grid.addComponentColumn(product -> {
             Button editButton = new Button("Edit", click -> {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.UPDATE_PRODUCT)) {
+                if (permissions.hasPermission(storeId, StoreActions.UPDATE_PRODUCT)) {
                     openEditDialog(product);
                 } else {
                     showNoPermissionNotification();
@@ -143,7 +143,7 @@ public class ManageInventory extends BaseLayout implements BeforeEnterObserver {
         grid.addComponentColumn(product -> {
             Button toggleButton = new Button(products.get(true).contains(product) ? "Disable" : "Enable", click -> {
                 StoreActions action = products.get(true).contains(product) ? StoreActions.DISABLE_PRODUCT : StoreActions.ENABLE_PRODUCT;
-                if (permissionsProfile.hasPermission(storeId, action)) {
+                if (permissions.hasPermission(storeId, action)) {
                     try {
                         Endpoints endpoint = getProducts().get(true).contains(product) ? Endpoints.DISABLE_PRODUCT : Endpoints.ENABLE_PRODUCT;
                         ProductRequest request = new ProductRequest(storeId, product.getProductId());
@@ -161,7 +161,7 @@ public class ManageInventory extends BaseLayout implements BeforeEnterObserver {
 
         grid.addComponentColumn(product -> {
             Button removeButton = new Button("Remove", click -> {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.REMOVE_PRODUCT)) {
+                if (permissions.hasPermission(storeId, StoreActions.REMOVE_PRODUCT)) {
                     try {
                         ProductRequest request = new ProductRequest(storeId, product.getProductId());
                         appController.postByEndpoint(Endpoints.REMOVE_PRODUCT, request);
@@ -180,7 +180,7 @@ public class ManageInventory extends BaseLayout implements BeforeEnterObserver {
         content.add(grid);
 
         Button addButton = new Button("Add", click -> {
-            if (permissionsProfile.hasPermission(storeId, StoreActions.ADD_PRODUCT)) {
+            if (permissions.hasPermission(storeId, StoreActions.ADD_PRODUCT)) {
                 openAddDialog();
             } else {
                 showNoPermissionNotification();
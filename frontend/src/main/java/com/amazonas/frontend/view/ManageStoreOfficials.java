@@ -59,7 +59,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
         ownersGrid.addColumn(UserInformation::getEmail).setHeader("Email");
 
         ownersGrid.addComponentColumn(user -> new Button("Remove Owner", _ -> {
-            if (permissionsProfile.hasPermission(storeId, StoreActions.REMOVE_OWNER)) {
+            if (permissions.hasPermission(storeId, StoreActions.REMOVE_OWNER)) {
                 try {
                     StoreStaffRequest request = new StoreStaffRequest(storeId, AppController.getCurrentUserId(), user.getUserId());
                     appController.postByEndpoint(Endpoints.REMOVE_OWNER, request);
@@ -75,7 +75,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
         addOwnerDialog = createUserDialog("Add Owner", this::addOwner);
 
         Button addOwnerButton = new Button("Add", click -> {
-            if (permissionsProfile.hasPermission(storeId, StoreActions.ADD_OWNER)) {
+            if (permissions.hasPermission(storeId, StoreActions.ADD_OWNER)) {
                 addOwnerDialog.open();
             } else {
                 showNotification("You do not have permission to add an owner.");
@@ -104,7 +104,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
                 removedPermissions.removeAll(addedPermissions);
 
                 addedPermissions.forEach(permission -> {
-                    if (permissionsProfile.hasPermission(storeId, StoreActions.ADD_PERMISSION_TO_MANAGER)) {
+                    if (permissions.hasPermission(storeId, StoreActions.ADD_PERMISSION_TO_MANAGER)) {
                         try {
                             StorePermissionRequest permissionRequest = new StorePermissionRequest(storeId, user.getUserId(), permission);
                             appController.postByEndpoint(Endpoints.ADD_PERMISSION_TO_MANAGER, permissionRequest);
@@ -117,7 +117,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
                 });
 
                 removedPermissions.forEach(permission -> {
-                    if (permissionsProfile.hasPermission(storeId, StoreActions.REMOVE_PERMISSION_FROM_MANAGER)) {
+                    if (permissions.hasPermission(storeId, StoreActions.REMOVE_PERMISSION_FROM_MANAGER)) {
                         try {
                             StorePermissionRequest permissionRequest = new StorePermissionRequest(storeId, user.getUserId(), permission);
                             appController.postByEndpoint(Endpoints.REMOVE_PERMISSION_FROM_MANAGER, permissionRequest);
@@ -135,7 +135,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
 
         managersGrid.addComponentColumn(user -> {
             Button removeButton = new Button("Remove Manager", click -> {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.REMOVE_MANAGER)) {
+                if (permissions.hasPermission(storeId, StoreActions.REMOVE_MANAGER)) {
                     try {
                         StoreStaffRequest request = new StoreStaffRequest(storeId, AppController.getCurrentUserId(), user.getUserId());
                         appController.postByEndpoint(Endpoints.REMOVE_MANAGER, request);
@@ -152,7 +152,7 @@ public class ManageStoreOfficials extends BaseLayout implements BeforeEnterObser
 
         addManagerDialog = createUserDialog("Add Manager", this::addManager);
         Button addManagerButton = new Button("Add", click -> {
-            if (permissionsProfile.hasPermission(storeId, StoreActions.ADD_MANAGER)) {
+            if (permissions.hasPermission(storeId, StoreActions.ADD_MANAGER)) {
                 addManagerDialog.open();
             } else {
                 showNotification("You do not have permission to add a manager.");
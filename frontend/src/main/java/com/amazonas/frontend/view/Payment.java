@@ -2,6 +2,7 @@ package com.amazonas.frontend.view;
 
 import com.amazonas.common.dtos.Product;
 import com.amazonas.common.dtos.Transaction;
+import com.amazonas.common.requests.users.PurchaseRequest;
 import com.amazonas.frontend.control.AppController;
 import com.amazonas.frontend.control.Endpoints;
 import com.amazonas.frontend.exceptions.ApplicationException;
@@ -16,6 +17,7 @@ import com.vaadin.flow.component.textfield.PasswordField;
 import com.vaadin.flow.router.Route;
 
 import java.util.List;
+import java.util.UUID;
 
 import static com.amazonas.frontend.control.AppController.isUserLoggedIn;
 
@@ -86,8 +88,10 @@ public class Payment extends Cart {
     private void processPayment() {
         try {
             List<Transaction> before = appController.postByEndpoint(Endpoints.GET_USER_TRANSACTION_HISTORY, AppController.getCurrentUserId());
-            appController.postByEndpoint(Endpoints.START_PURCHASE, null);
-            appController.postByEndpoint(Endpoints.PAY_FOR_PURCHASE, null);
+            // one key per payment attempt, so a repeated request is not processed twice by the backend
+            PurchaseRequest purchaseRequest = new PurchaseRequest(UUID.randomUUID().toString());
+            appController.postByEndpoint(Endpoints.START_PURCHASE, purchaseRequest);
+            appController.postByEndpoint(Endpoints.PAY_FOR_PURCHASE, purchaseRequest);
             // get the transactionID and go to orders?orderId=transactionID
             List<Transaction> after = appController.postByEndpoint(Endpoints.GET_USER_TRANSACTION_HISTORY, AppController.getCurrentUserId());
             Transaction newTransaction = after.stream().filter(t -> !before.contains(t)).findFirst().orElse(null);
@@ -57,7 +57,7 @@ public class StoreManagement extends BaseLayout implements BeforeEnterObserver {
                 getUI().ifPresent(ui -> ui.navigate(url));
             }
             if (MANAGE_STORE_OFFICIALS.equals(item)) {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.VIEW_ROLES_INFORMATION)) {
+                if (permissions.hasPermission(storeId, StoreActions.VIEW_ROLES_INFORMATION)) {
                     String url = getPath("managestoreofficials", Pair.of("storeid", storeId));
                     getUI().ifPresent(ui -> ui.navigate(url));
                 } else {
@@ -73,7 +73,7 @@ public class StoreManagement extends BaseLayout implements BeforeEnterObserver {
                 getUI().ifPresent(ui -> ui.navigate(url));
             }
             if (VIEW_PURCHASE_HISTORY.equals(item)) {
-                if (permissionsProfile.hasPermission(storeId, StoreActions.VIEW_STORE_TRANSACTIONS) || permissionsProfile.hasPermission(MarketActions.ALL)) {
+                if (permissions.hasPermission(storeId, StoreActions.VIEW_STORE_TRANSACTIONS) || permissions.hasPermission(MarketActions.ALL)) {
                     String url = getPath("purchasehistory", Pair.of("storeid", storeId));
                     getUI().ifPresent(ui -> ui.navigate(url));
                 } else {
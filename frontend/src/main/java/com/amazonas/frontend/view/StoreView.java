@@ -14,6 +14,7 @@ import com.amazonas.common.permissions.actions.MarketActions;
 import com.amazonas.common.requests.stores.StoreSearchRequest;
 import com.amazonas.common.utils.Pair;
 import com.amazonas.frontend.control.AppController;
+import com.amazonas.frontend.control.Batch;
 import com.amazonas.frontend.control.Endpoints;
 import com.amazonas.frontend.exceptions.ApplicationException;
 import com.amazonas.frontend.model.FrontendStore;
@@ -56,20 +57,18 @@ public class StoreView extends BaseLayout implements BeforeEnterObserver {
 
     private void createView() {
         storeId = getParam("storeid");
-        StoreDetails storeDetails = null;
+        StoreDetails storeDetails;
+        List<Product> products;
         try {
-            List<StoreDetails> fetched = appController.postByEndpoint(Endpoints.GET_STORE_DETAILS, storeId);
-            storeDetails = fetched.getFirst();
-        } catch (ApplicationException e) {
-            openErrorDialog(e.getMessage());
-            return;
-        }
-
-        // Get list of products from the backend
-        List<Product> products = null;
-        try {
-            List<Map<Boolean, List<Product>>> fetched = appController.postByEndpoint(Endpoints.GET_STORE_PRODUCTS, storeId);
-            products = fetched.getFirst().get(true);
+            // the details and the products of the store are fetched in one request
+            Batch batch = appController.batch();
+            int details = batch.add(Endpoints.GET_STORE_DETAILS, storeId);
+            int storeProducts = batch.add(Endpoints.GET_STORE_PRODUCTS, storeId);
+            Batch.Results results = batch.send();
+            List<StoreDetails> fetchedDetails = results.get(details);
+            storeDetails = fetchedDetails.getFirst();
+            List<Map<Boolean, List<Product>>> fetchedProducts = results.get(storeProducts);
+            products = fetchedProducts.getFirst().get(true);
         } catch (ApplicationException e) {
             openErrorDialog(e.getMessage());
             return;
@@ -135,7 +134,7 @@ public class StoreView extends BaseLayout implements BeforeEnterObserver {
         // Add to content
         content.add(layout);
       
-        if(permissionsProfile.getStoreIds().contains(storeId) || permissionsProfile.hasPermission(MarketActions.ALL)){
+        if(permissions.storeActions().containsKey(storeId) || permissions.hasPermission(MarketActions.ALL)){
             // Manage Store button
             Button manageStoreButton = new Button("Manage Store");
             manageStoreButton.addClickListener(event -> {